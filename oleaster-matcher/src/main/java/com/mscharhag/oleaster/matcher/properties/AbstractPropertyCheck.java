@@ -0,0 +1,148 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+import com.mscharhag.oleaster.matcher.util.Expectations;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Base class for property checks. Holds the number of trials, the seed and the parallelism and
+ * shrinks and reports failing inputs.
+ * <p>The defaults can be changed with the system properties {@code oleaster.trials} and {@code oleaster.seed}.
+ * Setting {@code oleaster.seed} to the seed of a failed check reproduces the failure.
+ */
+public abstract class AbstractPropertyCheck<S extends AbstractPropertyCheck<S>> {
+
+	public static final String TRIALS_PROPERTY = "oleaster.trials";
+	public static final String SEED_PROPERTY = "oleaster.seed";
+
+	private static final int MAX_SHRINK_EVALUATIONS = 1000;
+
+	private int trials = Integer.getInteger(TRIALS_PROPERTY, 100);
+	private long seed = Long.getLong(SEED_PROPERTY, ThreadLocalRandom.current().nextLong());
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	AbstractPropertyCheck() {
+
+	}
+
+	/**
+	 * Sets the number of random inputs that are checked.
+	 */
+	public S withTrials(int trials) {
+		if (trials < 1) {
+			throw new IllegalArgumentException("trials must be positive, was " + trials);
+		}
+		this.trials = trials;
+		return this.self();
+	}
+
+	/**
+	 * Sets the seed the inputs are generated from. Checks with the same seed and generators check the same inputs.
+	 */
+	public S withSeed(long seed) {
+		this.seed = seed;
+		return this.self();
+	}
+
+	/**
+	 * Sets the number of threads that run trials. Properties that rely on state bound to the thread of the
+	 * spec should be checked with a parallelism of 1.
+	 */
+	public S withParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive, was " + parallelism);
+		}
+		this.parallelism = parallelism;
+		return this.self();
+	}
+
+	public int getTrials() {
+		return trials;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@SuppressWarnings("unchecked")
+	private S self() {
+		return (S) this;
+	}
+
+	/**
+	 * Runs the trials and, if one fails, regenerates its input, shrinks it and fails with an {@code AssertionError}.
+	 */
+	<T> void verify(TrialRunner.Trial trial, Generator<T> generator, Property<T> property) {
+		int failedTrial = TrialRunner.firstFailure(trials, seed, parallelism, trial);
+		if (failedTrial < 0) {
+			return;
+		}
+		T original = generator.next(new RandomSource(RandomSource.trialSeed(seed, failedTrial)));
+		Throwable failure = failureOf(property, original);
+		if (failure == null) {
+			Expectations.fail(String.format("Property failed at trial %d of %d with seed %d, but passed when it was "
+					+ "checked again for input %s", failedTrial + 1, trials, seed, format(original)));
+		}
+		T shrunk = original;
+		int steps = 0;
+		int evaluations = 0;
+		boolean shrinking = true;
+		while (shrinking && evaluations < MAX_SHRINK_EVALUATIONS) {
+			shrinking = false;
+			for (T candidate : generator.shrink(shrunk)) {
+				if (++evaluations > MAX_SHRINK_EVALUATIONS) {
+					break;
+				}
+				Throwable candidateFailure = failureOf(property, candidate);
+				if (candidateFailure != null) {
+					shrunk = candidate;
+					failure = candidateFailure;
+					steps++;
+					shrinking = true;
+					break;
+				}
+			}
+		}
+		String message = String.format("Property failed for input %s", format(shrunk));
+		if (steps > 0) {
+			message += String.format(" (shrunk from %s in %d steps)", format(original), steps);
+		}
+		message += String.format(" at trial %d of %d with seed %d", failedTrial + 1, trials, seed);
+		if (failure.getMessage() != null) {
+			message += ": " + failure.getMessage();
+		}
+		Expectations.fail(message, failure);
+	}
+
+	static <T> Throwable failureOf(Property<T> property, T value) {
+		try {
+			property.check(value);
+			return null;
+		} catch (Exception | AssertionError e) {
+			return e;
+		}
+	}
+
+	private static String format(Object value) {
+		return value instanceof String || value instanceof Character ? "'" + value + "'" : String.valueOf(value);
+	}
+}
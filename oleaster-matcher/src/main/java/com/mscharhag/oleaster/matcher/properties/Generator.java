@@ -0,0 +1,37 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates random values for property checks and simpler values for a failing value.
+ * @param <T> The type of the generated values
+ */
+@FunctionalInterface
+public interface Generator<T> {
+
+	T next(RandomSource random);
+
+	/**
+	 * Returns values that are simpler than the given value, simplest first. A failing value is replaced by the
+	 * first of its simpler values that still fails the property. The default implementation does not shrink.
+	 */
+	default List<T> shrink(T value) {
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,242 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@code Generators} provides generators for primitives, strings and collections.
+ * <p>Failing values are shrunk towards simple values: numbers towards zero (or the bound closest to zero),
+ * strings and lists towards shorter ones with simpler elements.
+ * <p>For fluent access, it is recommended to statically import the methods of this class.
+ */
+public class Generators {
+
+	private static final String ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+	private Generators() {
+		// no instance needed
+	}
+
+	/**
+	 * Returns a generator for {@code int} values between {@code min} and {@code max} (both inclusive).
+	 */
+	public static IntGenerator ints(int min, int max) {
+		checkRange(min, max);
+		int target = (int) shrinkTarget(min, max);
+		return new IntGenerator() {
+			@Override
+			public int nextInt(RandomSource random) {
+				return random.nextInt(min, max);
+			}
+
+			@Override
+			public int shrinkTarget() {
+				return target;
+			}
+		};
+	}
+
+	/**
+	 * Returns a generator for all {@code int} values.
+	 */
+	public static IntGenerator ints() {
+		return ints(Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns a generator for {@code long} values between {@code min} and {@code max} (both inclusive).
+	 */
+	public static Generator<Long> longs(long min, long max) {
+		checkRange(min, max);
+		long target = shrinkTarget(min, max);
+		return new Generator<Long>() {
+			@Override
+			public Long next(RandomSource random) {
+				return random.nextLong(min, max);
+			}
+
+			@Override
+			public List<Long> shrink(Long value) {
+				return Shrinking.shrinkLong(value, target, v -> v);
+			}
+		};
+	}
+
+	/**
+	 * Returns a generator for {@code double} values between {@code min} (inclusive) and {@code max} (exclusive).
+	 */
+	public static Generator<Double> doubles(double min, double max) {
+		if (!(min < max)) {
+			throw new IllegalArgumentException(String.format("min (%s) must be less than max (%s)", min, max));
+		}
+		double target = min > 0 ? min : (max <= 0 ? Math.nextDown(max) : 0);
+		return new Generator<Double>() {
+			@Override
+			public Double next(RandomSource random) {
+				return min + random.nextDouble() * (max - min);
+			}
+
+			@Override
+			public List<Double> shrink(Double value) {
+				if (value == target) {
+					return Collections.emptyList();
+				}
+				List<Double> candidates = new ArrayList<>();
+				candidates.add(target);
+				double rounded = (double) Math.round(value);
+				if (rounded != value && rounded >= min && rounded < max) {
+					candidates.add(rounded);
+				}
+				candidates.add(target + (value - target) / 2);
+				return candidates;
+			}
+		};
+	}
+
+	/**
+	 * Returns a generator for {@code boolean} values. {@code true} is shrunk to {@code false}.
+	 */
+	public static Generator<Boolean> booleans() {
+		return new Generator<Boolean>() {
+			@Override
+			public Boolean next(RandomSource random) {
+				return random.nextBoolean();
+			}
+
+			@Override
+			public List<Boolean> shrink(Boolean value) {
+				return value ? Collections.singletonList(false) : Collections.emptyList();
+			}
+		};
+	}
+
+	/**
+	 * Returns a generator for alphanumeric strings with a length between {@code minLength} and {@code maxLength}.
+	 */
+	public static Generator<String> strings(int minLength, int maxLength) {
+		return strings(ALPHANUMERIC, minLength, maxLength);
+	}
+
+	/**
+	 * Returns a generator for strings that consist of characters of the alphabet and have a length between
+	 * {@code minLength} and {@code maxLength}. Characters are shrunk towards the first character of the alphabet.
+	 */
+	public static Generator<String> strings(String alphabet, int minLength, int maxLength) {
+		if (alphabet.isEmpty()) {
+			throw new IllegalArgumentException("alphabet must not be empty");
+		}
+		checkRange(minLength, maxLength);
+		checkRange(0, minLength);
+		Generator<Character> characters = new Generator<Character>() {
+			@Override
+			public Character next(RandomSource random) {
+				return alphabet.charAt(random.nextInt(0, alphabet.length() - 1));
+			}
+
+			@Override
+			public List<Character> shrink(Character value) {
+				return value == alphabet.charAt(0) ? Collections.emptyList() : Collections.singletonList(alphabet.charAt(0));
+			}
+		};
+		return new Generator<String>() {
+			@Override
+			public String next(RandomSource random) {
+				int length = random.nextInt(minLength, maxLength);
+				StringBuilder sb = new StringBuilder(length);
+				for (int i = 0; i < length; i++) {
+					sb.append(alphabet.charAt(random.nextInt(0, alphabet.length() - 1)));
+				}
+				return sb.toString();
+			}
+
+			@Override
+			public List<String> shrink(String value) {
+				List<Character> chars = value.chars().mapToObj(c -> (char) c).collect(Collectors.toList());
+				return Shrinking.shrinkList(chars, minLength, characters).stream()
+						.map(candidate -> candidate.stream().map(String::valueOf).collect(Collectors.joining()))
+						.collect(Collectors.toList());
+			}
+		};
+	}
+
+	/**
+	 * Returns a generator for lists with a size between {@code minSize} and {@code maxSize}.
+	 */
+	public static <T> Generator<List<T>> lists(Generator<T> elements, int minSize, int maxSize) {
+		checkRange(minSize, maxSize);
+		checkRange(0, minSize);
+		return new Generator<List<T>>() {
+			@Override
+			public List<T> next(RandomSource random) {
+				int size = random.nextInt(minSize, maxSize);
+				List<T> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(elements.next(random));
+				}
+				return list;
+			}
+
+			@Override
+			public List<List<T>> shrink(List<T> value) {
+				return Shrinking.shrinkList(value, minSize, elements);
+			}
+		};
+	}
+
+	/**
+	 * Returns a generator that picks one of the values. Values are shrunk towards the first value.
+	 */
+	@SafeVarargs
+	public static <T> Generator<T> oneOf(T... values) {
+		if (values.length == 0) {
+			throw new IllegalArgumentException("values must not be empty");
+		}
+		// the values are copied element by element, so the varargs array does not escape
+		List<T> copy = new ArrayList<>(values.length);
+		for (T value : values) {
+			copy.add(value);
+		}
+		List<T> list = Collections.unmodifiableList(copy);
+		return new Generator<T>() {
+			@Override
+			public T next(RandomSource random) {
+				return list.get(random.nextInt(0, list.size() - 1));
+			}
+
+			@Override
+			public List<T> shrink(T value) {
+				int index = list.indexOf(value);
+				return index > 0 ? list.subList(0, index) : Collections.emptyList();
+			}
+		};
+	}
+
+
+	private static void checkRange(long min, long max) {
+		if (min > max) {
+			throw new IllegalArgumentException(String.format("min (%d) must not be greater than max (%d)", min, max));
+		}
+	}
+
+
+	private static long shrinkTarget(long min, long max) {
+		return Math.max(min, Math.min(max, 0));
+	}
+}
@@ -0,0 +1,49 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+import java.util.List;
+
+/**
+ * Generates random {@code int} values without boxing them.
+ */
+public interface IntGenerator {
+
+	int nextInt(RandomSource random);
+
+	/**
+	 * Returns the value failing values are shrunk towards.
+	 */
+	int shrinkTarget();
+
+	/**
+	 * Returns a generator that boxes the generated values, e.g. to generate lists of {@code int} values.
+	 */
+	default Generator<Integer> boxed() {
+		IntGenerator generator = this;
+		return new Generator<Integer>() {
+			@Override
+			public Integer next(RandomSource random) {
+				return generator.nextInt(random);
+			}
+
+			@Override
+			public List<Integer> shrink(Integer value) {
+				return Shrinking.shrinkLong(value, generator.shrinkTarget(), v -> (int) v);
+			}
+		};
+	}
+}
@@ -0,0 +1,44 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+/**
+ * Checks a property against {@code int} values. Values are only boxed to shrink a failing input.
+ */
+public class IntPropertyCheck extends AbstractPropertyCheck<IntPropertyCheck> {
+
+	private final IntGenerator generator;
+
+	public IntPropertyCheck(IntGenerator generator) {
+		this.generator = generator;
+	}
+
+	/**
+	 * Checks the property and fails with the smallest failing input that could be found.
+	 */
+	public void check(IntProperty property) {
+		this.verify(random -> passes(property, generator.nextInt(random)), generator.boxed(), property::check);
+	}
+
+	private static boolean passes(IntProperty property, int value) {
+		try {
+			property.check(value);
+			return true;
+		} catch (Exception | AssertionError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+/**
+ * A property that has to hold for every generated value. The property fails if it throws an exception
+ * or an {@link AssertionError}, e.g. using {@code expect()}.
+ * @param <T> The type of the values
+ */
+@FunctionalInterface
+public interface Property<T> {
+
+	void check(T value) throws Exception;
+
+}
@@ -0,0 +1,36 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+/**
+ * Checks a property against values of a generator.
+ * @param <T> type of the generated values
+ */
+public class PropertyCheck<T> extends AbstractPropertyCheck<PropertyCheck<T>> {
+
+	private final Generator<T> generator;
+
+	public PropertyCheck(Generator<T> generator) {
+		this.generator = generator;
+	}
+
+	/**
+	 * Checks the property and fails with the smallest failing input that could be found.
+	 */
+	public void check(Property<T> property) {
+		this.verify(random -> failureOf(property, generator.next(random)) == null, generator, property);
+	}
+}
@@ -0,0 +1,60 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+/**
+ * {@code PropertyChecks} is the entry point for property-based specs.
+ * <p>A property is checked against a number of random inputs. If it fails, the failing input is shrunk to a
+ * simpler one that still fails and the spec fails with an {@code AssertionError} that contains the input
+ * and the seed that reproduces it:
+ * <pre>
+ *     it("reverses lists", () -&gt; {
+ *         forAll(lists(ints().boxed(), 0, 20)).check(list -&gt; {
+ *             expect(reverse(reverse(list))).toEqual(list);
+ *         });
+ *     });
+ * </pre>
+ * <p>Trials are run on several threads by default. Properties that use state bound to the thread of the spec
+ * should be checked with {@code withParallelism(1)}.
+ */
+public class PropertyChecks {
+
+	private PropertyChecks() {
+		// no instance needed
+	}
+
+	public static <T> PropertyCheck<T> forAll(Generator<T> generator) {
+		return new PropertyCheck<>(generator);
+	}
+
+	public static IntPropertyCheck forAll(IntGenerator generator) {
+		return new IntPropertyCheck(generator);
+	}
+
+	/**
+	 * Checks the property with the default number of trials, seed and parallelism.
+	 */
+	public static <T> void forAll(Generator<T> generator, Property<T> property) {
+		forAll(generator).check(property);
+	}
+
+	/**
+	 * Checks the property with the default number of trials, seed and parallelism.
+	 */
+	public static void forAll(IntGenerator generator, IntProperty property) {
+		forAll(generator).check(property);
+	}
+}
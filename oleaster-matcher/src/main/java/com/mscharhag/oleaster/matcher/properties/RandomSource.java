@@ -0,0 +1,101 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+/**
+ * A fast, mutable source of pseudo random numbers for generators (SplitMix64).
+ * <p>Every trial of a property resets the source of its worker thread to the seed of the trial, so generating
+ * primitive values does not allocate and the values of a trial do not depend on the thread that runs it.
+ * A RandomSource must not be shared between threads.
+ */
+public final class RandomSource {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long state;
+
+	public RandomSource(long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * Returns the seed of the trial with the given index for a property checked with {@code seed}.
+	 */
+	static long trialSeed(long seed, long trial) {
+		return mix(seed + trial * GOLDEN_GAMMA);
+	}
+
+	void reset(long seed) {
+		this.state = seed;
+	}
+
+	public long nextLong() {
+		return mix(this.state += GOLDEN_GAMMA);
+	}
+
+	public int nextInt() {
+		return (int) (this.nextLong() >>> 32);
+	}
+
+	/**
+	 * Returns a value between {@code min} and {@code max} (both inclusive).
+	 */
+	public int nextInt(int min, int max) {
+		return (int) this.nextLong(min, max);
+	}
+
+	/**
+	 * Returns a value between {@code min} and {@code max} (both inclusive).
+	 */
+	public long nextLong(long min, long max) {
+		if (min > max) {
+			throw new IllegalArgumentException(String.format("min (%d) must not be greater than max (%d)", min, max));
+		}
+		long range = max - min + 1;
+		if (range <= 0) {
+			// the range exceeds the long range, draw until the value is within the bounds
+			long value;
+			do {
+				value = this.nextLong();
+			} while (value < min || value > max);
+			return value;
+		}
+		long bits;
+		long value;
+		do {
+			bits = this.nextLong() >>> 1;
+			value = bits % range;
+		} while (bits - value + (range - 1) < 0);
+		return min + value;
+	}
+
+	/**
+	 * Returns a value between 0.0 (inclusive) and 1.0 (exclusive).
+	 */
+	public double nextDouble() {
+		return (this.nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	public boolean nextBoolean() {
+		return this.nextLong() < 0;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Creates simpler candidates for failing values.
+ */
+class Shrinking {
+
+	private static final int MAX_SHRUNK_ELEMENTS = 32;
+
+	private Shrinking() {
+
+	}
+
+	/**
+	 * Returns the target followed by values that get closer to the value, by halving the distance to the value.
+	 */
+	static <T> List<T> shrinkLong(long value, long target, LongFunction<T> box) {
+		if (value == target) {
+			return Collections.emptyList();
+		}
+		List<T> candidates = new ArrayList<>();
+		candidates.add(box.apply(target));
+		long distance = (value - target) / 2;
+		while (distance != 0) {
+			candidates.add(box.apply(value - distance));
+			distance /= 2;
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns shorter lists first (removing halves, quarters, ... from the start and the end), followed by lists
+	 * in which a single element has been replaced by a simpler element.
+	 */
+	static <T> List<List<T>> shrinkList(List<T> value, int minSize, Generator<T> elements) {
+		List<List<T>> shorter = new ArrayList<>();
+		for (int removed = value.size() - minSize; removed > 0; removed /= 2) {
+			shorter.add(value.subList(removed, value.size()));
+			shorter.add(value.subList(0, value.size() - removed));
+		}
+		List<Integer> indexes = new ArrayList<>();
+		List<T> replacements = new ArrayList<>();
+		for (int i = 0; i < Math.min(value.size(), MAX_SHRUNK_ELEMENTS); i++) {
+			for (T simplerElement : elements.shrink(value.get(i))) {
+				indexes.add(i);
+				replacements.add(simplerElement);
+			}
+		}
+		// lists with a replaced element are only copied when the candidate is tried
+		return new AbstractList<List<T>>() {
+			@Override
+			public List<T> get(int index) {
+				if (index < shorter.size()) {
+					return shorter.get(index);
+				}
+				List<T> candidate = new ArrayList<>(value);
+				candidate.set(indexes.get(index - shorter.size()), replacements.get(index - shorter.size()));
+				return candidate;
+			}
+
+			@Override
+			public int size() {
+				return shorter.size() + indexes.size();
+			}
+		};
+	}
+}
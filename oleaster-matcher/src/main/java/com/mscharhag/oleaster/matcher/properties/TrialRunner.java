@@ -0,0 +1,74 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.matcher.properties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the trials of a property, optionally on several threads.
+ * <p>Workers claim blocks of trials and stop claiming once a trial has failed. The index of the first failing
+ * trial is returned. Because every trial uses its own seed, the result does not depend on the parallelism.
+ */
+class TrialRunner {
+
+	private static final int BLOCK_SIZE = 64;
+
+	interface Trial {
+		/**
+		 * Runs a single trial with a random source that has been reset to the seed of the trial.
+		 */
+		boolean passes(RandomSource random);
+	}
+
+	private TrialRunner() {
+
+	}
+
+	/**
+	 * Returns the index of the first failing trial or -1 if all trials pass.
+	 */
+	static int firstFailure(int trials, long seed, int parallelism, Trial trial) {
+		AtomicInteger nextBlock = new AtomicInteger();
+		AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+		Runnable worker = () -> {
+			RandomSource random = new RandomSource(seed);
+			int start;
+			while ((start = nextBlock.getAndAdd(BLOCK_SIZE)) < trials && start < firstFailure.get()) {
+				int end = Math.min(trials, start + BLOCK_SIZE);
+				for (int i = start; i < end && i < firstFailure.get(); i++) {
+					random.reset(RandomSource.trialSeed(seed, i));
+					if (!trial.passes(random)) {
+						firstFailure.accumulateAndGet(i, Math::min);
+						break;
+					}
+				}
+			}
+		};
+		int workers = Math.max(1, Math.min(parallelism, (trials + BLOCK_SIZE - 1) / BLOCK_SIZE));
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(workers - 1);
+		for (int i = 1; i < workers; i++) {
+			tasks.add(ForkJoinPool.commonPool().submit(worker));
+		}
+		worker.run();
+		tasks.forEach(ForkJoinTask::join);
+		int failure = firstFailure.get();
+		return failure == Integer.MAX_VALUE ? -1 : failure;
+	}
+}
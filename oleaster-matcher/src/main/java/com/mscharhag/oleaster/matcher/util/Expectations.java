@@ -47,4 +47,11 @@ public class Expectations {
 		}
 		throw new AssertionError(message);
 	}
+
+
+	public static void fail(String message, Throwable cause) {
+		AssertionError error = message == null ? new AssertionError() : new AssertionError(message);
+		error.initCause(cause);
+		throw error;
+	}
 }
@@ -0,0 +1,107 @@
+package com.mscharhag.oleaster.matcher.properties;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.matcher.properties.Generators.*;
+import static com.mscharhag.oleaster.matcher.properties.PropertyChecks.forAll;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class PropertyChecksTest {
+
+	private static String failureMessage(Runnable check) {
+		try {
+			check.run();
+		} catch (AssertionError e) {
+			return e.getMessage();
+		}
+		throw new AssertionError("passed code block did not throw an AssertionError");
+	}
+
+{
+	describe("PropertyChecks", () -> {
+
+		it("checks the property for the configured number of trials", () -> {
+			AtomicInteger calls = new AtomicInteger();
+			forAll(ints(0, 10)).withTrials(500).check(value -> {
+				calls.incrementAndGet();
+				expect(value).toBeBetween(0, 10);
+			});
+			expect(calls.get()).toEqual(500);
+		});
+
+		it("shrinks a failing int to the smallest failing value", () -> {
+			String message = failureMessage(() -> forAll(ints(0, 1000)).withSeed(42).check(value -> {
+				expect(value < 50).toBeTrue();
+			}));
+			expect(message).toStartWith("Property failed for input 50 (shrunk from ");
+			expect(message).toContain("with seed 42");
+		});
+
+		it("keeps the failure of the property as cause", () -> {
+			AssertionError error = null;
+			try {
+				forAll(booleans(), value -> {
+					throw new IllegalStateException("always fails");
+				});
+			} catch (AssertionError e) {
+				error = e;
+			}
+			expect(error.getCause()).toBeInstanceOf(IllegalStateException.class);
+			expect(error.getMessage()).toStartWith("Property failed for input false");
+			expect(error.getMessage()).toEndWith(": always fails");
+		});
+
+		it("shrinks lists to shorter lists with simpler elements", () -> {
+			String message = failureMessage(() -> forAll(lists(ints(0, 100).boxed(), 0, 20)).withSeed(7).check(list -> {
+				expect(list.stream().allMatch(value -> value <= 90)).toBeTrue();
+			}));
+			expect(message).toStartWith("Property failed for input [91]");
+		});
+
+		it("shrinks strings towards the first character of the alphabet", () -> {
+			String message = failureMessage(() -> forAll(strings("abc", 0, 10)).withSeed(3).check(value -> {
+				expect(value.contains("c")).toBeFalse();
+			}));
+			expect(message).toStartWith("Property failed for input 'c'");
+		});
+
+		it("checks the same inputs for the same seed", () -> {
+			List<Long> first = Collections.synchronizedList(new ArrayList<>());
+			List<Long> second = Collections.synchronizedList(new ArrayList<>());
+			forAll(longs(-100, 100)).withSeed(11).withParallelism(1).check(first::add);
+			forAll(longs(-100, 100)).withSeed(11).withParallelism(1).check(second::add);
+			expect(first).toEqual(second);
+		});
+
+		it("reports the same trial in parallel as sequentially", () -> {
+			String sequential = failureMessage(() -> forAll(ints()).withSeed(5).withTrials(5000).withParallelism(1)
+					.check(value -> expect(value % 997 != 0).toBeTrue()));
+			String parallel = failureMessage(() -> forAll(ints()).withSeed(5).withTrials(5000).withParallelism(4)
+					.check(value -> expect(value % 997 != 0).toBeTrue()));
+			expect(parallel).toEqual(sequential);
+		});
+
+		it("runs trials on several threads", () -> {
+			Set<Thread> threads = ConcurrentHashMap.newKeySet();
+			forAll(doubles(0, 1)).withTrials(10000).withParallelism(4).check(value -> {
+				threads.add(Thread.currentThread());
+				expect(value >= 0 && value < 1).toBeTrue();
+			});
+			expect(threads.isEmpty()).toBeFalse();
+		});
+
+		it("generates values of oneOf", () -> {
+			forAll(oneOf("a", "b"), value -> expect(value.equals("a") || value.equals("b")).toBeTrue());
+		});
+	});
+}}
@@ -218,49 +218,53 @@ public class OleasterRobolectricRunner extends OleasterRunner {
         return roboSpecs;
     }
 
+    /**
+     * Returns zero, so no timeout is enforced. Timeouts are enforced by running blocks on watched threads,
+     * but specs and handlers have to run on the Robolectric main thread.
+     */
     @Override
-    public void runChild(Spec spec, RunNotifier notifier) {
-        List<Spec> specs = spec.getSuite().getSpecs();
+    long getTimeoutMillis(Invokable block) {
+        return 0;
+    }
 
+    /**
+     * Runs the spec inside the Robolectric sandbox.
+     * Unlike {@link OleasterRunner}, this runner does not provide {@code let} values, Flight Recorder spec events
+     * or captured output to the specs it runs, and does not enforce timeouts (see {@link #getTimeoutMillis(Invokable)}).
+     */
+    @Override
+    public void runChild(Spec spec, RunNotifier notifier) {
         final ClassLoader priorContextClassLoader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(sandbox.getRobolectricClassLoader());
 
-        boolean suiteHasNoSpecs = specs.isEmpty();
-        boolean isFirstSpec = specs.indexOf(spec) == 0;
-        boolean isLastSpec = specs.indexOf(spec) == specs.size() - 1;
-
+        // specs are scheduled from the suite tree, so they are not necessarily the RoboSpecs of getChildren()
+        RoboSpec roboSpec = spec instanceof RoboSpec
+                ? (RoboSpec) spec
+                : new RoboSpec(spec, androidManifest, sandbox.getSdkConfig(), config);
         try {
-            beforeTest(sandbox, spec);
+            beforeTest(sandbox, roboSpec);
         } catch (Throwable throwable) {
             throwable.printStackTrace();
             throw new IllegalArgumentException(throwable.getCause());
         }
 
-        RoboSpec roboSpec = (RoboSpec) spec;
         Thread orig = roboSpec.parallelUniverseInterface.getMainThread();
         roboSpec.parallelUniverseInterface.setMainThread(Thread.currentThread());
 
-        if (suiteHasNoSpecs || isFirstSpec) {
-            runBeforeCallbacks(spec);
-        }
-
         if (spec.getBlock().isPresent()) {
-            runBeforeEachCallbacks(spec);
+            runBeforeCallbacks(spec);
+            runBeforeEachCallbacks(spec, spec);
 
             runLeaf(spec, describeChild(spec), notifier);
-            runAfterEachCallbacks(spec);
+            runAfterEachCallbacks(spec, spec);
         } else {
             notifier.fireTestIgnored(describeChild(spec));
         }
-
-
-        if (suiteHasNoSpecs || isLastSpec) {
-            runAfterCallbacks(spec);
-        }
+        runAfterCallbacks(spec);
 
         roboSpec.parallelUniverseInterface.setMainThread(orig);
-        afterTest(spec);
-        finallyAfterTest(spec);
+        afterTest(roboSpec);
+        finallyAfterTest(roboSpec);
         Thread.currentThread().setContextClassLoader(priorContextClassLoader);
     }
 
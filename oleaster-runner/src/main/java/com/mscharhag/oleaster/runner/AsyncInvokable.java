@@ -0,0 +1,45 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+/**
+ * An AsyncInvokable is a block of code that signals its completion using a {@link Done} handle.
+ * <p>AsyncInvokables can be passed to {@code it()}, {@code beforeEach()} and {@code afterEach()}:
+ * <pre>{@code
+ * it("loads the user", done -> {
+ *     userService.load(42, user -> {
+ *         assertEquals("John", user.getName());
+ *         done.complete();
+ *     });
+ * });
+ * }</pre>
+ * <p>Exceptions thrown by the block fail it as well. When run in parallel mode, Oleaster does not
+ * block a thread while waiting for the block to complete.
+ */
+@FunctionalInterface
+public interface AsyncInvokable extends Invokable {
+
+	void invoke(Done done) throws Exception;
+
+	/**
+	 * Runs the block and waits until it signals its completion.
+	 */
+	@Override
+	default void invoke() throws Exception {
+		AsyncInvokables.await(AsyncInvokables.start(this));
+	}
+
+}
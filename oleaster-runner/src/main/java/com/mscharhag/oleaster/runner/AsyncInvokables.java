@@ -0,0 +1,213 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Starts Invokables without waiting for asynchronous blocks to complete.
+ */
+class AsyncInvokables {
+
+	private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+	private AsyncInvokables() {
+
+	}
+
+	static CompletableFuture<Void> completed() {
+		return COMPLETED;
+	}
+
+	static <T> CompletableFuture<T> failed(Throwable cause) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(cause);
+		return future;
+	}
+
+	/**
+	 * Returns true if the block signals its completion asynchronously.
+	 */
+	static boolean isAsync(Invokable block) {
+		if (block instanceof TimeoutInvokable) {
+			return isAsync(((TimeoutInvokable) block).getBlock());
+		}
+		return block instanceof AsyncInvokable || block instanceof StageInvokable;
+	}
+
+	/**
+	 * Runs the block and returns a future that completes with the block. Synchronous blocks
+	 * are run to completion before this method returns.
+	 */
+	static CompletableFuture<Void> start(Invokable block) {
+		try {
+			if (block instanceof AsyncInvokable) {
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				((AsyncInvokable) block).invoke(new Done() {
+					@Override
+					public void complete() {
+						future.complete(null);
+					}
+
+					@Override
+					public void fail(Throwable cause) {
+						future.completeExceptionally(cause);
+					}
+				});
+				return future;
+			}
+			if (block instanceof StageInvokable) {
+				CompletionStage<?> stage = ((StageInvokable) block).call();
+				if (stage == null) {
+					return failed(new NullPointerException("Block returned null instead of a CompletionStage"));
+				}
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				stage.whenComplete((result, cause) -> {
+					if (cause != null) {
+						future.completeExceptionally(unwrap(cause));
+					} else {
+						future.complete(null);
+					}
+				});
+				return future;
+			}
+			block.invoke();
+			return COMPLETED;
+		} catch (Throwable t) {
+			return failed(t);
+		}
+	}
+
+	/**
+	 * Returns a block of the same kind that runs the given block using the wrapper, e.g. to bind state to
+	 * the thread that starts the block.
+	 */
+	static Invokable wrap(Invokable block, Wrapper wrapper) {
+		if (block instanceof AsyncInvokable) {
+			return (AsyncInvokable) done -> wrapper.call(() -> {
+				((AsyncInvokable) block).invoke(done);
+				return null;
+			});
+		}
+		if (block instanceof StageInvokable) {
+			return (StageInvokable) () -> (CompletionStage<?>) wrapper.call(((StageInvokable) block)::call);
+		}
+		return () -> wrapper.call(() -> {
+			block.invoke();
+			return null;
+		});
+	}
+
+	/**
+	 * Runs the blocks one after another. The returned future fails with the first failing block,
+	 * the remaining blocks are not run.
+	 */
+	static CompletableFuture<Void> startAll(List<Invokable> blocks) {
+		CompletableFuture<Void> future = COMPLETED;
+		for (int i = 0; i < blocks.size(); i++) {
+			Invokable block = blocks.get(i);
+			future = future.isDone() && !future.isCompletedExceptionally()
+					? start(block)
+					: future.thenCompose(result -> start(block));
+		}
+		return future;
+	}
+
+	/**
+	 * Completes the future like a future that completed with the given cause.
+	 */
+	static void complete(CompletableFuture<Void> future, Throwable cause) {
+		if (cause != null) {
+			future.completeExceptionally(unwrap(cause));
+		} else {
+			future.complete(null);
+		}
+	}
+
+	/**
+	 * Runs the step once the future is completed. If the future is not completed yet, the step is run
+	 * by the executor, so steps are not run on the threads that complete asynchronous blocks.
+	 */
+	static CompletableFuture<Void> then(CompletableFuture<Void> future, Supplier<CompletableFuture<Void>> step, Executor executor) {
+		return future.isDone()
+				? future.thenCompose(result -> step.get())
+				: future.thenComposeAsync(result -> step.get(), executor);
+	}
+
+	/**
+	 * Returns the pool of the current worker thread, or an executor that runs tasks on the completing
+	 * thread if the current thread is no worker thread.
+	 */
+	static Executor currentExecutor() {
+		return ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : Runnable::run;
+	}
+
+	/**
+	 * Waits for the future and rethrows the exception it failed with.
+	 */
+	static void await(CompletableFuture<Void> future) throws Exception {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for the future and rethrows unchecked exceptions it failed with.
+	 */
+	static void join(CompletableFuture<Void> future) {
+		try {
+			future.join();
+		} catch (CompletionException e) {
+			Throwable cause = unwrap(e);
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	static Throwable unwrap(Throwable t) {
+		return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+	}
+
+
+	/**
+	 * Runs a part of a block and returns its result.
+	 */
+	interface Wrapper {
+		Object call(Callable<?> callable) throws Exception;
+	}
+}
@@ -0,0 +1,49 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stops an Oleaster test class after a number of failed specs.
+ * <p>Once the number of failures is reached no further specs are started. Specs that are already
+ * running are finished and {@code after} handlers of suites that have been started are still executed.
+ * All specs that have not been started are reported as ignored.
+ * <p>For example:
+ * <pre>
+ * 	{@literal @}Bail
+ * 	{@literal @}RunWith(OleasterRunner.class)
+ * 	 public class BailTest {{
+ *		describe("a suite", () -&gt; { ... });
+ *	}}
+ * </pre>
+ * <p>Bail mode can also be enabled for all test classes using the system property
+ * {@code oleaster.bail=<failures>}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Bail {
+
+	/**
+	 * The number of failed specs after which no further specs are started. Can be overridden with the
+	 * system property {@code oleaster.bail}, a value less than 1 disables bail mode.
+	 */
+	int failures() default 1;
+
+}
@@ -0,0 +1,62 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Forwards all events to the registered listeners, in registration order.
+ */
+class CompositeExecutionListener implements ExecutionListener {
+
+	private final List<ExecutionListener> listeners = new CopyOnWriteArrayList<>();
+	private volatile boolean measuring;
+
+	void add(ExecutionListener listener) {
+		this.listeners.add(listener);
+		this.measuring |= listener.isMeasuring();
+	}
+
+	@Override
+	public void suiteStarted(Suite suite) {
+		this.listeners.forEach(listener -> listener.suiteStarted(suite));
+	}
+
+	@Override
+	public void suiteFinished(Suite suite) {
+		this.listeners.forEach(listener -> listener.suiteFinished(suite));
+	}
+
+	@Override
+	public boolean isMeasuring() {
+		return this.measuring;
+	}
+
+	/**
+	 * Forwards the measurement to the listeners that are measuring.
+	 */
+	@Override
+	public void phaseFinished(PhaseMeasurement measurement) {
+		for (ExecutionListener listener : this.listeners) {
+			if (listener.isMeasuring()) {
+				listener.phaseFinished(measurement);
+			}
+		}
+	}
+}
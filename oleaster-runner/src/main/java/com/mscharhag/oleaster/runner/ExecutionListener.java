@@ -0,0 +1,58 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+/**
+ * An ExecutionListener is notified about the lifecycle of suites while an {@link OleasterRunner} runs.
+ * <p>Listeners are registered using {@link OleasterRunner#addExecutionListener(ExecutionListener)} or
+ * found using the {@link java.util.ServiceLoader} mechanism: add the fully qualified name of the listener class to
+ * {@code META-INF/services/com.mscharhag.oleaster.runner.ExecutionListener}.
+ * <p>Listeners have to be thread safe if suites are executed in parallel.
+ * The suite that represents the test class itself has no description.
+ * <p>Listeners that return {@code true} from {@link #isMeasuring()} receive a {@link PhaseMeasurement} for every
+ * {@code before}, {@code beforeEach}, spec body, {@code afterEach} and {@code after} phase. Phases are only
+ * measured if at least one registered listener is measuring.
+ */
+public interface ExecutionListener {
+
+	/**
+	 * Called when the first spec of a suite is about to run, before the {@code before} handlers of the suite are invoked.
+	 */
+	default void suiteStarted(Suite suite) {
+	}
+
+	/**
+	 * Called when the last spec of a suite has finished, after the {@code after} handlers of the suite were invoked.
+	 */
+	default void suiteFinished(Suite suite) {
+	}
+
+	/**
+	 * Returns true if the listener wants to receive phase measurements.
+	 */
+	default boolean isMeasuring() {
+		return false;
+	}
+
+	/**
+	 * Called when a phase has finished, whether it passed or failed. Only called if {@link #isMeasuring()} returns true.
+	 */
+	default void phaseFinished(PhaseMeasurement measurement) {
+	}
+
+}
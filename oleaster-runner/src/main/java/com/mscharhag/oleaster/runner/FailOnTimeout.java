@@ -0,0 +1,146 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestTimedOutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a statement on a watched thread and fails if it does not complete in time.
+ * <p>Like JUnit's {@code FailOnTimeout}, the calling thread only waits for the statement. If the timeout expires,
+ * the watched thread is interrupted and the statement fails with a {@link TestTimedOutException} that carries
+ * the stack trace of the watched thread at the time of the timeout. The calling thread moves on even if the
+ * statement ignores the interrupt, the watched thread is left to finish on its own.
+ * <p>Timeouts are tracked by the shared {@link TimerWheel}. Watched threads are daemon threads that are reused,
+ * thread-bound state like the Let scope has to be bound by the statement itself.
+ */
+class FailOnTimeout extends Statement {
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	private static final ExecutorService WATCHED_THREADS = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "oleaster-timeout-" + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Statement statement;
+	private final long timeoutMillis;
+
+	FailOnTimeout(Statement statement, long timeoutMillis) {
+		this.statement = statement;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	@Override
+	public void evaluate() throws Throwable {
+		try {
+			this.start().get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Starts the statement on a watched thread. The returned future completes with the statement or fails
+	 * with a {@link TestTimedOutException} once the timeout expires.
+	 */
+	CompletableFuture<Void> start() {
+		Watch watch = new Watch(this.statement, Thread.currentThread().getContextClassLoader());
+		watch.timeout = TimerWheel.shared().schedule(this.timeoutMillis, TimeUnit.MILLISECONDS, () -> watch.expire(this.timeoutMillis));
+		WATCHED_THREADS.execute(watch);
+		return watch.result;
+	}
+
+
+	private static class Watch implements Runnable {
+
+		private final CompletableFuture<Void> result = new CompletableFuture<>();
+		private final Statement statement;
+		private final ClassLoader contextClassLoader;
+		private volatile TimerWheel.Entry timeout;
+		private Thread thread;
+		private boolean finished;
+
+		Watch(Statement statement, ClassLoader contextClassLoader) {
+			this.statement = statement;
+			this.contextClassLoader = contextClassLoader;
+		}
+
+		@Override
+		public void run() {
+			Thread currentThread = Thread.currentThread();
+			ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+			if (!this.begin(currentThread)) {
+				return;
+			}
+			currentThread.setContextClassLoader(this.contextClassLoader);
+			Throwable failure = null;
+			try {
+				this.statement.evaluate();
+			} catch (Throwable t) {
+				failure = t;
+			} finally {
+				currentThread.setContextClassLoader(previousClassLoader);
+			}
+			this.finish(failure);
+		}
+
+		private synchronized boolean begin(Thread thread) {
+			if (this.finished) {
+				return false;
+			}
+			this.thread = thread;
+			return true;
+		}
+
+		/**
+		 * Completes the result with the statement unless the timeout expired before. The timeout is cancelled and
+		 * an interrupt caused by the timeout is cleared, so the thread can be reused.
+		 */
+		private synchronized void finish(Throwable failure) {
+			if (!this.finished) {
+				this.finished = true;
+				this.timeout.cancel();
+				AsyncInvokables.complete(this.result, failure);
+			}
+			this.thread = null;
+			Thread.interrupted();
+		}
+
+		/**
+		 * Fails the result with the stack trace of the watched thread and interrupts it.
+		 */
+		private synchronized void expire(long timeoutMillis) {
+			if (this.finished) {
+				return;
+			}
+			this.finished = true;
+			TestTimedOutException timedOut = new TestTimedOutException(timeoutMillis, TimeUnit.MILLISECONDS);
+			if (this.thread != null) {
+				timedOut.setStackTrace(this.thread.getStackTrace());
+				this.thread.interrupt();
+			}
+			this.result.completeExceptionally(timedOut);
+		}
+	}
+}
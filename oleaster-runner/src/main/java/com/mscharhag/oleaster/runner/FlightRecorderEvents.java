@@ -0,0 +1,171 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Custom JDK Flight Recorder events for suites, specs and handlers.
+ * <p>The event types are created at runtime using {@code jdk.jfr.EventFactory}, so Oleaster does not depend on
+ * JFR at compile time and runs unchanged on JVMs without JFR. If JFR is not available, or an event type
+ * is not enabled in a running recording, {@link EventType#begin()} returns {@code null} and no event is created.
+ * <p>Events are disabled on Java 8. The JFR backport of Java 8 does not reliably map the values of dynamically
+ * created events to their fields once the event classes have been instrumented for a second recording.
+ * <p>All events belong to the category "Oleaster" and carry the name of the test class:
+ * <ul>
+ *     <li>{@code oleaster.Suite}: from opening to closing a suite, with the full description of the suite</li>
+ *     <li>{@code oleaster.Spec}: a spec including its {@code beforeEach} and {@code afterEach} handlers</li>
+ *     <li>{@code oleaster.Hook}: a single {@code before}, {@code beforeEach}, {@code afterEach} or {@code after}
+ *     handler, with the suite that declares it, the spec it runs for and its position in the phase</li>
+ * </ul>
+ */
+final class FlightRecorderEvents {
+
+	static final EventType SUITE = EventType.create("oleaster.Suite", "Suite", "A suite from its before to its after handlers",
+			"testClass", "suite");
+	static final EventType SPEC = EventType.create("oleaster.Spec", "Spec", "A spec with its beforeEach and afterEach handlers",
+			"testClass", "spec");
+	static final EventType HOOK = EventType.create("oleaster.Hook", "Hook", "A single before, beforeEach, afterEach or after handler",
+			"testClass", "suite", "spec", "phase", "index");
+
+	private FlightRecorderEvents() {
+
+	}
+
+
+	/**
+	 * A dynamically created event type. All fields are strings, except {@code index} which is an int.
+	 */
+	static final class EventType {
+
+		private static final EventType UNAVAILABLE = new EventType(null, null, null, null, null, null);
+
+		private final MethodHandle newEvent;
+		private final MethodHandle isEnabled;
+		private final MethodHandle begin;
+		private final MethodHandle commit;
+		private final MethodHandle set;
+		private final Object probe;
+
+		private EventType(MethodHandle newEvent, MethodHandle isEnabled, MethodHandle begin, MethodHandle commit,
+				MethodHandle set, Object probe) {
+			this.newEvent = newEvent;
+			this.isEnabled = isEnabled;
+			this.begin = begin;
+			this.commit = commit;
+			this.set = set;
+			this.probe = probe;
+		}
+
+		private static EventType create(String name, String label, String description, String... fields) {
+			if (System.getProperty("java.specification.version", "").startsWith("1.")) {
+				return UNAVAILABLE;
+			}
+			try {
+				ClassLoader loader = ClassLoader.getSystemClassLoader();
+				Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", true, loader);
+				Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor", true, loader);
+				Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", true, loader);
+				Class<?> eventClass = Class.forName("jdk.jfr.Event", true, loader);
+				Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+				Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class);
+
+				List<Object> annotations = Arrays.asList(
+						annotationElement.newInstance(Class.forName("jdk.jfr.Name", true, loader), name),
+						annotationElement.newInstance(Class.forName("jdk.jfr.Label", true, loader), label),
+						annotationElement.newInstance(Class.forName("jdk.jfr.Description", true, loader), description),
+						annotationElement.newInstance(Class.forName("jdk.jfr.Category", true, loader), new String[] {"Oleaster"}));
+				List<Object> values = new ArrayList<>();
+				for (String field : fields) {
+					values.add(valueDescriptor.newInstance("index".equals(field) ? int.class : String.class, field));
+				}
+				Object factory = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, values);
+
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				MethodHandle newEvent = lookup.findVirtual(eventFactoryClass, "newEvent", MethodType.methodType(eventClass)).bindTo(factory);
+				MethodHandle isEnabled = lookup.findVirtual(eventClass, "isEnabled", MethodType.methodType(boolean.class));
+				MethodHandle begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+				MethodHandle commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+				MethodHandle set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class));
+				return new EventType(newEvent, isEnabled, begin, commit, set, newEvent.invoke());
+			} catch (Throwable t) {
+				// JFR is not available, no events are emitted
+				return UNAVAILABLE;
+			}
+		}
+
+		/**
+		 * Returns true if JFR is available, whether or not it is recording.
+		 */
+		boolean isAvailable() {
+			return this.probe != null;
+		}
+
+		/**
+		 * Returns true if the event type is enabled in a running recording.
+		 */
+		boolean isEnabled() {
+			if (this.probe == null) {
+				return false;
+			}
+			try {
+				return (boolean) this.isEnabled.invoke(this.probe);
+			} catch (Throwable t) {
+				return false;
+			}
+		}
+
+		/**
+		 * Creates an event and starts its timing, or returns {@code null} if the event type is not enabled.
+		 */
+		Object begin() {
+			if (!this.isEnabled()) {
+				return null;
+			}
+			try {
+				Object event = this.newEvent.invoke();
+				this.begin.invoke(event);
+				return event;
+			} catch (Throwable t) {
+				return null;
+			}
+		}
+
+		/**
+		 * Sets the fields of an event returned by {@link #begin()} in declaration order and commits it.
+		 * Does nothing if the event is {@code null}.
+		 */
+		void commit(Object event, Object... values) {
+			if (event == null) {
+				return;
+			}
+			try {
+				for (int i = 0; i < values.length; i++) {
+					this.set.invoke(event, i, values[i]);
+				}
+				this.commit.invoke(event);
+			} catch (Throwable t) {
+				// a lost event must not affect the test run
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports suites as {@code oleaster.Suite} flight recorder events (see {@link FlightRecorderEvents}).
+ * Only suites that are started while the event is enabled are reported.
+ */
+class FlightRecorderListener implements ExecutionListener {
+
+	private final String testClassName;
+	private final Map<Suite, Object> events = new ConcurrentHashMap<>();
+
+	FlightRecorderListener(String testClassName) {
+		this.testClassName = testClassName;
+	}
+
+	@Override
+	public void suiteStarted(Suite suite) {
+		Object event = FlightRecorderEvents.SUITE.begin();
+		if (event != null) {
+			this.events.put(suite, event);
+		}
+	}
+
+	@Override
+	public void suiteFinished(Suite suite) {
+		Object event = this.events.remove(suite);
+		if (event != null) {
+			String description = suite.getFullDescription();
+			FlightRecorderEvents.SUITE.commit(event, this.testClassName, description != null ? description : "");
+		}
+	}
+}
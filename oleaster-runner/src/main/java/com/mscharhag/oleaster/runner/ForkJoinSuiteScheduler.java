@@ -0,0 +1,149 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Runs sibling suites concurrently on a {@link ForkJoinPool}.
+ * <p>The specs of a suite are run one after another. Once they are finished the child suites
+ * of the suite are started.
+ * <p>Workers never wait for asynchronous specs. The next spec of a suite is started as a new task once
+ * the previous spec is completed, so a small number of workers can keep many asynchronous specs in flight.
+ * <p>Child suites are started longest first, based on their estimated duration. Suites with
+ * equal estimates are started in declaration order.
+ * <p>Suites and specs with conflicting {@link ResourceLock}s are not run at the same time.
+ */
+class ForkJoinSuiteScheduler implements SuiteScheduler {
+
+	private final int parallelism;
+	private final ToLongFunction<Suite> estimatedDuration;
+
+	ForkJoinSuiteScheduler(int parallelism) {
+		this(parallelism, suite -> 0L);
+	}
+
+	ForkJoinSuiteScheduler(int parallelism, ToLongFunction<Suite> estimatedDuration) {
+		this.parallelism = parallelism;
+		this.estimatedDuration = estimatedDuration;
+	}
+
+	@Override
+	public void run(Suite suite, Function<Spec, CompletableFuture<Void>> specRunner, BooleanSupplier cancelled) {
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism, p -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setName("oleaster-worker-" + thread.getPoolIndex());
+			thread.setContextClassLoader(contextClassLoader);
+			return thread;
+		}, null, false);
+		try {
+			Run run = new Run(pool, new StripedResourceLocks(), specRunner, cancelled);
+			CompletableFuture<Void> completion = new CompletableFuture<>();
+			pool.execute(() -> run.runSuite(suite).whenComplete((result, cause) -> AsyncInvokables.complete(completion, cause)));
+			AsyncInvokables.join(completion);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+
+	private class Run {
+
+		private final ForkJoinPool pool;
+		private final StripedResourceLocks locks;
+		private final Function<Spec, CompletableFuture<Void>> specRunner;
+		private final BooleanSupplier cancelled;
+
+		Run(ForkJoinPool pool, StripedResourceLocks locks, Function<Spec, CompletableFuture<Void>> specRunner, BooleanSupplier cancelled) {
+			this.pool = pool;
+			this.locks = locks;
+			this.specRunner = specRunner;
+			this.cancelled = cancelled;
+		}
+
+		CompletableFuture<Void> runSuite(Suite suite) {
+			return this.locks.run(suite, () -> this.runSpecsAndChildSuites(suite), this.pool);
+		}
+
+		private CompletableFuture<Void> runSpecsAndChildSuites(Suite suite) {
+			CompletableFuture<Void> future = AsyncInvokables.completed();
+			for (Spec spec : suite.getSpecs()) {
+				future = this.then(future, () -> this.runSpec(spec));
+			}
+			return this.then(future, () -> this.runChildSuites(suite));
+		}
+
+		private CompletableFuture<Void> runSpec(Spec spec) {
+			return this.locks.run(spec, () -> {
+				try {
+					return this.specRunner.apply(spec);
+				} catch (Throwable t) {
+					return AsyncInvokables.failed(t);
+				}
+			}, this.pool);
+		}
+
+		private CompletableFuture<Void> runChildSuites(Suite suite) {
+			List<Suite> children = suite.getSuites().stream()
+					.sorted(Comparator.comparingLong(estimatedDuration).reversed())
+					.collect(Collectors.toList());
+			if (children.isEmpty()) {
+				return AsyncInvokables.completed();
+			}
+
+			// idle workers steal the oldest forked task, so the longest suites are forked first
+			// while this worker runs the longest suite itself
+			CompletableFuture<?>[] futures = new CompletableFuture<?>[children.size()];
+			for (int i = 1; i < children.size(); i++) {
+				Suite child = children.get(i);
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				this.fork(() -> this.runSuite(child).whenComplete((result, cause) -> AsyncInvokables.complete(future, cause)));
+				futures[i] = future;
+			}
+			futures[0] = this.runSuite(children.get(0));
+			return CompletableFuture.allOf(futures);
+		}
+
+		/**
+		 * Continues with the next step once the future is completed. Steps of cancelled runs are skipped.
+		 */
+		private CompletableFuture<Void> then(CompletableFuture<Void> future, Supplier<CompletableFuture<Void>> step) {
+			return AsyncInvokables.then(future, () -> this.cancelled.getAsBoolean() ? AsyncInvokables.completed() : step.get(), this.pool);
+		}
+
+		private void fork(Runnable task) {
+			if (ForkJoinTask.inForkJoinPool()) {
+				ForkJoinTask.adapt(task).fork();
+			} else {
+				this.pool.execute(task);
+			}
+		}
+	}
+}
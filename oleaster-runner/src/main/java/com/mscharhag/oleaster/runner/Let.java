@@ -0,0 +1,99 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * A lazily created, memoized value for the specs of a suite.
+ * <p>The value is created on the first call of {@link #get()} within a spec, its {@code beforeEach} or
+ * {@code afterEach} handlers and then returned for the rest of the spec. Every spec gets its own value,
+ * specs that do not use the value never create it.
+ * <p>Nested suites can override a value by defining a {@code let()} with the same name. Handlers and specs of the
+ * outer suite then get the overriding value when they run for a spec of the nested suite. Values that have a
+ * closer are closed after the {@code afterEach} handlers of the spec, in reverse order of their creation.
+ * <p>For example:
+ * <pre>
+ *	describe("a repository", () -&gt; {
+ *		Let&lt;Connection&gt; connection = let("connection", () -&gt; openConnection(), Connection::close);
+ *		it("finds users", () -&gt; {
+ *			assertNotNull(new Repository(connection.get()).findUser("john"));
+ *		});
+ *	});
+ * </pre>
+ * @param <T> The type of the value
+ */
+public final class Let<T> {
+
+	private final String name;
+	private final Callable<T> factory;
+	private final Optional<Closer<? super T>> closer;
+
+	public Let(String name, Callable<T> factory) {
+		this(name, factory, Optional.empty());
+	}
+
+	public Let(String name, Callable<T> factory, Closer<? super T> closer) {
+		this(name, factory, Optional.of(closer));
+	}
+
+	private Let(String name, Callable<T> factory, Optional<Closer<? super T>> closer) {
+		this.name = name;
+		this.factory = factory;
+		this.closer = closer;
+	}
+
+	/**
+	 * Returns the value for the running spec, creating it on first access.
+	 * @throws IllegalStateException if no spec is running on the current thread or the value is not
+	 * defined for the suite of the running spec
+	 */
+	public T get() {
+		return LetScope.current().get(this);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	T create() throws Exception {
+		return this.factory.call();
+	}
+
+	boolean isClosable() {
+		return this.closer.isPresent();
+	}
+
+	@SuppressWarnings("unchecked")
+	void close(Object value) throws Exception {
+		if (this.closer.isPresent()) {
+			this.closer.get().close((T) value);
+		}
+	}
+
+
+	/**
+	 * Releases a value once it is not used anymore, e.g. once the spec that used it is finished.
+	 * @param <T> The type of the value
+	 */
+	@FunctionalInterface
+	public interface Closer<T> {
+
+		void close(T value) throws Exception;
+
+	}
+}
@@ -0,0 +1,184 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Suite;
+import org.junit.runners.model.Statement;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Holds the {@link Let} values of a running spec.
+ * <p>The scope is bound to the thread that runs the spec or one of its handlers. Asynchronous blocks and
+ * statements that run on watched threads are bound using {@link #bind(Invokable)} and {@link #bind(Statement)},
+ * so values can be accessed from the thread that runs them.
+ */
+class LetScope {
+
+	private static final ThreadLocal<LetScope> CURRENT = new ThreadLocal<>();
+
+	private final Suite suite;
+	// created on first access, most specs do not use Let values
+	private Map<String, Object> values;
+	private Deque<Closable> closables;
+
+	LetScope(Suite suite) {
+		this.suite = suite;
+	}
+
+	static LetScope current() {
+		LetScope scope = CURRENT.get();
+		if (scope == null) {
+			throw new IllegalStateException("Let values can only be accessed while a spec or its beforeEach/afterEach handlers are running");
+		}
+		return scope;
+	}
+
+	/**
+	 * Returns the value of the {@code let()} with the name of the given Let that is closest to the suite of the spec.
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized <T> T get(Let<T> let) {
+		if (this.values == null) {
+			this.values = new HashMap<>();
+			this.closables = new ArrayDeque<>();
+		}
+		if (this.values.containsKey(let.getName())) {
+			return (T) this.values.get(let.getName());
+		}
+		Let<?> definition = this.find(let.getName());
+		Object value;
+		try {
+			value = definition.create();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(String.format("Let '%s' could not be created: %s", let.getName(), e.getMessage()), e);
+		}
+		this.values.put(let.getName(), value);
+		if (definition.isClosable()) {
+			this.closables.push(new Closable(definition, value));
+		}
+		return (T) value;
+	}
+
+	private Let<?> find(String name) {
+		for (Suite s = this.suite; s != null; s = s.getParent()) {
+			for (Let<?> let : s.getLets()) {
+				if (let.getName().equals(name)) {
+					return let;
+				}
+			}
+		}
+		throw new IllegalStateException(String.format("Let '%s' is not defined for suite '%s'", name, this.suite.getFullDescription()));
+	}
+
+	/**
+	 * Binds this scope to the current thread and returns the previously bound scope.
+	 */
+	LetScope enter() {
+		LetScope previous = CURRENT.get();
+		CURRENT.set(this);
+		return previous;
+	}
+
+	static void exit(LetScope previous) {
+		if (previous != null) {
+			CURRENT.set(previous);
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Returns a block of the same kind that runs the given block with this scope bound to the current thread.
+	 */
+	Invokable bind(Invokable block) {
+		return AsyncInvokables.wrap(block, this::call);
+	}
+
+	/**
+	 * Returns a statement that is evaluated with this scope bound to the current thread.
+	 */
+	Statement bind(Statement statement) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				LetScope previous = enter();
+				try {
+					statement.evaluate();
+				} finally {
+					exit(previous);
+				}
+			}
+		};
+	}
+
+	private <T> T call(Callable<T> callable) throws Exception {
+		LetScope previous = this.enter();
+		try {
+			return callable.call();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	/**
+	 * Closes all values that have a closer in reverse order of their creation. All values are closed,
+	 * the first failure is thrown with the other failures added as suppressed exceptions.
+	 */
+	synchronized void close() {
+		if (this.values == null) {
+			return;
+		}
+		RuntimeException failure = null;
+		while (!this.closables.isEmpty()) {
+			Closable closable = this.closables.pop();
+			try {
+				closable.let.close(closable.value);
+			} catch (Exception e) {
+				RuntimeException closeFailure = new RuntimeException(
+						String.format("Let '%s' could not be closed: %s", closable.let.getName(), e.getMessage()), e);
+				if (failure == null) {
+					failure = closeFailure;
+				} else {
+					failure.addSuppressed(closeFailure);
+				}
+			}
+		}
+		this.values = null;
+		this.closables = null;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+
+	private static class Closable {
+
+		private final Let<?> let;
+		private final Object value;
+
+		Closable(Let<?> let, Object value) {
+			this.let = let;
+			this.value = value;
+		}
+	}
+}
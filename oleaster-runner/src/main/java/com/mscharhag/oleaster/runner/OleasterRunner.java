@@ -15,21 +15,51 @@
 */
 package com.mscharhag.oleaster.runner;
 
+import com.mscharhag.oleaster.runner.PhaseMeasurement.Phase;
+import com.mscharhag.oleaster.runner.RunnerConfiguration.FailedSpecMode;
+import com.mscharhag.oleaster.runner.TestInstancePool.TestInstance;
+import com.mscharhag.oleaster.runner.suite.ExecutionPlan;
+import com.mscharhag.oleaster.runner.suite.HandlerChain;
 import com.mscharhag.oleaster.runner.suite.Spec;
 import com.mscharhag.oleaster.runner.suite.Suite;
 import com.mscharhag.oleaster.runner.suite.SuiteBuilder;
 import com.mscharhag.oleaster.runner.suite.SuiteDefinition;
 import com.mscharhag.oleaster.runner.suite.SuiteDefinitionEvaluator;
 
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.internal.runners.model.EachTestNotifier;
 import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.ParentRunner;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.MultipleFailureException;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestTimedOutException;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
 /**
  * OleasterRunner is JUnit runner that lets you write JUnit tests
@@ -45,58 +75,745 @@ import java.util.function.Function;
  *		});
  *	}}
  * </pre>
+ * <p>Suites can be executed in parallel, sharded, timed out and reported in several ways. These features are
+ * enabled with annotations of the test class like {@link Parallel}, {@link Bail} and {@link Timeout} or with
+ * {@code oleaster.*} system properties.
  */
 public class OleasterRunner extends ParentRunner<Spec> {
 
+	private final RunnerConfiguration configuration;
+	private final CompositeExecutionListener executionListener = new CompositeExecutionListener();
+	private ExecutionPlan executionPlan;
+	private Set<Spec> filteredSpecs;
+	private Predicate<Suite> suiteFilter = suite -> true;
+	private Optional<SpecHistory> history = Optional.empty();
+	private Optional<SpecInstrumentation> instrumentation = Optional.empty();
+	private Optional<StreamingReporter> reporter = Optional.empty();
+	private Optional<SpecProfiler> profiler = Optional.empty();
+	// hands the binding of a spec over to runChild(Spec, RunNotifier), which subclasses can override
+	private final ThreadLocal<SpecBinding> childBinding = new ThreadLocal<>();
+	private volatile SuiteLifecycle suiteLifecycle = new SuiteLifecycle(this::runSuiteHandlers, this.executionListener);
+
 	public OleasterRunner(Class<?> testClass) throws InitializationError {
 		super(testClass);
+		this.configuration = RunnerConfiguration.of(testClass);
+		ServiceLoader.load(ExecutionListener.class).forEach(this::addExecutionListener);
+		if (FlightRecorderEvents.SUITE.isAvailable()) {
+			this.addExecutionListener(new FlightRecorderListener(this.getName()));
+		}
+		if (this.configuration.getInstrumentationReport().isPresent()) {
+			this.instrumentation = Optional.of(new SpecInstrumentation());
+			this.addExecutionListener(this.instrumentation.get());
+		}
+	}
+
+
+	/**
+	 * Registers a listener that is notified when suites are started and finished.
+	 */
+	public void addExecutionListener(ExecutionListener listener) {
+		this.executionListener.add(listener);
 	}
 
 
 	@Override
 	protected List<Spec> getChildren() {
+		return this.evaluateSuites(suite -> true);
+	}
+
+
+	/**
+	 * Evaluates the suite tree on first use. Child suites rejected by the {@code suiteFilter} are not evaluated.
+	 * <p>If the complete suite tree has been evaluated, the history forgets specs of the test class that no longer exist.
+	 */
+	private List<Spec> evaluateSuites(Predicate<Suite> suiteFilter) {
+		if (this.executionPlan == null) {
+			AtomicBoolean skippedSuites = new AtomicBoolean();
+			this.suiteFilter = suite -> {
+				boolean accepted = suiteFilter.test(suite);
+				if (!accepted) {
+					skippedSuites.set(true);
+				}
+				return accepted;
+			};
+			this.executionPlan = ExecutionPlan.compile(this.evaluateSuiteTree());
+			this.history = this.configuration.getHistoryFile().map(SpecHistory::load);
+			if (this.history.isPresent() && !skippedSuites.get()) {
+				this.history.get().retainOnly(this.getName() + ", ",
+						this.executionPlan.getSpecs().stream().map(this::specPath).collect(Collectors.toSet()));
+			}
+			this.filteredSpecs = Collections.newSetFromMap(new IdentityHashMap<>());
+			Shard shard = this.configuration.getShard();
+			boolean onlyFailed = this.configuration.getFailedSpecMode() == FailedSpecMode.ONLY
+					&& this.history.isPresent() && this.history.get().hasFailures(this.getName() + ", ");
+			for (Spec spec : this.executionPlan.getSpecs()) {
+				String specPath = this.specPath(spec);
+				if ((shard.isAll() || shard.contains(specPath)) && (!onlyFailed || this.history.get().hasFailed(specPath))) {
+					this.filteredSpecs.add(spec);
+				}
+			}
+		}
+		return this.executionPlan.getSpecs();
+	}
+
+
+	/**
+	 * Creates a new instance of the test class and evaluates its suite tree.
+	 */
+	private Suite evaluateSuiteTree() {
 		SuiteBuilder suiteBuilder = this.createSuiteBuilder();
 		SuiteDefinition baseSuiteDefinition = this.createBaseSuiteDefinition(suiteBuilder);
 		SuiteDefinitionEvaluator evaluator = this.createSuiteDefinitionEvaluator();
+		return evaluator.evaluate(baseSuiteDefinition, suiteBuilder, this.suiteFilter);
+	}
+
 
-		Suite suite = evaluator.evaluate(baseSuiteDefinition, suiteBuilder);
+	/**
+	 * Returns a description tree that mirrors the suite tree.
+	 * <p>Every suite that contains specs which have not been filtered out is represented by a suite
+	 * description. Specs are represented by test descriptions.
+	 */
+	@Override
+	public Description getDescription() {
+		Description description = Description.createSuiteDescription(getName(), getRunnerAnnotations());
+		this.getChildren();
+		this.addDescriptions(this.executionPlan.getSuite(), description, new IdentityHashMap<>());
+		return description;
+	}
 
-		return suite.collectSpecs();
+
+	private void addDescriptions(Suite suite, Description description, Map<Suite, Description> suiteDescriptions) {
+		for (Spec spec : suite.getSpecs()) {
+			if (this.filteredSpecs.contains(spec)) {
+				description.addChild(describeChild(spec));
+			}
+		}
+		for (Suite child : suite.getSuites()) {
+			Description childDescription = this.describeSuite(child);
+			this.addDescriptions(child, childDescription, suiteDescriptions);
+			if (!childDescription.getChildren().isEmpty()) {
+				description.addChild(childDescription);
+				suiteDescriptions.put(child, childDescription);
+			}
+		}
+	}
+
+
+	/**
+	 * Applies the filter to the description tree.
+	 * <p>Like nested runners, a suite whose description is rejected by the filter is removed
+	 * including all its specs and child suites.
+	 * <p>If the suite tree has not been evaluated yet, child suites whose description is rejected by the filter
+	 * are not evaluated. The filter only sees the description of the suite then, without specs. Filters that
+	 * select specs usually reject such descriptions, so if no spec remains, the complete suite tree is evaluated
+	 * and filtered again.
+	 */
+	@Override
+	public void filter(Filter filter) throws NoTestsRemainException {
+		boolean evaluated = this.executionPlan != null;
+		this.evaluateSuites(suite -> filter.shouldRun(this.describeSuite(suite)));
+		Set<Spec> remainingSpecs = this.collectRemainingSpecs(filter);
+		if (remainingSpecs.isEmpty() && !evaluated) {
+			this.executionPlan = null;
+			this.evaluateSuites(suite -> true);
+			remainingSpecs = this.collectRemainingSpecs(filter);
+		}
+		if (remainingSpecs.isEmpty()) {
+			throw new NoTestsRemainException();
+		}
+		this.filteredSpecs = remainingSpecs;
+	}
+
+
+	private Set<Spec> collectRemainingSpecs(Filter filter) {
+		Suite suite = this.executionPlan.getSuite();
+		Map<Suite, Description> suiteDescriptions = new IdentityHashMap<>();
+		this.addDescriptions(suite, Description.createSuiteDescription(getName()), suiteDescriptions);
+
+		Set<Spec> remainingSpecs = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.collectRemainingSpecs(suite, filter, suiteDescriptions, remainingSpecs);
+		return remainingSpecs;
+	}
+
+
+	private void collectRemainingSpecs(Suite suite, Filter filter, Map<Suite, Description> suiteDescriptions, Set<Spec> remainingSpecs) {
+		for (Spec spec : suite.getSpecs()) {
+			if (this.filteredSpecs.contains(spec) && filter.shouldRun(describeChild(spec))) {
+				remainingSpecs.add(spec);
+			}
+		}
+		for (Suite child : suite.getSuites()) {
+			Description childDescription = suiteDescriptions.get(child);
+			if (childDescription != null && filter.shouldRun(childDescription)) {
+				this.collectRemainingSpecs(child, filter, suiteDescriptions, remainingSpecs);
+			}
+		}
+	}
+
+
+	@Override
+	protected Statement childrenInvoker(RunNotifier notifier) {
+		return new Statement() {
+			@Override
+			public void evaluate() {
+				runSuites(notifier);
+			}
+		};
+	}
+
+
+	private void runSuites(RunNotifier notifier) {
+		this.getChildren();
+		Set<Spec> specsToRun = this.filteredSpecs;
+		this.reporter = this.openReporter();
+		this.profiler = this.configuration.getProfileReport().map(file -> new SpecProfiler(
+				this.configuration.getProfileThresholdMillis(), this.configuration.getProfileIntervalMillis()));
+		CompositeExecutionListener listener = new CompositeExecutionListener();
+		listener.add(this.executionListener);
+		this.reporter.ifPresent(listener::add);
+		this.suiteLifecycle = new SuiteLifecycle(this::runSuiteHandlers, listener, specsToRun);
+		SuiteScheduler scheduler = this.createSuiteScheduler(specsToRun);
+		Set<Spec> previouslyFailedSpecs = this.getPreviouslyFailedSpecs(specsToRun);
+		Set<Spec> startedSpecs = ConcurrentHashMap.newKeySet();
+		Optional<TestInstancePool> instances = this.configuration.isIsolated()
+				? Optional.of(new TestInstancePool(this::evaluateSuiteTree))
+				: Optional.empty();
+		FailureCollector failures = new FailureCollector(this.getName());
+		BooleanSupplier bailed = () -> this.configuration.isBail()
+				&& failures.getFailureCount() >= this.configuration.getBailThreshold();
+		notifier.addListener(failures);
+		this.reporter.ifPresent(notifier::addListener);
+		if (this.configuration.isCaptureOutput()) {
+			OutputCapture.install();
+		}
+
+		try {
+			if (!previouslyFailedSpecs.isEmpty()) {
+				scheduler.run(this.executionPlan.getSuite(), spec -> previouslyFailedSpecs.contains(spec)
+						? this.runAndRecord(spec, instances, notifier, failures, startedSpecs)
+						: AsyncInvokables.completed(), bailed);
+			}
+			scheduler.run(this.executionPlan.getSuite(), spec -> specsToRun.contains(spec) && !previouslyFailedSpecs.contains(spec)
+					? this.runAndRecord(spec, instances, notifier, failures, startedSpecs)
+					: AsyncInvokables.completed(), bailed);
+			if (bailed.getAsBoolean()) {
+				this.skipRemainingSpecs(specsToRun, startedSpecs, notifier);
+			}
+		} finally {
+			if (this.configuration.isCaptureOutput()) {
+				OutputCapture.uninstall();
+			}
+			notifier.removeListener(failures);
+			this.reporter.ifPresent(notifier::removeListener);
+			this.reporter.ifPresent(StreamingReporter::close);
+			this.profiler.ifPresent(p -> this.writeProfileReport(p, this.configuration.getProfileReport().get()));
+			this.history.ifPresent(SpecHistory::save);
+			this.instrumentation.ifPresent(i -> this.writeInstrumentationReport(i, this.configuration.getInstrumentationReport().get()));
+		}
+	}
+
+
+	private Optional<StreamingReporter> openReporter() {
+		if (!this.configuration.getXmlReport().isPresent() && !this.configuration.getJsonReport().isPresent()) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(StreamingReporter.open(this.getName(), this.configuration.getXmlReport(), this.configuration.getJsonReport(),
+					this.configuration.getReportMaxMessageLength(), this.configuration.getReportMaxOutputLength()));
+		} catch (IOException e) {
+			// the run is not affected by reports that can not be written
+			return Optional.empty();
+		}
+	}
+
+
+	private void writeInstrumentationReport(SpecInstrumentation instrumentation, Path file) {
+		try {
+			instrumentation.writeReport(file);
+		} catch (IOException e) {
+			// like the history, the report is only a diagnostic aid and must not fail the run
+		}
+	}
+
+
+	private void writeProfileReport(SpecProfiler profiler, Path file) {
+		profiler.close();
+		try {
+			profiler.writeReport(file);
+		} catch (IOException e) {
+			// like the instrumentation report, profiles must not fail the run
+		}
+	}
+
+
+	private CompletableFuture<Void> runAndRecord(Spec spec, Optional<TestInstancePool> instances, RunNotifier notifier,
+			FailureCollector failures, Set<Spec> startedSpecs) {
+		startedSpecs.add(spec);
+		long start = System.nanoTime();
+		SpecBinding binding = SpecBinding.of(
+				this.configuration.isCaptureOutput() ? new OutputBuffer(this.configuration.getCaptureLimit()) : null,
+				this.profiler.map(p -> p.start(this.specPath(spec))).orElse(null));
+		if (!this.configuration.isParallel()) {
+			this.runChild(spec, notifier, binding);
+			this.record(spec, System.nanoTime() - start, failures, binding);
+			return AsyncInvokables.completed();
+		}
+		CompletableFuture<Void> future = instances.isPresent()
+				? this.runIsolated(spec, instances.get(), notifier, binding)
+				: this.runChildAsync(spec, spec, notifier, binding);
+		return future.whenComplete((result, cause) -> this.record(spec, System.nanoTime() - start, failures, binding));
+	}
+
+
+	/**
+	 * Runs the spec on an instance of the test class that is not used by any other running spec.
+	 * A spec that can not be found on the instance is reported as failed.
+	 */
+	private CompletableFuture<Void> runIsolated(Spec spec, TestInstancePool instances, RunNotifier notifier, SpecBinding binding) {
+		TestInstance instance = null;
+		Spec instanceSpec;
+		try {
+			instance = instances.acquire();
+			instanceSpec = instance.specFor(spec);
+		} catch (RuntimeException e) {
+			if (instance != null) {
+				instances.release(instance);
+			}
+			EachTestNotifier eachNotifier = new EachTestNotifier(notifier, describeChild(spec));
+			eachNotifier.fireTestStarted();
+			eachNotifier.addFailure(e);
+			eachNotifier.fireTestFinished();
+			runAfterCallbacks(spec);
+			return AsyncInvokables.completed();
+		}
+		TestInstance acquiredInstance = instance;
+		return this.runChildAsync(spec, instanceSpec, notifier, binding).whenComplete((result, cause) -> instances.release(acquiredInstance));
+	}
+
+
+	/**
+	 * Records the result of the spec. Captured output of a failed spec is printed and reported, the output of
+	 * passed specs is discarded. The profile of the spec is finished.
+	 */
+	private void record(Spec spec, long duration, FailureCollector failures, SpecBinding binding) {
+		OutputBuffer output = binding != null ? binding.getOutput() : null;
+		if (binding != null && binding.getProfile() != null) {
+			this.profiler.get().finish(binding.getProfile());
+		}
+		Description description = describeChild(spec);
+		boolean failed = failures.hasFailed(description);
+		this.history.ifPresent(h -> h.record(this.specPath(spec), duration, failed));
+		String capturedOutput = null;
+		if (failed && output != null && !output.isEmpty()) {
+			capturedOutput = output.getOutput();
+			PrintStream out = OutputCapture.originalOut();
+			out.print(String.format("Output of %s:%n%s", this.specPath(spec), capturedOutput));
+			if (!capturedOutput.endsWith("\n")) {
+				out.println();
+			}
+			out.flush();
+		}
+		String reportedOutput = capturedOutput;
+		this.reporter.ifPresent(r -> r.specFinished(spec, description, duration, reportedOutput));
+	}
+
+
+	/**
+	 * Reports all specs that have not been started as ignored. Suites that have been started are
+	 * finished once their last spec is skipped, so their after handlers are still run.
+	 */
+	private void skipRemainingSpecs(Set<Spec> specsToRun, Set<Spec> startedSpecs, RunNotifier notifier) {
+		for (Spec spec : this.executionPlan.getSpecs()) {
+			if (specsToRun.contains(spec) && !startedSpecs.contains(spec)) {
+				notifier.fireTestIgnored(describeChild(spec));
+				this.reporter.ifPresent(r -> r.specFinished(spec, describeChild(spec), 0, null));
+				runAfterCallbacks(spec);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the specs that failed in the previous run, if they should be run before all other specs.
+	 * Suites keep their before and after handlers open between both passes, as long as they contain specs to run.
+	 */
+	private Set<Spec> getPreviouslyFailedSpecs(Set<Spec> specsToRun) {
+		Set<Spec> previouslyFailedSpecs = Collections.newSetFromMap(new IdentityHashMap<>());
+		if (this.configuration.getFailedSpecMode() == FailedSpecMode.FIRST && this.history.isPresent()) {
+			for (Spec spec : this.executionPlan.getSpecs()) {
+				if (specsToRun.contains(spec) && this.history.get().hasFailed(this.specPath(spec))) {
+					previouslyFailedSpecs.add(spec);
+				}
+			}
+		}
+		return previouslyFailedSpecs;
+	}
+
+
+	private String specPath(Spec spec) {
+		return this.getName() + ", " + spec.getFullDescription();
+	}
+
+
+	/**
+	 * Sums up the stored durations of all specs to run in every suite and its child suites.
+	 * Specs without a stored duration are counted with zero.
+	 */
+	private long estimateDuration(Suite suite, SpecHistory history, Set<Spec> specsToRun, Map<Suite, Long> estimates) {
+		long duration = 0;
+		for (Spec spec : suite.getSpecs()) {
+			if (specsToRun.contains(spec)) {
+				duration += history.getDuration(this.specPath(spec)).orElse(0);
+			}
+		}
+		for (Suite child : suite.getSuites()) {
+			duration += this.estimateDuration(child, history, specsToRun, estimates);
+		}
+		estimates.put(suite, duration);
+		return duration;
 	}
 
 
 	@Override
 	protected void runChild(Spec spec, RunNotifier notifier) {
-		List<Spec> specs = spec.getSuite().getSpecs();
-		boolean suiteHasNoSpecs = specs.isEmpty();
-		boolean isFirstSpec = specs.indexOf(spec) == 0;
-		boolean isLastSpec = specs.indexOf(spec) == specs.size() -1;
+		this.runChild(spec, spec, notifier, this.childBinding.get());
+	}
+
 
-		if (suiteHasNoSpecs || isFirstSpec){
-			runBeforeCallbacks(spec);
+	/**
+	 * Runs the spec using {@link #runChild(Spec, RunNotifier)} with the binding of the spec on the current thread.
+	 */
+	private void runChild(Spec spec, RunNotifier notifier, SpecBinding binding) {
+		SpecBinding previousBinding = this.childBinding.get();
+		this.childBinding.set(binding);
+		try {
+			this.runChild(spec, notifier);
+		} finally {
+			if (previousBinding != null) {
+				this.childBinding.set(previousBinding);
+			} else {
+				this.childBinding.remove();
+			}
 		}
+	}
+
 
-		if (spec.getBlock().isPresent()) {
-			runBeforeEachCallbacks(spec);
-			runLeaf(spec, describeChild(spec), notifier);
-			runAfterEachCallbacks(spec);
-		} else {
+	/**
+	 * Runs the block and the {@code beforeEach}/{@code afterEach} handlers of {@code instanceSpec} and reports
+	 * them as {@code spec}. In isolated mode {@code instanceSpec} is the same spec of another test instance.
+	 * <p>Failures of the handlers and of closing the Let values fail the spec. The timeout of the spec applies to the block
+	 * and to both handler phases.
+	 */
+	private void runChild(Spec spec, Spec instanceSpec, RunNotifier notifier, SpecBinding binding) {
+		if (instanceSpec.getBlock().isPresent() && this.openSuites(spec, binding, notifier)) {
+			LetScope scope = new LetScope(instanceSpec.getSuite());
+			long timeoutMillis = this.getTimeoutMillis(instanceSpec.getBlock().get());
+			Statement beforeEach = this.measuredHandlers(Phase.BEFORE_EACH, spec, () -> runBeforeEachCallbacks(spec, instanceSpec));
+			Statement afterEach = this.measuredHandlers(Phase.AFTER_EACH, spec, () -> runAfterEachCallbacks(spec, instanceSpec));
+			Object event = FlightRecorderEvents.SPEC.begin();
+			try {
+				runLeaf(SpecBinding.attachOutput(binding, runEach(
+						watched(beforeEach, timeoutMillis, scope, binding),
+						watched(this.measuredBody(spec, instanceSpec), timeoutMillis, scope, binding),
+						watched(afterEach, timeoutMillis, scope, binding), scope)), describeChild(spec), notifier);
+			} finally {
+				this.commitSpecEvent(event, spec);
+			}
+		} else if (!instanceSpec.getBlock().isPresent()) {
 			notifier.fireTestIgnored(describeChild(spec));
 		}
+		SpecBinding.run(binding, () -> runAfterCallbacks(spec));
+	}
 
 
-		if (suiteHasNoSpecs || isLastSpec){
-			runAfterCallbacks(spec);
+	/**
+	 * Opens the suites of the spec. If a {@code before} handler of one of them fails, the spec is reported
+	 * as failed with the failure of the handler and must not be run.
+	 */
+	private boolean openSuites(Spec spec, SpecBinding binding, RunNotifier notifier) {
+		try {
+			SpecBinding.run(binding, () -> runBeforeCallbacks(spec));
+			return true;
+		} catch (RuntimeException | Error e) {
+			EachTestNotifier eachNotifier = new EachTestNotifier(notifier, describeChild(spec));
+			eachNotifier.fireTestStarted();
+			eachNotifier.addFailure(e);
+			eachNotifier.fireTestFinished();
+			return false;
 		}
 	}
 
 
+	/**
+	 * Runs the spec without blocking the calling thread while asynchronous blocks are running.
+	 * <p>Specs without asynchronous blocks are run using {@link #runChild(Spec, RunNotifier)}. For all
+	 * other specs the returned future completes once the spec and its handlers are finished.
+	 */
+	CompletableFuture<Void> runChildAsync(Spec spec, RunNotifier notifier) {
+		if (!this.hasAsyncBlocks(spec)) {
+			runChild(spec, notifier);
+			return AsyncInvokables.completed();
+		}
+		return this.runChildAsync(spec, spec, notifier, null);
+	}
+
+
+	/**
+	 * Runs the spec like {@link #runChildAsync(Spec, RunNotifier)}. If {@code binding} is not {@code null},
+	 * it is bound to the threads that run the blocks of the spec, so their output is captured and their stacks are sampled.
+	 */
+	private CompletableFuture<Void> runChildAsync(Spec spec, Spec instanceSpec, RunNotifier notifier, SpecBinding binding) {
+		if (!this.hasAsyncBlocks(instanceSpec)) {
+			if (instanceSpec == spec) {
+				this.runChild(spec, notifier, binding);
+			} else {
+				this.runChild(spec, instanceSpec, notifier, binding);
+			}
+			return AsyncInvokables.completed();
+		}
+
+		Executor executor = AsyncInvokables.currentExecutor();
+		Description description = describeChild(spec);
+		if (!this.openSuites(spec, binding, notifier)) {
+			SpecBinding.run(binding, () -> runAfterCallbacks(spec));
+			return AsyncInvokables.completed();
+		}
+		HandlerChain handlerChain = instanceSpec.getSuite().getHandlerChain();
+		LetScope scope = new LetScope(instanceSpec.getSuite());
+		long timeoutMillis = this.getTimeoutMillis(instanceSpec.getBlock().get());
+		Object event = FlightRecorderEvents.SPEC.begin();
+		EachTestNotifier eachNotifier = new EachTestNotifier(notifier, description);
+		eachNotifier.fireTestStarted();
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+		CompletableFuture<Void> future = PhaseMeter.measure(this.executionListener, Phase.BEFORE_EACH, spec.getSuite(), spec,
+				() -> this.runHooksAsync(Phase.BEFORE_EACH, spec, instanceSpec, scope, binding, timeoutMillis, handlerChain.getBeforeEachHandlers()));
+		future = collectFailure(AsyncInvokables.then(future, () -> this.startSpec(spec, instanceSpec, scope, binding), executor), failures);
+		future = collectFailure(AsyncInvokables.then(future, () -> PhaseMeter.measure(this.executionListener, Phase.AFTER_EACH, spec.getSuite(), spec,
+				() -> this.runHooksAsync(Phase.AFTER_EACH, spec, instanceSpec, scope, binding, timeoutMillis, handlerChain.getAfterEachHandlers())), executor), failures);
+		return AsyncInvokables.then(future, () -> {
+			closeScope(scope, failures);
+			reportFailures(failures, binding, eachNotifier);
+			eachNotifier.fireTestFinished();
+			this.commitSpecEvent(event, spec);
+			SpecBinding.run(binding, () -> runAfterCallbacks(spec));
+			return AsyncInvokables.completed();
+		}, executor);
+	}
+
+
+	/**
+	 * Returns a future that completes once the given future is completed and adds its failure to the failures.
+	 */
+	private static CompletableFuture<Void> collectFailure(CompletableFuture<Void> future, List<Throwable> failures) {
+		return future.handle((result, cause) -> {
+			if (cause != null) {
+				failures.add(AsyncInvokables.unwrap(cause));
+			}
+			return null;
+		});
+	}
+
+
+	/**
+	 * Closes the Let values of the spec. A value that can not be closed is added to the failures of the spec.
+	 */
+	private static void closeScope(LetScope scope, List<Throwable> failures) {
+		try {
+			scope.close();
+		} catch (RuntimeException e) {
+			failures.add(e);
+		}
+	}
+
+
+	/**
+	 * Reports the failures of a spec like {@link #runLeaf(Statement, Description, RunNotifier)}.
+	 */
+	private static void reportFailures(List<Throwable> failures, SpecBinding binding, EachTestNotifier eachNotifier) {
+		try {
+			MultipleFailureException.assertEmpty(failures);
+		} catch (AssumptionViolatedException e) {
+			eachNotifier.addFailedAssumption(e);
+		} catch (Throwable t) {
+			SpecBinding.attachOutput(binding, t);
+			eachNotifier.addFailure(t);
+		}
+	}
+
+
+	private boolean hasAsyncBlocks(Spec spec) {
+		if (!spec.getBlock().isPresent()) {
+			return false;
+		}
+		HandlerChain handlerChain = spec.getSuite().getHandlerChain();
+		return AsyncInvokables.isAsync(spec.getBlock().get())
+				|| handlerChain.getBeforeEachHandlers().stream().anyMatch(AsyncInvokables::isAsync)
+				|| handlerChain.getAfterEachHandlers().stream().anyMatch(AsyncInvokables::isAsync);
+	}
+
+
+	/**
+	 * Starts the block of the spec. Synchronous blocks with a timeout are run on a watched thread (see {@link FailOnTimeout}),
+	 * asynchronous blocks fail if they do not complete within the timeout.
+	 */
+	private CompletableFuture<Void> startSpec(Spec spec, Spec instanceSpec, LetScope scope, SpecBinding binding) {
+		Invokable block = instanceSpec.getBlock().get();
+		long timeoutMillis = this.getTimeoutMillis(block);
+		if (!AsyncInvokables.isAsync(block)) {
+			Statement body = SpecBinding.bind(binding, scope.bind(this.measuredBody(spec, instanceSpec)));
+			if (timeoutMillis > 0) {
+				return new FailOnTimeout(body, timeoutMillis).start();
+			}
+			try {
+				body.evaluate();
+				return AsyncInvokables.completed();
+			} catch (Throwable t) {
+				return AsyncInvokables.failed(t);
+			}
+		}
+		return failAfter(PhaseMeter.measure(this.executionListener, Phase.BODY, spec.getSuite(), spec,
+				() -> AsyncInvokables.start(bind(scope, binding, unwrapTimeout(block)))), timeoutMillis);
+	}
+
+
+	/**
+	 * Returns a future that completes with the given future or fails with a {@link TestTimedOutException}
+	 * once the timeout expires. A timeout that is not positive is not enforced.
+	 */
+	private static CompletableFuture<Void> failAfter(CompletableFuture<Void> future, long timeoutMillis) {
+		if (timeoutMillis <= 0 || future.isDone()) {
+			return future;
+		}
+		CompletableFuture<Void> timedFuture = new CompletableFuture<>();
+		TimerWheel.Entry timeout = TimerWheel.shared().schedule(timeoutMillis, TimeUnit.MILLISECONDS, () ->
+				timedFuture.completeExceptionally(new TestTimedOutException(timeoutMillis, TimeUnit.MILLISECONDS)));
+		future.whenComplete((result, cause) -> {
+			timeout.cancel();
+			AsyncInvokables.complete(timedFuture, cause);
+		});
+		return timedFuture;
+	}
+
+
+	/**
+	 * Returns a block of the same kind that fails if it does not complete within the timeout. Synchronous blocks are
+	 * run on a watched thread (see {@link FailOnTimeout}). A timeout that is not positive is not enforced.
+	 */
+	private static Invokable withTimeout(Invokable block, long timeoutMillis) {
+		if (timeoutMillis <= 0) {
+			return block;
+		}
+		if (AsyncInvokables.isAsync(block)) {
+			return (StageInvokable) () -> failAfter(AsyncInvokables.start(block), timeoutMillis);
+		}
+		Statement statement = new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				block.invoke();
+			}
+		};
+		return (StageInvokable) () -> new FailOnTimeout(statement, timeoutMillis).start();
+	}
+
+
+	/**
+	 * Returns a statement that is evaluated with the Let scope and the binding of the spec bound to the current thread.
+	 * If the timeout is positive, the statement is evaluated on a watched thread (see {@link FailOnTimeout}).
+	 */
+	private static Statement watched(Statement statement, long timeoutMillis, LetScope scope, SpecBinding binding) {
+		Statement boundStatement = SpecBinding.bind(binding, scope.bind(statement));
+		return timeoutMillis > 0 ? new FailOnTimeout(boundStatement, timeoutMillis) : boundStatement;
+	}
+
+
+	/**
+	 * Returns a statement that evaluates the body after the {@code beforeEach} statement and the {@code afterEach}
+	 * statement in any case, like JUnit runs {@code @Before} and {@code @After} methods. Finally the Let values
+	 * are closed. All failures are thrown.
+	 */
+	private static Statement runEach(Statement beforeEach, Statement body, Statement afterEach, LetScope scope) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				List<Throwable> failures = new ArrayList<>();
+				try {
+					beforeEach.evaluate();
+					body.evaluate();
+				} catch (Throwable t) {
+					failures.add(t);
+				}
+				try {
+					afterEach.evaluate();
+				} catch (Throwable t) {
+					failures.add(t);
+				}
+				closeScope(scope, failures);
+				MultipleFailureException.assertEmpty(failures);
+			}
+		};
+	}
+
+
+	/**
+	 * Returns a statement that runs the handlers of a spec and measures them as the given phase.
+	 */
+	private Statement measuredHandlers(Phase phase, Spec spec, Runnable handlers) {
+		return new Statement() {
+			@Override
+			public void evaluate() {
+				PhaseMeter.measure(executionListener, phase, spec.getSuite(), spec, handlers);
+			}
+		};
+	}
+
+
+	/**
+	 * Returns a statement that reports the measurement of the body of the spec, if execution listeners are measuring.
+	 */
+	private Statement measuredBody(Spec spec, Statement statement) {
+		if (!this.executionListener.isMeasuring()) {
+			return statement;
+		}
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				PhaseMeter meter = PhaseMeter.start();
+				try {
+					statement.evaluate();
+				} finally {
+					executionListener.phaseFinished(meter.stop(Phase.BODY, spec.getSuite(), spec));
+				}
+			}
+		};
+	}
+
+
+	/**
+	 * Returns the timeout of the block, the default timeout if the block has none or zero if there is no timeout.
+	 */
+	long getTimeoutMillis(Invokable block) {
+		if (block instanceof TimeoutInvokable) {
+			return Math.max(1, ((TimeoutInvokable) block).getTimeout().toMillis());
+		}
+		return this.configuration.getDefaultTimeoutMillis();
+	}
+
+
 	@Override
 	public Description describeChild(Spec child) {
 		return Description.createTestDescription(this.getTestClass().getJavaClass(), child.getFullDescription());
 	}
 
 
+	/**
+	 * Creates the description of a suite. The description is named after the suite,
+	 * its unique id is made up of the test class and the full description of the suite.
+	 */
+	public Description describeSuite(Suite suite) {
+		return Description.createSuiteDescription(suite.getDescription(), getName() + ", " + suite.getFullDescription());
+	}
+
+
 	private SuiteBuilder createSuiteBuilder() {
 		return new StaticSupportingSuiteBuilder();
 	}
@@ -117,56 +834,192 @@ public class OleasterRunner extends ParentRunner<Spec> {
 	}
 
 
-	void runBeforeEachCallbacks(Spec spec) {
-		this.runInvokables(this.collectInvokables(spec.getSuite(), Suite::getBeforeEachHandlers, true));
+	private SuiteScheduler createSuiteScheduler(Set<Spec> specsToRun) {
+		if (!this.configuration.isParallel()) {
+			return new SequentialSuiteScheduler();
+		}
+		ToLongFunction<Suite> estimatedDuration = suite -> 0L;
+		if (this.history.isPresent()) {
+			Map<Suite, Long> estimates = new IdentityHashMap<>();
+			this.estimateDuration(this.executionPlan.getSuite(), this.history.get(), specsToRun, estimates);
+			estimatedDuration = estimates::get;
+		}
+		if (this.configuration.isVirtualThreads() && VirtualThreadSuiteScheduler.isSupported()) {
+			return new VirtualThreadSuiteScheduler(this.configuration.getConcurrencyLimit(), estimatedDuration);
+		}
+		return new ForkJoinSuiteScheduler(this.configuration.getParallelism(), estimatedDuration);
+	}
+
+
+	void runBeforeEachCallbacks(Spec spec, Spec instanceSpec) {
+		this.runHooks(Phase.BEFORE_EACH, instanceSpec.getSuite(), spec, instanceSpec.getSuite().getHandlerChain().getBeforeEachHandlers());
 	}
 
 
+	/**
+	 * Opens the suite of the spec and all its parent suites that have not been opened yet.
+	 * Throws the failure of a {@code before} handler of one of these suites.
+	 */
 	void runBeforeCallbacks(Spec spec) {
-		this.runInvokables(this.collectInvokables(spec.getSuite(), Suite::getBeforeHandlers, true));
+		this.suiteLifecycle.open(spec);
 	}
 
 
-	void runAfterEachCallbacks(Spec spec) {
-		this.runInvokables(this.collectInvokables(spec.getSuite(), Suite::getAfterEachHandlers, false));
+	void runAfterEachCallbacks(Spec spec, Spec instanceSpec) {
+		this.runHooks(Phase.AFTER_EACH, instanceSpec.getSuite(), spec, instanceSpec.getSuite().getHandlerChain().getAfterEachHandlers());
 	}
 
 
+	/**
+	 * Marks the spec as finished and closes the suites that have no remaining specs.
+	 */
 	void runAfterCallbacks(Spec spec) {
-		this.runInvokables(this.collectInvokables(spec.getSuite(), Suite::getAfterHandlers, false));
+		this.suiteLifecycle.finish(spec);
 	}
 
 
-	private List<Invokable> collectInvokables(
-			Suite suite,
-			Function<Suite, List<Invokable>> method,
-			boolean reverseOrder) {
-		List<List<Invokable>> lists = new ArrayList<>();
-		Suite parent = suite;
-		while (parent != null) {
-			lists.add(new ArrayList<>(method.apply(parent)));
-			parent = parent.getParent();
+	/**
+	 * Starts the handlers one after another, each of them has to complete within the timeout.
+	 * If hook events are recorded, every handler is reported once it completed.
+	 */
+	private CompletableFuture<Void> runHooksAsync(Phase phase, Spec spec, Spec instanceSpec, LetScope scope, SpecBinding binding,
+			long timeoutMillis, List<Invokable> invokables) {
+		List<Invokable> handlers = new ArrayList<>(invokables.size());
+		for (int i = 0; i < invokables.size(); i++) {
+			Invokable handler = withTimeout(bind(scope, binding, invokables.get(i)), timeoutMillis);
+			if (FlightRecorderEvents.HOOK.isEnabled()) {
+				int index = i;
+				Invokable boundHandler = handler;
+				handler = (StageInvokable) () -> {
+					Object event = FlightRecorderEvents.HOOK.begin();
+					return AsyncInvokables.start(boundHandler).whenComplete((result, cause) ->
+							this.commitHookEvent(event, phase, instanceSpec.getSuite(), spec, index));
+				};
+			}
+			handlers.add(handler);
 		}
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		AsyncInvokables.startAll(handlers).whenComplete((result, cause) -> {
+			Throwable failure = cause != null ? AsyncInvokables.unwrap(cause) : null;
+			if (failure == null) {
+				future.complete(null);
+			} else if (failure instanceof Exception) {
+				future.completeExceptionally(new RuntimeException("An exception occurred while running invokable: " + failure.getMessage(), failure));
+			} else {
+				future.completeExceptionally(failure);
+			}
+		});
+		return future;
+	}
 
-		if (reverseOrder) {
-			Collections.reverse(lists);
-		}
 
-		List<Invokable> flatList = new ArrayList<>();
-		for (List<Invokable> list : lists) {
-			flatList.addAll(list);
+	private static Invokable unwrapTimeout(Invokable block) {
+		return block instanceof TimeoutInvokable ? ((TimeoutInvokable) block).getBlock() : block;
+	}
+
+
+	/**
+	 * Binds the Let scope and the binding of a spec, if there is one, to the threads that run the block.
+	 */
+	private static Invokable bind(LetScope scope, SpecBinding binding, Invokable block) {
+		return SpecBinding.bind(binding, scope.bind(block));
+	}
+
+
+	/**
+	 * Runs the {@code before} or {@code after} handlers of a suite. Handlers with a timeout are run on a watched thread
+	 * with the binding of the current thread.
+	 */
+	private void runSuiteHandlers(Phase phase, Suite suite, List<Invokable> invokables) {
+		List<Invokable> handlers = new ArrayList<>(invokables.size());
+		for (Invokable invokable : invokables) {
+			long timeoutMillis = this.getTimeoutMillis(invokable);
+			Invokable handler = unwrapTimeout(invokable);
+			handlers.add(timeoutMillis > 0 ? withTimeout(SpecBinding.bind(SpecBinding.current(), handler), timeoutMillis) : handler);
 		}
-		return flatList;
+		this.runHooks(phase, suite, null, handlers);
 	}
 
 
-	private void runInvokables(List<Invokable> invokables) {
-		invokables.forEach(callback -> {
+	/**
+	 * Runs the handlers one after another. {@code spec} is {@code null} for {@code before} and {@code after} handlers.
+	 */
+	private void runHooks(Phase phase, Suite suite, Spec spec, List<Invokable> invokables) {
+		for (int i = 0; i < invokables.size(); i++) {
+			Object event = FlightRecorderEvents.HOOK.begin();
 			try {
-				callback.invoke();
+				invokables.get(i).invoke();
 			} catch (Exception e) {
 				throw new RuntimeException("An exception occurred while running invokable: " + e.getMessage(), e);
+			} finally {
+				this.commitHookEvent(event, phase, suite, spec, i);
 			}
-		});
+		}
+	}
+
+
+	private void commitSpecEvent(Object event, Spec spec) {
+		if (event != null) {
+			FlightRecorderEvents.SPEC.commit(event, this.getName(), spec.getFullDescription());
+		}
+	}
+
+
+	/**
+	 * Commits a hook event with the suite that declares the handler. {@code beforeEach} and {@code afterEach}
+	 * handlers are looked up in the handler chain of {@code suite}, {@code index} is the position in that chain.
+	 */
+	private void commitHookEvent(Object event, Phase phase, Suite suite, Spec spec, int index) {
+		if (event == null) {
+			return;
+		}
+		Suite declaringSuite = suite;
+		if (phase == Phase.BEFORE_EACH || phase == Phase.AFTER_EACH) {
+			List<Suite> suites = new ArrayList<>();
+			for (Suite s = suite; s != null; s = s.getParent()) {
+				suites.add(s);
+			}
+			if (phase == Phase.BEFORE_EACH) {
+				Collections.reverse(suites);
+			}
+			for (Suite s : suites) {
+				int handlers = phase == Phase.BEFORE_EACH ? s.getBeforeEachHandlers().size() : s.getAfterEachHandlers().size();
+				if (index < handlers) {
+					declaringSuite = s;
+					break;
+				}
+				index -= handlers;
+			}
+		}
+		String suiteDescription = declaringSuite.getFullDescription();
+		FlightRecorderEvents.HOOK.commit(event, this.getName(), suiteDescription != null ? suiteDescription : "",
+				spec != null ? spec.getFullDescription() : null, phase.name(), index);
+	}
+
+
+	@RunListener.ThreadSafe
+	private static class FailureCollector extends RunListener {
+
+		private final String className;
+		private final Set<Description> failedDescriptions = ConcurrentHashMap.newKeySet();
+
+		FailureCollector(String className) {
+			this.className = className;
+		}
+
+		@Override
+		public void testFailure(Failure failure) {
+			if (this.className.equals(failure.getDescription().getClassName())) {
+				this.failedDescriptions.add(failure.getDescription());
+			}
+		}
+
+		boolean hasFailed(Description description) {
+			return this.failedDescriptions.contains(description);
+		}
+
+		int getFailureCount() {
+			return this.failedDescriptions.size();
+		}
 	}
 }
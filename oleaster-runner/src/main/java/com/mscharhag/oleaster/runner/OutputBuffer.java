@@ -0,0 +1,106 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A bounded buffer for the output of a spec that keeps the most recent bytes.
+ * <p>The buffer is allocated on the first write, so specs without output do not allocate it. It starts small and
+ * doubles its size until it reaches the capacity, from then on the oldest bytes are overwritten.
+ * OutputBuffer is thread safe.
+ */
+class OutputBuffer {
+
+	private static final int INITIAL_SIZE = 256;
+
+	private final int capacity;
+	private byte[] bytes;
+	private long written;
+
+	OutputBuffer(int capacity) {
+		this.capacity = capacity;
+	}
+
+	synchronized void write(int b) {
+		this.write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	synchronized void write(byte[] b, int off, int len) {
+		if (this.capacity == 0 || len == 0) {
+			this.written += len;
+			return;
+		}
+		if (len > this.capacity) {
+			this.written += len - this.capacity;
+			off += len - this.capacity;
+			len = this.capacity;
+		}
+		this.ensureSize(this.written + len);
+		int start = (int) (this.written % this.capacity);
+		int firstPart = Math.min(len, this.capacity - start);
+		System.arraycopy(b, off, this.bytes, start, firstPart);
+		System.arraycopy(b, off + firstPart, this.bytes, 0, len - firstPart);
+		this.written += len;
+	}
+
+	/**
+	 * Grows the buffer, so it can keep the given number of bytes, but not beyond the capacity.
+	 * Until the capacity is reached, bytes are stored at their offset in the output.
+	 */
+	private void ensureSize(long size) {
+		int required = (int) Math.min(size, this.capacity);
+		int currentSize = this.bytes != null ? this.bytes.length : 0;
+		if (currentSize >= required) {
+			return;
+		}
+		int newSize = Math.max(currentSize, Math.min(INITIAL_SIZE, this.capacity));
+		while (newSize < required) {
+			newSize = (int) Math.min((long) newSize * 2, this.capacity);
+		}
+		this.bytes = this.bytes != null ? Arrays.copyOf(this.bytes, newSize) : new byte[newSize];
+	}
+
+	/**
+	 * Returns the current size of the buffer in bytes.
+	 */
+	synchronized int size() {
+		return this.bytes != null ? this.bytes.length : 0;
+	}
+
+	synchronized boolean isEmpty() {
+		return this.written == 0;
+	}
+
+	/**
+	 * Returns the retained output, preceded by a note if older output has been dropped.
+	 */
+	synchronized String getOutput() {
+		if (this.bytes == null) {
+			return this.written == 0 ? "" : String.format("[%d bytes of output dropped]%n", this.written);
+		}
+		if (this.written <= this.capacity) {
+			return new String(this.bytes, 0, (int) this.written, Charset.defaultCharset());
+		}
+		int start = (int) (this.written % this.capacity);
+		byte[] ordered = new byte[this.capacity];
+		System.arraycopy(this.bytes, start, ordered, 0, this.capacity - start);
+		System.arraycopy(this.bytes, 0, ordered, this.capacity - start, start);
+		return String.format("[%d bytes of earlier output dropped]%n", this.written - this.capacity)
+				+ new String(ordered, Charset.defaultCharset());
+	}
+}
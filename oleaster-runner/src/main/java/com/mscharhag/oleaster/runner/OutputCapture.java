@@ -0,0 +1,170 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Redirects {@code System.out} and {@code System.err} into the {@link OutputBuffer} of the running spec.
+ * <p>The streams are replaced while at least one runner captures output. Output is written to the buffer bound to
+ * the writing thread, output of threads without a buffer goes to the original streams. Buffers are bound to the
+ * threads that run a spec, its handlers and its asynchronous blocks (see {@link SpecBinding}), so output of specs that run in parallel is
+ * attributed to the right spec. Output of threads started by a spec is not captured.
+ */
+final class OutputCapture {
+
+	private static final ThreadLocal<OutputBuffer> CURRENT = new ThreadLocal<>();
+	private static final Object LOCK = new Object();
+
+	private static int users;
+	private static PrintStream originalOut;
+	private static PrintStream originalErr;
+	private static PrintStream capturingOut;
+	private static PrintStream capturingErr;
+
+	private OutputCapture() {
+
+	}
+
+	/**
+	 * Replaces the system streams, if they have not been replaced by another runner yet.
+	 */
+	static void install() {
+		synchronized (LOCK) {
+			if (users++ == 0) {
+				originalOut = System.out;
+				originalErr = System.err;
+				capturingOut = new PrintStream(new CapturingOutputStream(originalOut), true);
+				capturingErr = new PrintStream(new CapturingOutputStream(originalErr), true);
+				System.setOut(capturingOut);
+				System.setErr(capturingErr);
+			}
+		}
+	}
+
+	/**
+	 * Restores the original system streams once no runner captures output anymore. Streams that have been
+	 * replaced by someone else in the meantime are left alone.
+	 */
+	static void uninstall() {
+		synchronized (LOCK) {
+			if (--users == 0) {
+				if (System.out == capturingOut) {
+					System.setOut(originalOut);
+				}
+				if (System.err == capturingErr) {
+					System.setErr(originalErr);
+				}
+				capturingOut = null;
+				capturingErr = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the stream that output is written to when it is not captured.
+	 */
+	static PrintStream originalOut() {
+		synchronized (LOCK) {
+			return originalOut != null ? originalOut : System.out;
+		}
+	}
+
+	/**
+	 * Binds the buffer to the current thread and returns the previously bound buffer.
+	 */
+	static OutputBuffer enter(OutputBuffer buffer) {
+		OutputBuffer previous = CURRENT.get();
+		CURRENT.set(buffer);
+		return previous;
+	}
+
+	static void exit(OutputBuffer previous) {
+		if (previous != null) {
+			CURRENT.set(previous);
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+
+	/**
+	 * Adds the output captured so far to the failure of a spec as a suppressed {@link CapturedOutput}, so IDEs and
+	 * build tools show it with the failure. Does nothing if the buffer is empty or the output is already attached.
+	 */
+	static void attach(OutputBuffer buffer, Throwable failure) {
+		if (buffer.isEmpty()) {
+			return;
+		}
+		for (Throwable suppressed : failure.getSuppressed()) {
+			if (suppressed instanceof CapturedOutput) {
+				return;
+			}
+		}
+		failure.addSuppressed(new CapturedOutput(buffer.getOutput()));
+	}
+
+
+	/**
+	 * The output of a failed spec. It has no stack trace of its own, only the output as its message.
+	 */
+	static final class CapturedOutput extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		CapturedOutput(String output) {
+			super(String.format("Captured output:%n%s", output), null, false, false);
+		}
+	}
+
+
+	private static class CapturingOutputStream extends OutputStream {
+
+		private final PrintStream original;
+
+		CapturingOutputStream(PrintStream original) {
+			this.original = original;
+		}
+
+		@Override
+		public void write(int b) {
+			OutputBuffer buffer = CURRENT.get();
+			if (buffer != null) {
+				buffer.write(b);
+			} else {
+				this.original.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			OutputBuffer buffer = CURRENT.get();
+			if (buffer != null) {
+				buffer.write(b, off, len);
+			} else {
+				this.original.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() {
+			if (CURRENT.get() == null) {
+				this.original.flush();
+			}
+		}
+	}
+}
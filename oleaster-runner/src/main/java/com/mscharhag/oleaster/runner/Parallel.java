@@ -0,0 +1,73 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables parallel execution for an Oleaster test class.
+ * <p>Sibling suites (defined by {@code describe()}) are executed concurrently on a
+ * {@link java.util.concurrent.ForkJoinPool}. Specs of a single suite are still executed one after another,
+ * so {@code before}/{@code after} and {@code beforeEach}/{@code afterEach} handlers keep their usual semantics.
+ * <p>For example:
+ * <pre>
+ * 	{@literal @}Parallel
+ * 	{@literal @}RunWith(OleasterRunner.class)
+ * 	 public class ParallelTest {{
+ *		describe("runs concurrently to the second suite", () -&gt; { ... });
+ *		describe("runs concurrently to the first suite", () -&gt; { ... });
+ *	}}
+ * </pre>
+ * <p>Parallel execution can also be enabled for all test classes using the system property
+ * {@code oleaster.parallel=true}.
+ * <p>Suites and specs that use the same port, directory or static state can declare a {@link ResourceLock},
+ * conflicting suites and specs are then run one after another. Specs that keep state in fields of the test
+ * class can run against their own instances of the test class using {@link #isolated()}.
+ * <p>Test classes with I/O-bound specs can run every spec on its own virtual thread by setting
+ * {@link #virtualThreads()}. On JVMs without virtual threads (before Java 21) the ForkJoinPool is used instead.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Parallel {
+
+	/**
+	 * The number of worker threads. If not set (or set to a value less than 1) the
+	 * number of available processors is used. Can be overridden with the system property
+	 * {@code oleaster.parallelism}.
+	 */
+	int threads() default 0;
+
+	/**
+	 * Runs every spec, including its {@code beforeEach}/{@code afterEach} handlers, on its own virtual thread.
+	 * In this mode {@link #threads()} limits the number of specs that run at the same time, if not set (or set
+	 * to a value less than 1) the number of concurrent specs is not limited. Can be enabled for all test classes
+	 * with the system property {@code oleaster.virtualThreads=true}.
+	 */
+	boolean virtualThreads() default false;
+
+	/**
+	 * Runs specs against their own instances of the test class, so specs of concurrent suites do not share
+	 * instance fields. The suite definitions are evaluated again for every instance. {@code before}/{@code after}
+	 * handlers run once per suite on the instance that was used to build the suite tree, state they set up for
+	 * the specs should be kept in static fields. Can be enabled for all test classes with the system property
+	 * {@code oleaster.isolated=true}.
+	 */
+	boolean isolated() default false;
+
+}
@@ -0,0 +1,107 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.Optional;
+
+/**
+ * Wall time, thread CPU time and allocated bytes of a single phase of a spec or suite.
+ * <p>CPU time and allocated bytes are measured on the thread that runs the phase, using the
+ * {@link java.lang.management.ThreadMXBean} of the JVM. They are {@link #UNAVAILABLE} if the JVM does not support
+ * these measurements or if the phase completed asynchronously on other threads. The wall time of an asynchronous
+ * phase lasts until the phase completed.
+ */
+public final class PhaseMeasurement {
+
+	/**
+	 * Returned by {@link #getCpuTimeNanos()} and {@link #getAllocatedBytes()} if the value could not be measured.
+	 */
+	public static final long UNAVAILABLE = -1;
+
+	/**
+	 * The phases of a test run. {@code BEFORE} and {@code AFTER} belong to a suite, all other phases to a spec.
+	 * The {@code BEFORE_EACH} and {@code AFTER_EACH} phases include the handlers of all enclosing suites.
+	 */
+	public enum Phase {
+		BEFORE, BEFORE_EACH, BODY, AFTER_EACH, AFTER
+	}
+
+	private final Phase phase;
+	private final Suite suite;
+	private final Spec spec;
+	private final long wallTimeNanos;
+	private final long cpuTimeNanos;
+	private final long allocatedBytes;
+
+	PhaseMeasurement(Phase phase, Suite suite, Spec spec, long wallTimeNanos, long cpuTimeNanos, long allocatedBytes) {
+		this.phase = phase;
+		this.suite = suite;
+		this.spec = spec;
+		this.wallTimeNanos = wallTimeNanos;
+		this.cpuTimeNanos = cpuTimeNanos;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Returns the suite of the phase. For spec phases this is the suite that contains the spec.
+	 */
+	public Suite getSuite() {
+		return suite;
+	}
+
+	/**
+	 * Returns the spec of the phase, or an empty optional for {@code BEFORE} and {@code AFTER}.
+	 */
+	public Optional<Spec> getSpec() {
+		return Optional.ofNullable(spec);
+	}
+
+	public long getWallTimeNanos() {
+		return wallTimeNanos;
+	}
+
+	public long getCpuTimeNanos() {
+		return cpuTimeNanos;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Returns the full description of the spec, or of the suite for suite phases.
+	 * The suite that represents the test class has an empty description.
+	 */
+	public String getPath() {
+		if (spec != null) {
+			return spec.getFullDescription();
+		}
+		String suiteDescription = suite.getFullDescription();
+		return suiteDescription != null ? suiteDescription : "";
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s: wall %dns, cpu %dns, allocated %d bytes", phase, getPath(), wallTimeNanos, cpuTimeNanos, allocatedBytes);
+	}
+}
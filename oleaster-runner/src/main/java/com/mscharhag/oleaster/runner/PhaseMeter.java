@@ -0,0 +1,137 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.PhaseMeasurement.Phase;
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Measures a phase on the current thread.
+ * <p>Allocated bytes are read from {@code com.sun.management.ThreadMXBean}, which is available on HotSpot and
+ * OpenJ9. On other JVMs, or if thread CPU time measurement is disabled, the values are
+ * {@link PhaseMeasurement#UNAVAILABLE}.
+ */
+final class PhaseMeter {
+
+	private static final ThreadMXBean THREADS;
+	private static final boolean CPU_TIME_SUPPORTED;
+	private static final boolean ALLOCATION_SUPPORTED;
+
+	static {
+		ThreadMXBean threads = null;
+		boolean cpuTimeSupported = false;
+		boolean allocationSupported = false;
+		try {
+			threads = ManagementFactory.getThreadMXBean();
+			cpuTimeSupported = threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+			allocationSupported = threads instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+		} catch (LinkageError | RuntimeException e) {
+			// no management support, only wall time is measured
+		}
+		THREADS = threads;
+		CPU_TIME_SUPPORTED = cpuTimeSupported;
+		ALLOCATION_SUPPORTED = allocationSupported;
+	}
+
+	private final long startWallTime;
+	private final long startCpuTime;
+	private final long startAllocatedBytes;
+	private final Thread thread;
+
+	private PhaseMeter() {
+		this.thread = Thread.currentThread();
+		this.startAllocatedBytes = allocatedBytes(this.thread);
+		this.startCpuTime = CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : PhaseMeasurement.UNAVAILABLE;
+		this.startWallTime = System.nanoTime();
+	}
+
+	static PhaseMeter start() {
+		return new PhaseMeter();
+	}
+
+	/**
+	 * Ends the measurement of a phase that ran on the thread it started on.
+	 */
+	PhaseMeasurement stop(Phase phase, Suite suite, Spec spec) {
+		return this.stop(phase, suite, spec, Thread.currentThread() == this.thread);
+	}
+
+	private PhaseMeasurement stop(Phase phase, Suite suite, Spec spec, boolean sameThread) {
+		long wallTime = System.nanoTime() - this.startWallTime;
+		long cpuTime = sameThread && CPU_TIME_SUPPORTED
+				? THREADS.getCurrentThreadCpuTime() - this.startCpuTime
+				: PhaseMeasurement.UNAVAILABLE;
+		long allocatedBytes = sameThread && ALLOCATION_SUPPORTED
+				? allocatedBytes(this.thread) - this.startAllocatedBytes
+				: PhaseMeasurement.UNAVAILABLE;
+		return new PhaseMeasurement(phase, suite, spec, wallTime, cpuTime, allocatedBytes);
+	}
+
+	/**
+	 * Measures a phase that runs on the current thread, if the listener is measuring.
+	 */
+	static void measure(ExecutionListener listener, Phase phase, Suite suite, Spec spec, Runnable work) {
+		if (!listener.isMeasuring()) {
+			work.run();
+			return;
+		}
+		PhaseMeter meter = start();
+		try {
+			work.run();
+		} finally {
+			listener.phaseFinished(meter.stop(phase, suite, spec));
+		}
+	}
+
+	/**
+	 * Measures a phase that may complete asynchronously. Phases that complete on other threads are reported
+	 * without CPU time and allocations.
+	 */
+	static CompletableFuture<Void> measure(ExecutionListener listener, Phase phase, Suite suite, Spec spec,
+			Supplier<CompletableFuture<Void>> work) {
+		if (!listener.isMeasuring()) {
+			return work.get();
+		}
+		PhaseMeter meter = start();
+		CompletableFuture<Void> future;
+		try {
+			future = work.get();
+		} catch (RuntimeException | Error e) {
+			listener.phaseFinished(meter.stop(phase, suite, spec));
+			throw e;
+		}
+		if (future.isDone()) {
+			listener.phaseFinished(meter.stop(phase, suite, spec));
+			return future;
+		}
+		// the thread may have run other work in the meantime, so only the wall time is meaningful
+		return future.whenComplete((result, cause) -> listener.phaseFinished(meter.stop(phase, suite, spec, false)));
+	}
+
+	private static long allocatedBytes(Thread thread) {
+		return ALLOCATION_SUPPORTED
+				? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(thread.getId())
+				: PhaseMeasurement.UNAVAILABLE;
+	}
+}
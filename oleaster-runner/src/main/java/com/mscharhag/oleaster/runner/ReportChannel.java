@@ -0,0 +1,105 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only file channel with a fixed size write buffer.
+ * <p>Text is encoded as UTF-8 and written once the buffer is full, so the memory used does not grow with
+ * the amount of text written. Previously written bytes can be overwritten in place using {@link #patch(long, String)}.
+ * ReportChannel is thread safe.
+ */
+class ReportChannel implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private long position;
+
+	private ReportChannel(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	static ReportChannel open(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		return new ReportChannel(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * Returns the number of bytes written so far, including buffered bytes.
+	 */
+	synchronized long position() {
+		return this.position;
+	}
+
+	synchronized void write(String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > this.buffer.remaining()) {
+			this.flush();
+		}
+		if (bytes.length > this.buffer.capacity()) {
+			writeFully(ByteBuffer.wrap(bytes));
+		} else {
+			this.buffer.put(bytes);
+		}
+		this.position += bytes.length;
+	}
+
+	/**
+	 * Overwrites bytes that have already been written. The text must not be longer than the bytes it replaces.
+	 */
+	synchronized void patch(long position, String text) throws IOException {
+		this.flush();
+		ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		while (bytes.hasRemaining()) {
+			position += this.channel.write(bytes, position);
+		}
+	}
+
+	synchronized void flush() throws IOException {
+		this.buffer.flip();
+		writeFully(this.buffer);
+		this.buffer.clear();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			this.flush();
+		} finally {
+			this.channel.close();
+		}
+	}
+
+	private void writeFully(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			this.channel.write(bytes);
+		}
+	}
+}
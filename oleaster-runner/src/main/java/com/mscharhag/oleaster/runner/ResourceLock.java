@@ -0,0 +1,114 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Named resources a suite or spec needs exclusive ({@link #write(String...)}) or shared ({@link #read(String...)}) access to.
+ * <p>In parallel mode suites and specs with conflicting resource locks are never run at the same time. Two locks conflict if
+ * they share a resource and at least one of them writes it. A resource lock of a suite applies to the whole suite,
+ * including its handlers, specs and child suites.
+ * <p>For example:
+ * <pre>
+ * 	describe("server", ResourceLock.write("port 8080"), () -&gt; { ... });
+ * 	it("reads the config", ResourceLock.read("config").and(ResourceLock.write("tmp")), () -&gt; { ... });
+ * </pre>
+ */
+public final class ResourceLock {
+
+	public static final ResourceLock NONE = new ResourceLock(Collections.emptyMap());
+
+	private final Map<String, Boolean> resources;
+
+	private ResourceLock(Map<String, Boolean> resources) {
+		this.resources = resources;
+	}
+
+	/**
+	 * Returns a lock for shared access to the resources.
+	 */
+	public static ResourceLock read(String... resources) {
+		return of(false, resources);
+	}
+
+	/**
+	 * Returns a lock for exclusive access to the resources.
+	 */
+	public static ResourceLock write(String... resources) {
+		return of(true, resources);
+	}
+
+	private static ResourceLock of(boolean exclusive, String... resources) {
+		Map<String, Boolean> map = new TreeMap<>();
+		for (String resource : resources) {
+			map.put(Objects.requireNonNull(resource, "resource"), exclusive);
+		}
+		return new ResourceLock(Collections.unmodifiableMap(map));
+	}
+
+	/**
+	 * Returns a lock for the resources of this and the other lock. Resources that are written by
+	 * one of the locks are written by the returned lock.
+	 */
+	public ResourceLock and(ResourceLock other) {
+		if (other.isEmpty()) {
+			return this;
+		}
+		if (this.isEmpty()) {
+			return other;
+		}
+		Map<String, Boolean> map = new TreeMap<>(this.resources);
+		other.resources.forEach((resource, exclusive) -> map.merge(resource, exclusive, Boolean::logicalOr));
+		return new ResourceLock(Collections.unmodifiableMap(map));
+	}
+
+	/**
+	 * Returns the locked resources in natural order. The value is true if a resource is written.
+	 */
+	public Map<String, Boolean> getResources() {
+		return resources;
+	}
+
+	public boolean isEmpty() {
+		return resources.isEmpty();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || (o instanceof ResourceLock && this.resources.equals(((ResourceLock) o).resources));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.resources.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("ResourceLock[");
+		this.resources.forEach((resource, exclusive) -> {
+			if (sb.length() > "ResourceLock[".length()) {
+				sb.append(", ");
+			}
+			sb.append(exclusive ? "write " : "read ").append(resource);
+		});
+		return sb.append(']').toString();
+	}
+}
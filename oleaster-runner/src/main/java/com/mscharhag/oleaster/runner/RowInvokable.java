@@ -0,0 +1,28 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+/**
+ * A block of code that is run for a single row of a table-driven spec or suite
+ * (see {@code itEach()} and {@code describeEach()}).
+ * @param <T> The type of the row
+ */
+@FunctionalInterface
+public interface RowInvokable<T> {
+
+	void invoke(T row) throws Exception;
+
+}
@@ -0,0 +1,293 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The rows of a table-driven spec or suite (see {@code itEach()} and {@code describeEach()}).
+ * <p>Rows are iterated once while the suite is evaluated. Every row is represented by a lightweight reference
+ * that only keeps the index of the row and obtains the row again when the spec is run, so rows of a list, a stream
+ * or a CSV file are not kept in memory. A CSV file is memory-mapped and a row is parsed again when it is needed.
+ * <p>For example:
+ * <pre>
+ *	itEach("adds %s and %s", Rows.of(Rows.row(1, 2, 3), Rows.row(2, 3, 5)), row -&gt; {
+ *		assertEquals(row[2], (int) row[0] + (int) row[1]);
+ *	});
+ * </pre>
+ * @param <T> The type of the rows
+ */
+public final class Rows<T> implements Iterable<Supplier<T>> {
+
+	private final Supplier<Iterator<Supplier<T>>> references;
+
+	private Rows(Supplier<Iterator<Supplier<T>>> references) {
+		this.references = references;
+	}
+
+	/**
+	 * Returns a row with the given values, to be used with {@link #of(Object[][])}.
+	 */
+	public static Object[] row(Object... values) {
+		return values;
+	}
+
+	/**
+	 * Returns rows of an in-memory table.
+	 */
+	public static Rows<Object[]> of(Object[]... rows) {
+		return from(Arrays.asList(rows));
+	}
+
+	/**
+	 * Returns the rows of the iterable. A row is obtained again by its index when the spec is run, which
+	 * iterates the rows up to the index unless the iterable is a {@link List}.
+	 */
+	public static <T> Rows<T> from(Iterable<T> rows) {
+		IntFunction<T> rowAt = rows instanceof List ? ((List<T>) rows)::get : index -> rowAt(rows.iterator(), index);
+		return new Rows<>(() -> references(rows.iterator(), rowAt, () -> {}));
+	}
+
+	/**
+	 * Returns the rows of the streams created by the supplier. The suite may be evaluated more than once
+	 * (e.g. in isolated mode) and a row is obtained again by its index when the spec is run, so the supplier
+	 * has to return a new stream with the same rows every time. Streams are closed after use.
+	 * <p>For example:
+	 * <pre>
+	 *	Rows.from(() -&gt; Files.lines(path))
+	 * </pre>
+	 */
+	public static <T> Rows<T> from(Supplier<Stream<T>> rows) {
+		return new Rows<>(() -> {
+			Stream<T> stream = rows.get();
+			return references(stream.iterator(), index -> {
+				try (Stream<T> rowStream = rows.get()) {
+					return rowAt(rowStream.skip(index).iterator(), 0);
+				}
+			}, stream::close);
+		});
+	}
+
+	/**
+	 * Returns the rows of a UTF-8 encoded CSV file, every line is a row.
+	 * @see #csv(Path, boolean)
+	 */
+	public static Rows<String[]> csv(Path file) {
+		return csv(file, false);
+	}
+
+	/**
+	 * Returns the rows of a UTF-8 encoded CSV file, every line is a row. Fields are separated by commas and can be
+	 * enclosed in double quotes. A double quote within a quoted field is written as two double quotes. Quoted
+	 * fields can not span multiple lines, empty lines are skipped.
+	 * <p>The file is memory-mapped, so it has to be smaller than 2 GB.
+	 * @param file The CSV file
+	 * @param skipHeader true if the first line contains column names instead of values
+	 * @throws UncheckedIOException if the file can not be mapped
+	 */
+	public static Rows<String[]> csv(Path file, boolean skipHeader) {
+		ByteBuffer content;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(String.format("CSV file %s is too large to be memory-mapped", file));
+			}
+			content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new Rows<>(() -> new CsvLineIterator(content, skipHeader));
+	}
+
+	@Override
+	public Iterator<Supplier<T>> iterator() {
+		return this.references.get();
+	}
+
+
+	private static <T> Iterator<Supplier<T>> references(Iterator<T> rows, IntFunction<T> rowAt, Runnable onEnd) {
+		return new Iterator<Supplier<T>>() {
+			private int index;
+			private Reference<T> current;
+
+			@Override
+			public boolean hasNext() {
+				boolean hasNext = rows.hasNext();
+				if (!hasNext) {
+					this.release();
+					onEnd.run();
+				}
+				return hasNext;
+			}
+
+			@Override
+			public Supplier<T> next() {
+				this.release();
+				this.current = new Reference<>(rows.next(), this.index++, rowAt);
+				return this.current;
+			}
+
+			private void release() {
+				if (this.current != null) {
+					this.current.release();
+					this.current = null;
+				}
+			}
+		};
+	}
+
+
+	private static <T> T rowAt(Iterator<T> rows, int index) {
+		for (int i = 0; i < index && rows.hasNext(); i++) {
+			rows.next();
+		}
+		if (!rows.hasNext()) {
+			throw new IllegalStateException(String.format("Row %d does not exist anymore", index + 1));
+		}
+		return rows.next();
+	}
+
+
+	/**
+	 * Splits a CSV line into its fields.
+	 */
+	static String[] parseCsvLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields.toArray(new String[0]);
+	}
+
+
+	/**
+	 * A reference to a row. The row is held until the iteration moves on to the next row, afterwards only the
+	 * index is kept and the row is obtained again.
+	 */
+	private static class Reference<T> implements Supplier<T> {
+
+		private final int index;
+		private final IntFunction<T> rowAt;
+		private T row;
+		private boolean held = true;
+
+		Reference(T row, int index, IntFunction<T> rowAt) {
+			this.row = row;
+			this.index = index;
+			this.rowAt = rowAt;
+		}
+
+		@Override
+		public T get() {
+			return this.held ? this.row : this.rowAt.apply(this.index);
+		}
+
+		void release() {
+			this.row = null;
+			this.held = false;
+		}
+	}
+
+
+	/**
+	 * Iterates the lines of a mapped CSV file. A row reference only keeps the position of its line.
+	 */
+	private static class CsvLineIterator implements Iterator<Supplier<String[]>> {
+
+		private final ByteBuffer content;
+		private int position;
+		private int nextStart = -1;
+		private int nextEnd;
+
+		CsvLineIterator(ByteBuffer content, boolean skipHeader) {
+			this.content = content;
+			if (skipHeader && this.hasNext()) {
+				this.next();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.nextStart < 0 && this.position < this.content.limit()) {
+				int start = this.position;
+				int end = start;
+				while (end < this.content.limit() && this.content.get(end) != '\n') {
+					end++;
+				}
+				this.position = end + 1;
+				if (end > start && this.content.get(end - 1) == '\r') {
+					end--;
+				}
+				if (end > start) {
+					this.nextStart = start;
+					this.nextEnd = end;
+				}
+			}
+			return this.nextStart >= 0;
+		}
+
+		@Override
+		public Supplier<String[]> next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ByteBuffer content = this.content;
+			int start = this.nextStart;
+			int length = this.nextEnd - this.nextStart;
+			this.nextStart = -1;
+			return () -> {
+				byte[] line = new byte[length];
+				ByteBuffer view = content.duplicate();
+				view.position(start);
+				view.get(line);
+				return parseCsvLine(new String(line, StandardCharsets.UTF_8));
+			};
+		}
+	}
+}
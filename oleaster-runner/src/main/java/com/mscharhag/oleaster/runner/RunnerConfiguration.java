@@ -0,0 +1,308 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runner settings of a single test class.
+ * <p>Settings are obtained from annotations of the test class and can be overridden
+ * using system properties:
+ * <ul>
+ *     <li>{@code oleaster.parallel}, {@code oleaster.parallelism}, {@code oleaster.virtualThreads} and
+ *     {@code oleaster.isolated} override {@link Parallel}.</li>
+ *     <li>{@code oleaster.shard.index} and {@code oleaster.shard.count} select the shard of the specs to run.</li>
+ *     <li>{@code oleaster.history=true} records spec durations and failures to {@code history.tsv} in
+ *     {@code oleaster.history.dir} ({@code build/oleaster} by default).</li>
+ *     <li>{@code oleaster.failed=first} runs previously failed specs first, {@code oleaster.failed=only} runs
+ *     only these specs. Both enable the history.</li>
+ *     <li>{@code oleaster.bail} overrides {@link Bail}, {@code oleaster.timeout} overrides {@link Timeout}.</li>
+ *     <li>{@code oleaster.instrumentation=true} writes phase measurements to {@code instrumentation}.</li>
+ *     <li>{@code oleaster.report=xml,json} streams results to {@code reports}. {@code oleaster.report.maxMessage} and
+ *     {@code oleaster.report.maxOutput} limit the length of failure messages and output.</li>
+ *     <li>{@code oleaster.capture=true} captures the last {@code oleaster.capture.limit} bytes of output per spec.</li>
+ *     <li>{@code oleaster.profile=true} samples the stacks of specs running longer than
+ *     {@code oleaster.profile.threshold} milliseconds every {@code oleaster.profile.interval} milliseconds and
+ *     writes them to {@code profiles}.</li>
+ * </ul>
+ * <p>Instrumentation, reports and profiles are written to sub directories of {@code oleaster.report.dir}
+ * ({@code build/oleaster} by default).
+ */
+class RunnerConfiguration {
+
+	static final String PARALLEL_PROPERTY = "oleaster.parallel";
+	static final String PARALLELISM_PROPERTY = "oleaster.parallelism";
+	static final String VIRTUAL_THREADS_PROPERTY = "oleaster.virtualThreads";
+	static final String ISOLATED_PROPERTY = "oleaster.isolated";
+	static final String SHARD_INDEX_PROPERTY = "oleaster.shard.index";
+	static final String SHARD_COUNT_PROPERTY = "oleaster.shard.count";
+	static final String HISTORY_PROPERTY = "oleaster.history";
+	static final String HISTORY_DIR_PROPERTY = "oleaster.history.dir";
+	static final String FAILED_SPECS_PROPERTY = "oleaster.failed";
+	static final String BAIL_PROPERTY = "oleaster.bail";
+	static final String TIMEOUT_PROPERTY = "oleaster.timeout";
+	static final String INSTRUMENTATION_PROPERTY = "oleaster.instrumentation";
+	static final String REPORT_PROPERTY = "oleaster.report";
+	static final String REPORT_DIR_PROPERTY = "oleaster.report.dir";
+	static final String REPORT_MAX_MESSAGE_PROPERTY = "oleaster.report.maxMessage";
+	static final String REPORT_MAX_OUTPUT_PROPERTY = "oleaster.report.maxOutput";
+	static final String CAPTURE_PROPERTY = "oleaster.capture";
+	static final String CAPTURE_LIMIT_PROPERTY = "oleaster.capture.limit";
+	static final String PROFILE_PROPERTY = "oleaster.profile";
+	static final String PROFILE_THRESHOLD_PROPERTY = "oleaster.profile.threshold";
+	static final String PROFILE_INTERVAL_PROPERTY = "oleaster.profile.interval";
+
+	private static final String DEFAULT_DIR = "build/oleaster";
+	private static final String HISTORY_FILE_NAME = "history.tsv";
+	private static final String INSTRUMENTATION_DIR_NAME = "instrumentation";
+	private static final String REPORT_DIR_NAME = "reports";
+	private static final String PROFILE_DIR_NAME = "profiles";
+
+	private boolean parallel;
+	private int parallelism;
+	private boolean virtualThreads;
+	private boolean isolated;
+	private int concurrencyLimit;
+	private Shard shard;
+	private Optional<Path> historyFile;
+	private FailedSpecMode failedSpecMode;
+	private int bailThreshold;
+	private long defaultTimeoutMillis;
+	private Optional<Path> instrumentationReport;
+	private Optional<Path> xmlReport;
+	private Optional<Path> jsonReport;
+	private int reportMaxMessageLength;
+	private int reportMaxOutputLength;
+	private boolean captureOutput;
+	private int captureLimit;
+	private Optional<Path> profileReport;
+	private long profileThresholdMillis;
+	private long profileIntervalMillis;
+
+	private RunnerConfiguration() {
+
+	}
+
+	static RunnerConfiguration of(Class<?> testClass) {
+		RunnerConfiguration configuration = new RunnerConfiguration();
+
+		Parallel parallelAnnotation = testClass.getAnnotation(Parallel.class);
+		configuration.virtualThreads = (parallelAnnotation != null && parallelAnnotation.virtualThreads())
+				|| Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+		configuration.isolated = (parallelAnnotation != null && parallelAnnotation.isolated())
+				|| Boolean.getBoolean(ISOLATED_PROPERTY);
+		configuration.parallel = parallelAnnotation != null || configuration.virtualThreads || configuration.isolated
+				|| Boolean.getBoolean(PARALLEL_PROPERTY);
+		int parallelism = Integer.getInteger(PARALLELISM_PROPERTY, parallelAnnotation != null ? parallelAnnotation.threads() : 0);
+		configuration.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+		configuration.concurrencyLimit = Math.max(0, parallelism);
+
+		configuration.shard = Shard.of(Integer.getInteger(SHARD_INDEX_PROPERTY, 0), Integer.getInteger(SHARD_COUNT_PROPERTY, 1));
+		Path historyDir = Paths.get(System.getProperty(HISTORY_DIR_PROPERTY, DEFAULT_DIR));
+		Path reportDir = Paths.get(System.getProperty(REPORT_DIR_PROPERTY, DEFAULT_DIR));
+		configuration.failedSpecMode = FailedSpecMode.of(System.getProperty(FAILED_SPECS_PROPERTY, FailedSpecMode.OFF.name()));
+		// previously failed specs are looked up in the history, so requesting them enables it
+		configuration.historyFile = Boolean.getBoolean(HISTORY_PROPERTY) || configuration.failedSpecMode != FailedSpecMode.OFF
+				? Optional.of(historyDir.resolve(HISTORY_FILE_NAME))
+				: Optional.empty();
+		configuration.instrumentationReport = Boolean.getBoolean(INSTRUMENTATION_PROPERTY)
+				? Optional.of(reportDir.resolve(INSTRUMENTATION_DIR_NAME).resolve(testClass.getName() + ".tsv"))
+				: Optional.empty();
+		List<String> reportFormats = Arrays.asList(System.getProperty(REPORT_PROPERTY, "").toLowerCase(Locale.ROOT).split("\\s*,\\s*"));
+		Path reportsDir = reportDir.resolve(REPORT_DIR_NAME);
+		configuration.xmlReport = reportFormats.contains("xml")
+				? Optional.of(reportsDir.resolve(testClass.getName() + ".xml"))
+				: Optional.empty();
+		configuration.jsonReport = reportFormats.contains("json")
+				? Optional.of(reportsDir.resolve(testClass.getName() + ".ndjson"))
+				: Optional.empty();
+		configuration.reportMaxMessageLength = Math.max(0, Integer.getInteger(REPORT_MAX_MESSAGE_PROPERTY, 8 * 1024));
+		configuration.reportMaxOutputLength = Math.max(0, Integer.getInteger(REPORT_MAX_OUTPUT_PROPERTY, 64 * 1024));
+		configuration.captureOutput = Boolean.getBoolean(CAPTURE_PROPERTY);
+		configuration.captureLimit = Math.max(0, Integer.getInteger(CAPTURE_LIMIT_PROPERTY, 64 * 1024));
+		configuration.profileReport = Boolean.getBoolean(PROFILE_PROPERTY)
+				? Optional.of(reportDir.resolve(PROFILE_DIR_NAME).resolve(testClass.getName() + ".collapsed"))
+				: Optional.empty();
+		configuration.profileThresholdMillis = Math.max(0, Long.getLong(PROFILE_THRESHOLD_PROPERTY, 100));
+		configuration.profileIntervalMillis = Math.max(1, Long.getLong(PROFILE_INTERVAL_PROPERTY, 10));
+
+		Bail bailAnnotation = testClass.getAnnotation(Bail.class);
+		configuration.bailThreshold = Math.max(0, Integer.getInteger(BAIL_PROPERTY, bailAnnotation != null ? bailAnnotation.failures() : 0));
+
+		Timeout timeoutAnnotation = testClass.getAnnotation(Timeout.class);
+		configuration.defaultTimeoutMillis = Math.max(0, Long.getLong(TIMEOUT_PROPERTY, timeoutAnnotation != null ? timeoutAnnotation.millis() : 0));
+		return configuration;
+	}
+
+	boolean isParallel() {
+		return parallel;
+	}
+
+	int getParallelism() {
+		return parallelism;
+	}
+
+	boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	boolean isIsolated() {
+		return isolated;
+	}
+
+	/**
+	 * Returns the maximum number of specs that run at the same time on virtual threads, or 0 if there is no limit.
+	 */
+	int getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	Shard getShard() {
+		return shard;
+	}
+
+	/**
+	 * Returns the file spec durations and failures are recorded to, if the history is enabled.
+	 */
+	Optional<Path> getHistoryFile() {
+		return historyFile;
+	}
+
+	FailedSpecMode getFailedSpecMode() {
+		return failedSpecMode;
+	}
+
+	boolean isBail() {
+		return bailThreshold > 0;
+	}
+
+	/**
+	 * Returns the number of failed specs after which no further specs are started.
+	 */
+	int getBailThreshold() {
+		return bailThreshold;
+	}
+
+	/**
+	 * Returns the timeout in milliseconds for specs without a timeout, or 0 if these specs have no timeout.
+	 */
+	long getDefaultTimeoutMillis() {
+		return defaultTimeoutMillis;
+	}
+
+	/**
+	 * Returns the file the phase measurements of the test class are written to, if instrumentation is enabled.
+	 */
+	Optional<Path> getInstrumentationReport() {
+		return instrumentationReport;
+	}
+
+	/**
+	 * Returns the file the JUnit XML report of the test class is written to, if XML reporting is enabled.
+	 */
+	Optional<Path> getXmlReport() {
+		return xmlReport;
+	}
+
+	/**
+	 * Returns the file the newline delimited JSON report of the test class is written to, if JSON reporting is enabled.
+	 */
+	Optional<Path> getJsonReport() {
+		return jsonReport;
+	}
+
+	/**
+	 * Returns the number of characters after which failure messages and stack traces are truncated in reports.
+	 */
+	int getReportMaxMessageLength() {
+		return reportMaxMessageLength;
+	}
+
+	/**
+	 * Returns the number of characters after which the output of a spec is truncated in reports.
+	 */
+	int getReportMaxOutputLength() {
+		return reportMaxOutputLength;
+	}
+
+	/**
+	 * Returns true if the output of specs is captured and only printed if a spec fails.
+	 */
+	boolean isCaptureOutput() {
+		return captureOutput;
+	}
+
+	/**
+	 * Returns the number of bytes of output that are kept per spec. Older output is dropped.
+	 */
+	int getCaptureLimit() {
+		return captureLimit;
+	}
+
+	/**
+	 * Returns the file the collapsed stacks of slow specs are written to, if profiling is enabled.
+	 */
+	Optional<Path> getProfileReport() {
+		return profileReport;
+	}
+
+	/**
+	 * Returns the number of milliseconds a spec has to run before its stacks are sampled.
+	 */
+	long getProfileThresholdMillis() {
+		return profileThresholdMillis;
+	}
+
+	/**
+	 * Returns the number of milliseconds between two samples of a slow spec.
+	 */
+	long getProfileIntervalMillis() {
+		return profileIntervalMillis;
+	}
+
+
+	/**
+	 * How specs that failed in the previous run are treated.
+	 */
+	enum FailedSpecMode {
+		/** Previously failed specs are run before all other specs. */
+		FIRST,
+		/** Only previously failed specs are run. If no spec of the test class failed, all specs are run. */
+		ONLY,
+		/** All specs are run in declaration order. This is the default. */
+		OFF;
+
+		/**
+		 * Returns the mode of the value of {@code oleaster.failed}, ignoring case.
+		 * @throws IllegalArgumentException if the value is not the name of a mode
+		 */
+		static FailedSpecMode of(String value) {
+			return Stream.of(values())
+					.filter(mode -> mode.name().equalsIgnoreCase(value.trim()))
+					.findFirst()
+					.orElseThrow(() -> new IllegalArgumentException(String.format(
+							"Invalid value '%s' of system property %s, expected one of %s", value, FAILED_SPECS_PROPERTY,
+							Stream.of(values()).map(mode -> mode.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")))));
+		}
+	}
+}
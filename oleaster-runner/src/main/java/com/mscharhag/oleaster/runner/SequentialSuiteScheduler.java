@@ -0,0 +1,41 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Runs all suites one after another on the calling thread.
+ * <p>The calling thread waits for asynchronous specs to complete.
+ */
+class SequentialSuiteScheduler implements SuiteScheduler {
+
+	@Override
+	public void run(Suite suite, Function<Spec, CompletableFuture<Void>> specRunner, BooleanSupplier cancelled) {
+		for (Spec spec : suite.getSpecs()) {
+			if (cancelled.getAsBoolean()) {
+				return;
+			}
+			AsyncInvokables.join(specRunner.apply(spec));
+		}
+		suite.getSuites().forEach(child -> this.run(child, specRunner, cancelled));
+	}
+}
@@ -0,0 +1,60 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+/**
+ * One of several disjoint parts of the specs of a test run.
+ * <p>Specs are assigned to shards by the hash code of their path. As {@link String#hashCode()}
+ * is specified by the Java language, the assignment is identical on every machine.
+ */
+class Shard {
+
+	static final Shard ALL = new Shard(0, 1);
+
+	private final int index;
+	private final int count;
+
+	private Shard(int index, int count) {
+		this.index = index;
+		this.count = count;
+	}
+
+	static Shard of(int index, int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException(String.format("Shard count must be at least 1, got %d", count));
+		}
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException(String.format("Shard index must be between 0 and %d, got %d", count - 1, index));
+		}
+		return count == 1 ? ALL : new Shard(index, count);
+	}
+
+	boolean contains(String specPath) {
+		return Math.floorMod(specPath.hashCode(), count) == index;
+	}
+
+	boolean isAll() {
+		return count == 1;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	int getCount() {
+		return count;
+	}
+}
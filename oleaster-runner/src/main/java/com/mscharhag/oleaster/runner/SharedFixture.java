@@ -0,0 +1,79 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A fixture that is shared by all suites and test classes of a JVM, e.g. an embedded broker or database.
+ * <p>Shared fixtures are identified by their name. The first suite that acquires a fixture creates it, later suites
+ * get the same value. Every suite that declares the fixture using {@code sharedFixture()} acquires it in a
+ * {@code before} handler and releases it in an {@code after} handler. Once the last suite released the fixture, it is
+ * closed after a short delay, so test classes that run one after another can still share it. If the delayed close fails,
+ * the next suite that acquires the fixture fails. Fixtures that are still open when the JVM exits are closed by a shutdown hook.
+ * <p>The delay is set in milliseconds using the system property {@code oleaster.fixture.linger} (default 1000).
+ * A delay of 0 closes fixtures immediately, a negative delay keeps them open until the JVM exits.
+ * <p>For example:
+ * <pre>
+ *	describe("a message listener", () -&gt; {
+ *		SharedFixture&lt;Broker&gt; broker = sharedFixture("broker", () -&gt; Broker.start(), Broker::stop);
+ *		it("receives messages", () -&gt; {
+ *			broker.get().send("message");
+ *			...
+ *		});
+ *	});
+ * </pre>
+ * @param <T> The type of the fixture
+ */
+public final class SharedFixture<T> {
+
+	private final String name;
+	private final Callable<T> factory;
+	private final Let.Closer<? super T> closer;
+
+	public SharedFixture(String name, Callable<T> factory, Let.Closer<? super T> closer) {
+		this.name = name;
+		this.factory = factory;
+		this.closer = closer;
+	}
+
+	/**
+	 * Returns the fixture and increments its reference count. The fixture is created if it is not open.
+	 * If a fixture with the same name is already open, its value is returned and the factory is not used.
+	 */
+	public T acquire() throws Exception {
+		return SharedFixtureRegistry.shared().acquire(this.name, this.factory, this.closer);
+	}
+
+	/**
+	 * Decrements the reference count of the fixture. The fixture is closed once it is not used anymore.
+	 */
+	public void release() {
+		SharedFixtureRegistry.shared().release(this.name);
+	}
+
+	/**
+	 * Returns the fixture.
+	 * @throws IllegalStateException if the fixture has not been acquired
+	 */
+	public T get() {
+		return SharedFixtureRegistry.shared().get(this.name);
+	}
+
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference counted registry of {@link SharedFixture}s.
+ * <p>Every fixture name has its own entry and lock, so fixtures with different names are created and closed
+ * concurrently. A fixture that is acquired while it is being created or closed waits until that is finished.
+ * Delayed closes are scheduled on the shared {@link TimerWheel} and run on the common ForkJoinPool.
+ * <p>A delayed close has no suite to report a failure to. Its failure is kept with the fixture and thrown by the next
+ * {@link #acquire(String, Callable, Let.Closer)} of the same fixture, which fails the {@code before} handler of that suite,
+ * or by {@link #closeAll()} at the latest.
+ */
+class SharedFixtureRegistry {
+
+	static final String LINGER_PROPERTY = "oleaster.fixture.linger";
+
+	private static final SharedFixtureRegistry SHARED = new SharedFixtureRegistry(Long.getLong(LINGER_PROPERTY, 1000));
+
+	private volatile long lingerMillis;
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	SharedFixtureRegistry(long lingerMillis) {
+		this.lingerMillis = lingerMillis;
+	}
+
+	static SharedFixtureRegistry shared() {
+		return SHARED;
+	}
+
+	long getLingerMillis() {
+		return lingerMillis;
+	}
+
+	/**
+	 * Sets the delay of closes that are scheduled from now on.
+	 */
+	void setLingerMillis(long lingerMillis) {
+		this.lingerMillis = lingerMillis;
+	}
+
+	static {
+		Thread hook = new Thread(SHARED::closeAll, "oleaster-fixture-shutdown");
+		Runtime.getRuntime().addShutdownHook(hook);
+	}
+
+	/**
+	 * Returns the fixture and increments its reference count. If the last delayed close of the fixture failed, the fixture
+	 * is acquired nonetheless and the failure is thrown, so the caller still has to release the fixture.
+	 */
+	<T> T acquire(String name, Callable<T> factory, Let.Closer<? super T> closer) throws Exception {
+		return this.entries.computeIfAbsent(name, Entry::new).acquire(factory, closer);
+	}
+
+	void release(String name) {
+		Entry entry = this.entries.get(name);
+		if (entry == null) {
+			throw new IllegalStateException(String.format("Shared fixture '%s' has not been acquired", name));
+		}
+		entry.release();
+	}
+
+	<T> T get(String name) {
+		Entry entry = this.entries.get(name);
+		if (entry == null) {
+			throw new IllegalStateException(String.format("Shared fixture '%s' has not been acquired", name));
+		}
+		return entry.get();
+	}
+
+	/**
+	 * Closes all open fixtures, regardless of their reference count. All fixtures are closed, the first failure
+	 * is thrown with the other failures, including failed delayed closes that have not been thrown yet, added as
+	 * suppressed exceptions.
+	 */
+	void closeAll() {
+		RuntimeException failure = null;
+		for (Entry entry : new ArrayList<>(this.entries.values())) {
+			for (RuntimeException closeFailure : entry.closeWithFailures()) {
+				if (failure == null) {
+					failure = closeFailure;
+				} else {
+					failure.addSuppressed(closeFailure);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+
+	private static RuntimeException closeFailure(String name, Exception cause) {
+		return new RuntimeException(String.format("Shared fixture '%s' could not be closed: %s", name, cause.getMessage()), cause);
+	}
+
+
+	private class Entry {
+
+		private final String name;
+		private boolean open;
+		private Object value;
+		private Let.Closer<Object> closer;
+		private int references;
+		// incremented on every acquire, so a delayed close does not close a fixture that has been acquired meanwhile
+		private long generation;
+		private TimerWheel.Entry delayedClose;
+		// failure of the last delayed close that has not been thrown yet
+		private RuntimeException delayedCloseFailure;
+
+		Entry(String name) {
+			this.name = name;
+		}
+
+		@SuppressWarnings("unchecked")
+		synchronized <T> T acquire(Callable<T> factory, Let.Closer<? super T> closer) throws Exception {
+			if (!this.open) {
+				this.value = factory.call();
+				this.closer = (Let.Closer<Object>) closer;
+				this.open = true;
+			}
+			if (this.delayedClose != null) {
+				this.delayedClose.cancel();
+				this.delayedClose = null;
+			}
+			this.references++;
+			this.generation++;
+			if (this.delayedCloseFailure != null) {
+				RuntimeException failure = this.delayedCloseFailure;
+				this.delayedCloseFailure = null;
+				throw failure;
+			}
+			return (T) this.value;
+		}
+
+		synchronized void release() {
+			if (this.references == 0) {
+				throw new IllegalStateException(String.format("Shared fixture '%s' has been released more often than acquired", this.name));
+			}
+			this.references--;
+			if (this.references > 0 || lingerMillis < 0) {
+				return;
+			}
+			if (lingerMillis == 0) {
+				try {
+					this.close();
+				} catch (Exception e) {
+					throw closeFailure(this.name, e);
+				}
+				return;
+			}
+			long closedGeneration = this.generation;
+			this.delayedClose = TimerWheel.shared().schedule(lingerMillis, TimeUnit.MILLISECONDS,
+					() -> CompletableFuture.runAsync(() -> this.closeIfUnused(closedGeneration)));
+		}
+
+		@SuppressWarnings("unchecked")
+		synchronized <T> T get() {
+			if (this.references == 0) {
+				throw new IllegalStateException(String.format("Shared fixture '%s' has not been acquired", this.name));
+			}
+			return (T) this.value;
+		}
+
+		private synchronized void closeIfUnused(long closedGeneration) {
+			if (this.references == 0 && this.generation == closedGeneration) {
+				try {
+					this.close();
+				} catch (Exception e) {
+					this.delayedCloseFailure = closeFailure(this.name, e);
+				}
+			}
+		}
+
+		/**
+		 * Closes the fixture and returns the failures of closing it and of the last delayed close.
+		 */
+		synchronized List<RuntimeException> closeWithFailures() {
+			List<RuntimeException> failures = new ArrayList<>();
+			if (this.delayedCloseFailure != null) {
+				failures.add(this.delayedCloseFailure);
+				this.delayedCloseFailure = null;
+			}
+			try {
+				this.close();
+			} catch (Exception e) {
+				failures.add(closeFailure(this.name, e));
+			}
+			return failures;
+		}
+
+		synchronized void close() throws Exception {
+			if (!this.open) {
+				return;
+			}
+			Object closedValue = this.value;
+			Let.Closer<Object> closedCloser = this.closer;
+			this.open = false;
+			this.value = null;
+			this.closer = null;
+			this.delayedClose = null;
+			closedCloser.close(closedValue);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.runners.model.MultipleFailureException;
+import org.junit.runners.model.Statement;
+
+/**
+ * The state of a running spec that is bound to the threads that run its blocks: the {@link OutputBuffer} that
+ * captures its output and the {@link SpecProfiler.Profile} that its stacks are sampled into. Either can be absent.
+ * <p>Specs that neither capture output nor are profiled have no binding, the static methods accept {@code null}.
+ */
+final class SpecBinding {
+
+	private static final ThreadLocal<SpecBinding> CURRENT = new ThreadLocal<>();
+
+	private final OutputBuffer output;
+	private final SpecProfiler.Profile profile;
+
+	private SpecBinding(OutputBuffer output, SpecProfiler.Profile profile) {
+		this.output = output;
+		this.profile = profile;
+	}
+
+	/**
+	 * Returns a binding of the output buffer and the profile, or {@code null} if both are {@code null}.
+	 */
+	static SpecBinding of(OutputBuffer output, SpecProfiler.Profile profile) {
+		return output != null || profile != null ? new SpecBinding(output, profile) : null;
+	}
+
+	/**
+	 * Returns the buffer that captures the output of the spec, or {@code null} if output is not captured.
+	 */
+	OutputBuffer getOutput() {
+		return output;
+	}
+
+	/**
+	 * Returns the profile of the spec, or {@code null} if the spec is not profiled.
+	 */
+	SpecProfiler.Profile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Returns the binding that is bound to the current thread, or {@code null} if there is none.
+	 */
+	static SpecBinding current() {
+		return CURRENT.get();
+	}
+
+	private Previous enter() {
+		Previous previous = new Previous(CURRENT.get(), this.output != null ? OutputCapture.enter(this.output) : null);
+		CURRENT.set(this);
+		if (this.profile != null) {
+			this.profile.enter(Thread.currentThread());
+		}
+		return previous;
+	}
+
+	private void exit(Previous previous) {
+		if (this.output != null) {
+			OutputCapture.exit(previous.output);
+		}
+		if (this.profile != null) {
+			this.profile.exit(Thread.currentThread());
+		}
+		if (previous.binding != null) {
+			CURRENT.set(previous.binding);
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Runs the runnable with the binding bound to the current thread. If the binding is {@code null}, the runnable is just run.
+	 */
+	static void run(SpecBinding binding, Runnable runnable) {
+		if (binding == null) {
+			runnable.run();
+			return;
+		}
+		Previous previous = binding.enter();
+		try {
+			runnable.run();
+		} finally {
+			binding.exit(previous);
+		}
+	}
+
+	/**
+	 * Returns a statement that is evaluated with the binding bound to the current thread.
+	 * If the binding is {@code null}, the statement is returned unchanged.
+	 */
+	static Statement bind(SpecBinding binding, Statement statement) {
+		if (binding == null) {
+			return statement;
+		}
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Previous previous = binding.enter();
+				try {
+					statement.evaluate();
+				} finally {
+					binding.exit(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a statement that attaches the captured output to the failure of the given statement
+	 * (see {@link #attachOutput(SpecBinding, Throwable)}). The binding is not bound by the returned statement.
+	 */
+	static Statement attachOutput(SpecBinding binding, Statement statement) {
+		if (binding == null || binding.output == null) {
+			return statement;
+		}
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				try {
+					statement.evaluate();
+				} catch (Throwable t) {
+					attachOutput(binding, t);
+					throw t;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Attaches the captured output to the failure of a spec, unless the failure is a violated assumption.
+	 * Multiple failures are reported one by one, so the output is attached to the first of them.
+	 * Does nothing if the binding is {@code null} or output is not captured.
+	 */
+	static void attachOutput(SpecBinding binding, Throwable failure) {
+		if (failure instanceof MultipleFailureException) {
+			failure = ((MultipleFailureException) failure).getFailures().get(0);
+		}
+		if (binding != null && binding.output != null && !(failure instanceof AssumptionViolatedException)) {
+			OutputCapture.attach(binding.output, failure);
+		}
+	}
+
+	/**
+	 * Returns a block of the same kind that runs the given block with the binding bound to the current thread.
+	 * If the binding is {@code null}, the block is returned unchanged.
+	 */
+	static Invokable bind(SpecBinding binding, Invokable block) {
+		if (binding == null) {
+			return block;
+		}
+		return AsyncInvokables.wrap(block, callable -> {
+			Previous previous = binding.enter();
+			try {
+				return callable.call();
+			} finally {
+				binding.exit(previous);
+			}
+		});
+	}
+
+
+	private static class Previous {
+
+		private final SpecBinding binding;
+		private final OutputBuffer output;
+
+		Previous(SpecBinding binding, OutputBuffer output) {
+			this.binding = binding;
+			this.output = output;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Results of previously executed specs, identified by their spec path.
+ * <p>The history is stored as a text file with one {@code <microseconds><tab><F|P><tab><spec path>} line per spec,
+ * {@code F} marks specs that failed in their last run. Results recorded during a run are merged into the file
+ * when {@link #save()} is called. The file is locked while it is merged, so multiple JVMs can update the same
+ * history concurrently. Entries of specs that no longer exist are dropped when the history is saved
+ * (see {@link #retainOnly(String, Set)}).
+ * <p>The history is only a hint for scheduling. Unreadable files or entries are ignored.
+ */
+class SpecHistory {
+
+	private static final Object JVM_LOCK = new Object();
+	private static final String FAILED = "F";
+	private static final String PASSED = "P";
+
+	private final Path file;
+	private final Map<String, Entry> entries;
+	private final Map<String, Entry> recordedEntries = new ConcurrentHashMap<>();
+	private volatile String retainedPrefix;
+	private volatile Set<String> retainedSpecPaths;
+
+	private SpecHistory(Path file, Map<String, Entry> entries) {
+		this.file = file;
+		this.entries = entries;
+	}
+
+	static SpecHistory load(Path file) {
+		return new SpecHistory(file, read(file));
+	}
+
+	/**
+	 * Returns the duration of the spec in microseconds, if the spec has been executed before.
+	 */
+	OptionalLong getDuration(String specPath) {
+		Entry entry = this.entries.get(specPath);
+		return entry != null ? OptionalLong.of(entry.duration) : OptionalLong.empty();
+	}
+
+	/**
+	 * Returns true if the spec failed the last time it was executed.
+	 */
+	boolean hasFailed(String specPath) {
+		Entry entry = this.entries.get(specPath);
+		return entry != null && entry.failed;
+	}
+
+	/**
+	 * Returns true if any spec whose path starts with the prefix failed the last time it was executed.
+	 */
+	boolean hasFailures(String prefix) {
+		return this.entries.entrySet().stream().anyMatch(entry -> entry.getKey().startsWith(prefix) && entry.getValue().failed);
+	}
+
+	/**
+	 * Drops the entries of specs whose path starts with the prefix, but that are not contained in the given
+	 * spec paths, when the history is saved. Used with the prefix of a test class and all its current specs,
+	 * so specs that have been renamed or removed do not stay in the history forever.
+	 */
+	void retainOnly(String prefix, Set<String> specPaths) {
+		this.retainedSpecPaths = specPaths;
+		this.retainedPrefix = prefix;
+	}
+
+	void record(String specPath, long durationNanos, boolean failed) {
+		if (specPath.indexOf('\n') < 0 && specPath.indexOf('\r') < 0) {
+			this.recordedEntries.put(specPath, new Entry(durationNanos / 1000, failed));
+		}
+	}
+
+	/**
+	 * Merges the recorded results into the history file.
+	 * <p>Durations of specs that have been executed before are averaged with the stored duration,
+	 * so a single slow run does not reorder suites. The failure state is replaced by the recorded one.
+	 */
+	void save() {
+		String prefix = this.retainedPrefix;
+		if (this.recordedEntries.isEmpty() && prefix == null) {
+			return;
+		}
+		synchronized (JVM_LOCK) {
+			try {
+				Files.createDirectories(this.file.toAbsolutePath().getParent());
+				Path lockFile = this.file.resolveSibling(this.file.getFileName() + ".lock");
+				try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+					FileLock lock = channel.lock();
+					try {
+						Map<String, Entry> merged = read(this.file);
+						if (prefix != null) {
+							merged.keySet().removeIf(specPath -> specPath.startsWith(prefix) && !this.retainedSpecPaths.contains(specPath));
+						}
+						this.recordedEntries.forEach((specPath, entry) -> merged.merge(specPath, entry, (stored, recorded) ->
+								new Entry((stored.duration + recorded.duration) / 2, recorded.failed)));
+						write(this.file, merged);
+					} finally {
+						lock.release();
+					}
+				}
+			} catch (IOException e) {
+				// a history that can not be written only affects the order of future runs
+			}
+		}
+	}
+
+
+	private static Map<String, Entry> read(Path file) {
+		Map<String, Entry> entries = new HashMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 3);
+				if (fields.length == 3 && (FAILED.equals(fields[1]) || PASSED.equals(fields[1]))) {
+					try {
+						entries.put(fields[2], new Entry(Long.parseLong(fields[0]), FAILED.equals(fields[1])));
+					} catch (NumberFormatException e) {
+						// skip corrupt entries
+					}
+				}
+			}
+		} catch (NoSuchFileException e) {
+			// no history yet
+		} catch (IOException e) {
+			entries.clear();
+		}
+		return entries;
+	}
+
+
+	private static void write(Path file, Map<String, Entry> entries) throws IOException {
+		Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+					writer.write(Long.toString(entry.getValue().duration));
+					writer.write('\t');
+					writer.write(entry.getValue().failed ? FAILED : PASSED);
+					writer.write('\t');
+					writer.write(entry.getKey());
+					writer.newLine();
+				}
+			}
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+
+	private static class Entry {
+
+		private final long duration;
+		private final boolean failed;
+
+		Entry(long duration, boolean failed) {
+			this.duration = duration;
+			this.failed = failed;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * An {@link ExecutionListener} that collects the measurements of all phases of a test run.
+ * <pre>
+ *     SpecInstrumentation instrumentation = new SpecInstrumentation();
+ *     OleasterRunner runner = new OleasterRunner(MyTest.class);
+ *     runner.addExecutionListener(instrumentation);
+ *     runner.run(notifier);
+ *     instrumentation.getMeasurements().forEach(System.out::println);
+ * </pre>
+ * <p>Setting the system property {@code oleaster.instrumentation} to {@code true} registers a SpecInstrumentation
+ * for every test class and writes its report to {@code build/oleaster/instrumentation/<test class>.tsv}.
+ */
+public class SpecInstrumentation implements ExecutionListener {
+
+	static final String REPORT_HEADER = "phase\twall_ns\tcpu_ns\tallocated_bytes\tpath";
+
+	private final Queue<PhaseMeasurement> measurements = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public boolean isMeasuring() {
+		return true;
+	}
+
+	@Override
+	public void phaseFinished(PhaseMeasurement measurement) {
+		this.measurements.add(measurement);
+	}
+
+	/**
+	 * Returns all measurements in the order in which the phases finished.
+	 */
+	public List<PhaseMeasurement> getMeasurements() {
+		return new ArrayList<>(this.measurements);
+	}
+
+	/**
+	 * Returns the measurements of the {@code beforeEach}, body and {@code afterEach} phases of the spec.
+	 */
+	public List<PhaseMeasurement> getMeasurements(Spec spec) {
+		return this.measurements.stream()
+				.filter(measurement -> measurement.getSpec().map(s -> s.getFullDescription().equals(spec.getFullDescription())).orElse(false))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Writes the measurements as tab separated values, one line per phase, preceded by a header line.
+	 * Values that could not be measured are written as {@code -1}.
+	 */
+	public void writeReport(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(REPORT_HEADER);
+			writer.newLine();
+			for (PhaseMeasurement measurement : this.measurements) {
+				writer.write(measurement.getPhase().name());
+				writer.write('\t');
+				writer.write(Long.toString(measurement.getWallTimeNanos()));
+				writer.write('\t');
+				writer.write(Long.toString(measurement.getCpuTimeNanos()));
+				writer.write('\t');
+				writer.write(Long.toString(measurement.getAllocatedBytes()));
+				writer.write('\t');
+				writer.write(measurement.getPath().replace('\t', ' ').replace('\r', ' ').replace('\n', ' '));
+				writer.newLine();
+			}
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the stacks of specs that run longer than a threshold and aggregates them into collapsed stacks.
+ * <p>Every running spec has a {@link Profile} that knows the threads its blocks currently run on (see {@link SpecBinding}).
+ * A single daemon thread wakes up once per interval and samples the threads of every spec that has been running for
+ * at least the threshold. Specs that finish earlier are never sampled, they only register and unregister their profile.
+ * <p>The report contains one line per distinct stack in the format of Brendan Gregg's {@code stackcollapse} scripts,
+ * so it can be turned into a flame graph directly. The first frame of every stack is the path of the spec, frames
+ * are ordered from the root to the leaf, followed by the number of samples.
+ */
+final class SpecProfiler {
+
+	private static final String THREAD_NAME = "oleaster-profiler";
+
+	private final long thresholdNanos;
+	private final long intervalMillis;
+	private final Set<Profile> running = ConcurrentHashMap.newKeySet();
+	// only modified by the sampler thread, read once the sampler thread has been stopped
+	private final Map<String, Long> stacks = new TreeMap<>();
+	private Thread sampler;
+	private boolean closed;
+
+	SpecProfiler(long thresholdMillis, long intervalMillis) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.intervalMillis = Math.max(1, intervalMillis);
+	}
+
+	/**
+	 * Starts the profile of a spec. The spec is sampled once it has been running for the threshold.
+	 */
+	Profile start(String specPath) {
+		Profile profile = new Profile(specPath, System.nanoTime());
+		this.running.add(profile);
+		this.startSampler();
+		return profile;
+	}
+
+	/**
+	 * Stops sampling the spec of the profile.
+	 */
+	void finish(Profile profile) {
+		this.running.remove(profile);
+	}
+
+	/**
+	 * Stops sampling and waits until the last sample has been taken.
+	 */
+	void close() {
+		Thread samplerThread;
+		synchronized (this) {
+			this.closed = true;
+			samplerThread = this.sampler;
+		}
+		if (samplerThread == null) {
+			return;
+		}
+		samplerThread.interrupt();
+		boolean interrupted = false;
+		while (samplerThread.isAlive()) {
+			try {
+				samplerThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of samples per collapsed stack. Must not be called before the profiler has been closed.
+	 */
+	Map<String, Long> getStacks() {
+		return this.stacks;
+	}
+
+	/**
+	 * Writes the collapsed stacks to the file. Must not be called before the profiler has been closed.
+	 */
+	void writeReport(Path file) throws IOException {
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Long> entry : this.stacks.entrySet()) {
+				writer.write(entry.getKey());
+				writer.write(' ');
+				writer.write(Long.toString(entry.getValue()));
+				writer.newLine();
+			}
+		}
+	}
+
+	private synchronized void startSampler() {
+		if (this.sampler == null && !this.closed) {
+			this.sampler = new Thread(this::sample, THREAD_NAME);
+			this.sampler.setDaemon(true);
+			this.sampler.start();
+		}
+	}
+
+	private void sample() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(this.intervalMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			long now = System.nanoTime();
+			for (Profile profile : this.running) {
+				if (now - profile.startNanos >= this.thresholdNanos) {
+					this.sample(profile);
+				}
+			}
+		}
+	}
+
+	private void sample(Profile profile) {
+		for (Thread thread : profile.threads.keySet()) {
+			StackTraceElement[] stack = thread.getStackTrace();
+			// the thread may have left the spec while its stack was taken
+			if (stack.length > 0 && profile.threads.containsKey(thread)) {
+				this.stacks.merge(collapse(profile.frame, stack), 1L, Long::sum);
+			}
+		}
+	}
+
+	private static String collapse(String root, StackTraceElement[] stack) {
+		StringBuilder sb = new StringBuilder(root);
+		for (int i = stack.length - 1; i >= 0; i--) {
+			sb.append(';').append(frame(stack[i].getClassName() + '.' + stack[i].getMethodName()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Replaces the characters that separate frames and lines in collapsed stacks.
+	 */
+	private static String frame(String name) {
+		return name.replace(';', ',').replace('\n', ' ').replace('\r', ' ');
+	}
+
+
+	/**
+	 * The threads a running spec is currently bound to.
+	 */
+	static final class Profile {
+
+		private final String frame;
+		private final long startNanos;
+		private final Map<Thread, Integer> threads = new ConcurrentHashMap<>();
+
+		private Profile(String specPath, long startNanos) {
+			this.frame = frame(specPath);
+			this.startNanos = startNanos;
+		}
+
+		void enter(Thread thread) {
+			this.threads.merge(thread, 1, Integer::sum);
+		}
+
+		void exit(Thread thread) {
+			this.threads.computeIfPresent(thread, (t, count) -> count > 1 ? count - 1 : null);
+		}
+	}
+}
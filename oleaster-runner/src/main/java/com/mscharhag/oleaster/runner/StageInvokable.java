@@ -0,0 +1,45 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A StageInvokable is a block of code that returns a {@link CompletionStage} which completes
+ * once the block is finished.
+ * <p>StageInvokables can be passed to {@code it()}, {@code beforeEach()} and {@code afterEach()}:
+ * <pre>{@code
+ * it("loads the user", () -> userService.load(42).thenAccept(user -> {
+ *     assertEquals("John", user.getName());
+ * }));
+ * }</pre>
+ * <p>The block fails if the returned stage completes exceptionally. When run in parallel mode,
+ * Oleaster does not block a thread while waiting for the stage to complete.
+ */
+@FunctionalInterface
+public interface StageInvokable extends Invokable {
+
+	CompletionStage<?> call() throws Exception;
+
+	/**
+	 * Runs the block and waits until the returned stage is completed.
+	 */
+	@Override
+	default void invoke() throws Exception {
+		AsyncInvokables.await(AsyncInvokables.start(this));
+	}
+
+}
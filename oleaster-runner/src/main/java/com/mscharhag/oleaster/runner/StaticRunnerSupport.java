@@ -17,11 +17,16 @@ package com.mscharhag.oleaster.runner;
 
 import com.mscharhag.oleaster.runner.suite.SuiteBuilder;
 
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
 /**
  * {@code StaticRunnerSupport} gives access to a {@link com.mscharhag.oleaster.runner.suite.SuiteBuilder}
  * using static methods.
  * <p>Using {@code StaticRunnerSupport} is the preferred way to build a test suite.
  * For fluent access it is recommended to statically import the methods of this class.
+ * <p>The {@code SuiteBuilder} is bound to the thread that evaluates a suite definition, so
+ * suite definitions of different test classes can be evaluated concurrently.
  */
 public class StaticRunnerSupport {
 
@@ -29,10 +34,18 @@ public class StaticRunnerSupport {
 
 	}
 
-	private static SuiteBuilder suiteBuilder;
+	private static final ThreadLocal<SuiteBuilder> suiteBuilder = new ThreadLocal<>();
 
 	static void setSuiteBuilder(SuiteBuilder sb) {
-		suiteBuilder = sb;
+		if (sb == null) {
+			suiteBuilder.remove();
+		} else {
+			suiteBuilder.set(sb);
+		}
+	}
+
+	static SuiteBuilder getSuiteBuilder() {
+		return suiteBuilder.get();
 	}
 
 	/**
@@ -54,7 +67,66 @@ public class StaticRunnerSupport {
 	 */
 	public static void describe(String text, Invokable block) {
 		failIfNoSuiteBuilderAvailable("describe");
-		suiteBuilder.describe(text, block);
+		getSuiteBuilder().describe(text, block);
+	}
+
+	/**
+	 * Creates a new test suite with a timeout.
+	 * <p>The timeout applies to every spec of the suite and its child suites that does not define its own timeout,
+	 * and to the {@code before} and {@code after} handlers of the suite. A spec that does not complete within the
+	 * timeout is interrupted and fails, the next spec is started without waiting for it.
+	 * <p>For example:
+	 * <pre>{@code
+	 * describe("my test suite", Duration.ofSeconds(5), () -> {
+	 *     ...
+	 * });
+	 * }</pre>
+	 * @param text A description of the test suite
+	 * @param timeout The maximum duration of every spec in the test suite
+	 * @param block A code block that represents the test suite
+	 */
+	public static void describe(String text, Duration timeout, Invokable block) {
+		failIfNoSuiteBuilderAvailable("describe");
+		getSuiteBuilder().describe(text, timeout, block);
+	}
+
+	/**
+	 * Creates a new test suite that locks resources.
+	 * <p>In parallel mode the suite, including its handlers, specs and child suites, does not run at the same time
+	 * as other suites or specs with a conflicting resource lock. Suites without conflicting locks still run concurrently.
+	 * <p>For example:
+	 * <pre>{@code
+	 * describe("my server", ResourceLock.write("port 8080"), () -> {
+	 *     ...
+	 * });
+	 * }</pre>
+	 * @param text A description of the test suite
+	 * @param resourceLock The resources used by the test suite
+	 * @param block A code block that represents the test suite
+	 */
+	public static void describe(String text, ResourceLock resourceLock, Invokable block) {
+		failIfNoSuiteBuilderAvailable("describe");
+		getSuiteBuilder().describe(text, resourceLock, block);
+	}
+
+	/**
+	 * Creates a test suite for every row.
+	 * <p>The text is used as format string ({@link String#format(String, Object...)}), the values of a row
+	 * are the format arguments. Texts that are not unique get the number of the row appended, texts without
+	 * format specifiers are named by the number of the row.
+	 * <p>For example:
+	 * <pre>{@code
+	 * describeEach("a %s account", Rows.from(Arrays.asList("free", "premium")), type -> {
+	 *     ...
+	 * });
+	 * }</pre>
+	 * @param text A format string for the description of every test suite
+	 * @param rows The rows, e.g. an in-memory table or a CSV file (see {@link Rows})
+	 * @param block A code block that represents the test suite of a row
+	 */
+	public static <T> void describeEach(String text, Rows<T> rows, RowInvokable<T> block) {
+		failIfNoSuiteBuilderAvailable("describeEach");
+		getSuiteBuilder().describeEach(text, rows, block);
 	}
 
 	/**
@@ -76,7 +148,7 @@ public class StaticRunnerSupport {
 	 */
 	public static void fdescribe(String text, Invokable block) {
 		failIfNoSuiteBuilderAvailable("fdescribe");
-		suiteBuilder.fdescribe(text, block);
+		getSuiteBuilder().fdescribe(text, block);
 	}
 
 	/**
@@ -99,7 +171,7 @@ public class StaticRunnerSupport {
 	 */
 	public static void xdescribe(String text, PendingInvokable block) {
 		failIfNoSuiteBuilderAvailable("xdescribe");
-		suiteBuilder.xdescribe(text, block);
+		getSuiteBuilder().xdescribe(text, block);
 	}
 
 
@@ -117,7 +189,103 @@ public class StaticRunnerSupport {
 	 */
 	public static void it(String text, Invokable block) {
 		failIfNoSuiteBuilderAvailable("it");
-		suiteBuilder.it(text, block);
+		getSuiteBuilder().it(text, block);
+	}
+
+	/**
+	 * Create a new asynchronous spec that signals its completion using a {@link Done} handle.
+	 * <p>For example:
+	 * <pre>{@code
+	 * it("loads the user", done -> {
+	 *   userService.load(42, user -> {
+	 *     assertEquals("John", user.getName());
+	 *     done.complete();
+	 *   });
+	 * });
+	 * }</pre>
+	 * @param text A description of the expected behavior
+	 * @param block A code block that implements the validation
+	 */
+	public static void it(String text, AsyncInvokable block) {
+		failIfNoSuiteBuilderAvailable("it");
+		getSuiteBuilder().it(text, block);
+	}
+
+	/**
+	 * Create a new asynchronous spec that completes with the returned {@code CompletionStage}.
+	 * <p>For example:
+	 * <pre>{@code
+	 * it("loads the user", () -> userService.load(42).thenAccept(user -> {
+	 *   assertEquals("John", user.getName());
+	 * }));
+	 * }</pre>
+	 * @param text A description of the expected behavior
+	 * @param block A code block that implements the validation
+	 */
+	public static void it(String text, StageInvokable block) {
+		failIfNoSuiteBuilderAvailable("it");
+		getSuiteBuilder().it(text, block);
+	}
+
+	/**
+	 * Create a new spec with a timeout.
+	 * <p>A spec that does not complete within the timeout is interrupted and fails, the next spec is started
+	 * without waiting for it. The {@code beforeEach} and {@code afterEach} handlers of the spec have to complete
+	 * within the same timeout.
+	 * <p>For example:
+	 * <pre>{@code
+	 * it("returns a list containing one item", Duration.ofMillis(500), () -> {
+	 *   assertEquals(1, getList().size());
+	 * });
+	 * }</pre>
+	 * @param text A description of the expected behavior
+	 * @param timeout The maximum duration of the spec
+	 * @param block A code block that implements the validation
+	 */
+	public static void it(String text, Duration timeout, Invokable block) {
+		failIfNoSuiteBuilderAvailable("it");
+		getSuiteBuilder().it(text, timeout, block);
+	}
+
+	/**
+	 * Create a new spec that locks resources.
+	 * <p>In parallel mode the spec, including its {@code beforeEach}/{@code afterEach} handlers, does not run
+	 * at the same time as other suites or specs with a conflicting resource lock.
+	 * <p>For example:
+	 * <pre>{@code
+	 * it("writes the config file", ResourceLock.write("config"), () -> {
+	 *   ...
+	 * });
+	 * }</pre>
+	 * @param text A description of the expected behavior
+	 * @param resourceLock The resources used by the spec
+	 * @param block A code block that implements the validation
+	 */
+	public static void it(String text, ResourceLock resourceLock, Invokable block) {
+		failIfNoSuiteBuilderAvailable("it");
+		getSuiteBuilder().it(text, resourceLock, block);
+	}
+
+	/**
+	 * Create a spec for every row.
+	 * <p>The text is used as format string ({@link String#format(String, Object...)}), the values of a row
+	 * are the format arguments. Texts that are not unique get the number of the row appended, texts without
+	 * format specifiers are named by the number of the row. Such specs only keep a reference to their row until
+	 * they are run, so rows of large CSV files or streams are not held in memory. A row that is used to format
+	 * the text is read once and kept for its spec.
+	 * <p>For example:
+	 * <pre>{@code
+	 * itEach("adds %s and %s", Rows.of(Rows.row(1, 2, 3), Rows.row(2, 3, 5)), row -> {
+	 *   assertEquals(row[2], (int) row[0] + (int) row[1]);
+	 * });
+	 * }</pre>
+	 * @param text A format string for the description of every spec
+	 * @param rows The rows, e.g. an in-memory table or a CSV file (see {@link Rows})
+	 * @param block A code block that implements the validation for a row
+	 */
+	public static <T> void itEach(String text, Rows<T> rows, RowInvokable<T> block) {
+		failIfNoSuiteBuilderAvailable("itEach");
+		getSuiteBuilder().itEach(text, rows, block);
 	}
 
 	/**
@@ -134,7 +302,27 @@ public class StaticRunnerSupport {
 	 */
 	public static void fit(String text, Invokable block) {
 		failIfNoSuiteBuilderAvailable("fit");
-		suiteBuilder.fit(text, block);
+		getSuiteBuilder().fit(text, block);
+	}
+
+	/**
+	 * Create a new focussed asynchronous spec that signals its completion using a {@link Done} handle.
+	 * @param text A description of the expected behavior
+	 * @param block A code block that implements the validation
+	 */
+	public static void fit(String text, AsyncInvokable block) {
+		failIfNoSuiteBuilderAvailable("fit");
+		getSuiteBuilder().fit(text, block);
+	}
+
+	/**
+	 * Create a new focussed asynchronous spec that completes with the returned {@code CompletionStage}.
+	 * @param text A description of the expected behavior
+	 * @param block A code block that implements the validation
+	 */
+	public static void fit(String text, StageInvokable block) {
+		failIfNoSuiteBuilderAvailable("fit");
+		getSuiteBuilder().fit(text, block);
 	}
 
 	/**
@@ -148,7 +336,7 @@ public class StaticRunnerSupport {
 	 */
 	public static void it(String text) {
 		failIfNoSuiteBuilderAvailable("it");
-		suiteBuilder.xit(text);
+		getSuiteBuilder().xit(text);
 	}
 
 	/**
@@ -166,7 +354,27 @@ public class StaticRunnerSupport {
 	 */
 	public static void xit(String text, Invokable block) {
 		failIfNoSuiteBuilderAvailable("xit");
-		suiteBuilder.xit(text);
+		getSuiteBuilder().xit(text);
+	}
+
+	/**
+	 * Create a new pending asynchronous spec.
+	 * @param text A description of the expected behavior
+	 * @param block A code block that implements the validation
+	 */
+	public static void xit(String text, AsyncInvokable block) {
+		failIfNoSuiteBuilderAvailable("xit");
+		getSuiteBuilder().xit(text);
+	}
+
+	/**
+	 * Create a new pending asynchronous spec.
+	 * @param text A description of the expected behavior
+	 * @param block A code block that implements the validation
+	 */
+	public static void xit(String text, StageInvokable block) {
+		failIfNoSuiteBuilderAvailable("xit");
+		getSuiteBuilder().xit(text);
 	}
 
 
@@ -182,7 +390,35 @@ public class StaticRunnerSupport {
 	 */
 	public static void beforeEach(Invokable block) {
 		failIfNoSuiteBuilderAvailable("beforeEach");
-		suiteBuilder.beforeEach(block);
+		getSuiteBuilder().beforeEach(block);
+	}
+
+	/**
+	 * Creates a new asynchronous {@code beforeEach} handler that signals its completion using a {@link Done} handle.
+	 * <p>For example:
+	 * <pre>{@code
+	 * beforeEach(done -> {
+	 *   database.clear(done::complete);
+	 * });
+	 * }</pre>
+	 * @param block A code block that is executed before every spec execution
+	 */
+	public static void beforeEach(AsyncInvokable block) {
+		failIfNoSuiteBuilderAvailable("beforeEach");
+		getSuiteBuilder().beforeEach(block);
+	}
+
+	/**
+	 * Creates a new asynchronous {@code beforeEach} handler that completes with the returned {@code CompletionStage}.
+	 * <p>For example:
+	 * <pre>{@code
+	 * beforeEach(() -> database.clear());
+	 * }</pre>
+	 * @param block A code block that is executed before every spec execution
+	 */
+	public static void beforeEach(StageInvokable block) {
+		failIfNoSuiteBuilderAvailable("beforeEach");
+		getSuiteBuilder().beforeEach(block);
 	}
 
 	/**
@@ -197,7 +433,7 @@ public class StaticRunnerSupport {
 	 */
 	public static void before(Invokable block) {
 		failIfNoSuiteBuilderAvailable("before");
-		suiteBuilder.before(block);
+		getSuiteBuilder().before(block);
 	}
 
 	/**
@@ -212,7 +448,64 @@ public class StaticRunnerSupport {
 	 */
 	public static void after(Invokable block) {
 		failIfNoSuiteBuilderAvailable("after");
-		suiteBuilder.after(block);
+		getSuiteBuilder().after(block);
+	}
+
+	/**
+	 * Defines a lazily created value for the specs of the surrounding test suite.
+	 * <p>The value is created on first access within a spec and shared with the {@code beforeEach} and
+	 * {@code afterEach} handlers of the spec. Nested suites can override the value using the same name.
+	 * <p>For example:
+	 * <pre>{@code
+	 * Let<List<String>> list = let("list", () -> new ArrayList<>());
+	 * it("is empty", () -> {
+	 *   assertTrue(list.get().isEmpty());
+	 * });
+	 * }</pre>
+	 * @param name The name of the value, unique within the test suite
+	 * @param factory Creates the value for a spec
+	 * @return A handle that returns the value of the running spec
+	 */
+	public static <T> Let<T> let(String name, Callable<T> factory) {
+		failIfNoSuiteBuilderAvailable("let");
+		return getSuiteBuilder().let(name, factory);
+	}
+
+	/**
+	 * Defines a lazily created value that is closed after the {@code afterEach} handlers of every spec that used it.
+	 * <p>For example:
+	 * <pre>{@code
+	 * Let<Connection> connection = let("connection", () -> openConnection(), Connection::close);
+	 * }</pre>
+	 * @param name The name of the value, unique within the test suite
+	 * @param factory Creates the value for a spec
+	 * @param closer Closes the value once the spec is finished
+	 * @return A handle that returns the value of the running spec
+	 */
+	public static <T> Let<T> let(String name, Callable<T> factory, Let.Closer<? super T> closer) {
+		failIfNoSuiteBuilderAvailable("let");
+		return getSuiteBuilder().let(name, factory, closer);
+	}
+
+	/**
+	 * Uses a fixture that is shared by all suites and test classes of the JVM (see {@link SharedFixture}).
+	 * <p>The fixture is acquired before the first spec of the surrounding test suite and released after
+	 * its last spec. It is created by the first suite that acquires it and closed once it is not used anymore.
+	 * <p>For example:
+	 * <pre>{@code
+	 * SharedFixture<Broker> broker = sharedFixture("broker", () -> Broker.start(), Broker::stop);
+	 * it("sends a message", () -> {
+	 *   broker.get().send("message");
+	 * });
+	 * }</pre>
+	 * @param name The name that identifies the fixture within the JVM
+	 * @param factory Creates the fixture if it is not open
+	 * @param closer Closes the fixture once it is not used anymore
+	 * @return A handle that returns the fixture
+	 */
+	public static <T> SharedFixture<T> sharedFixture(String name, Callable<T> factory, Let.Closer<? super T> closer) {
+		failIfNoSuiteBuilderAvailable("sharedFixture");
+		return getSuiteBuilder().sharedFixture(name, factory, closer);
 	}
 
 	/**
@@ -227,12 +520,30 @@ public class StaticRunnerSupport {
 	 */
 	public static void afterEach(Invokable block) {
 		failIfNoSuiteBuilderAvailable("afterEach");
-		suiteBuilder.afterEach(block);
+		getSuiteBuilder().afterEach(block);
+	}
+
+	/**
+	 * Creates a new asynchronous {@code afterEach} handler that signals its completion using a {@link Done} handle.
+	 * @param block A code block that is executed after every spec execution
+	 */
+	public static void afterEach(AsyncInvokable block) {
+		failIfNoSuiteBuilderAvailable("afterEach");
+		getSuiteBuilder().afterEach(block);
+	}
+
+	/**
+	 * Creates a new asynchronous {@code afterEach} handler that completes with the returned {@code CompletionStage}.
+	 * @param block A code block that is executed after every spec execution
+	 */
+	public static void afterEach(StageInvokable block) {
+		failIfNoSuiteBuilderAvailable("afterEach");
+		getSuiteBuilder().afterEach(block);
 	}
 
 
 	private static void failIfNoSuiteBuilderAvailable(String methodName) {
-		if (suiteBuilder == null) {
+		if (getSuiteBuilder() == null) {
 			throw new IllegalStateException(String.format("No suiteBuilder available, " +
 					"maybe you called %s() in a location where it is not intended to be called?", methodName));
 		}
@@ -17,17 +17,27 @@ package com.mscharhag.oleaster.runner;
 
 import com.mscharhag.oleaster.runner.suite.SuiteBuilder;
 
+/**
+ * A {@link SuiteBuilder} that makes itself available to {@link StaticRunnerSupport} while a suite
+ * definition is evaluated.
+ * <p>The builder is only bound to the evaluating thread. A builder that was bound to this thread before
+ * (e.g. because a suite is evaluated from within another evaluation) is restored after the evaluation.
+ */
 public class StaticSupportingSuiteBuilder extends SuiteBuilder {
 
+	private SuiteBuilder previousSuiteBuilder;
+
 	@Override
 	public void beforeEvaluation() {
 		super.beforeEvaluation();
+		this.previousSuiteBuilder = StaticRunnerSupport.getSuiteBuilder();
 		StaticRunnerSupport.setSuiteBuilder(this);
 	}
 
 	@Override
 	public void afterEvaluation() {
 		super.afterEvaluation();
-		StaticRunnerSupport.setSuiteBuilder(null);
+		StaticRunnerSupport.setSuiteBuilder(this.previousSuiteBuilder);
+		this.previousSuiteBuilder = null;
 	}
 }
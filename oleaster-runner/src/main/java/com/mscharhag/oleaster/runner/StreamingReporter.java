@@ -0,0 +1,387 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the results of a test class while it runs, as JUnit XML and as newline delimited JSON.
+ * <p>Every spec is written as soon as it is finished, so the memory used by the reporter only depends on the
+ * number of specs that run at the same time, not on the number of specs of the test class:
+ * <ul>
+ *     <li>The XML report contains a single {@code testsuite} element with a {@code testcase} per spec. Its name is the
+ *     full description of the spec, which includes the descriptions of all enclosing suites. The counts of the
+ *     {@code testsuite} element are written into a padded placeholder once the run is finished.</li>
+ *     <li>The JSON report contains a {@code suiteStarted} and a {@code suiteFinished} record per suite, with the
+ *     full description of the suite and its parent, a {@code spec} record per spec and a final {@code summary}
+ *     record.</li>
+ * </ul>
+ * <p>Failure messages, stack traces and output are truncated to the configured number of characters.
+ */
+@RunListener.ThreadSafe
+class StreamingReporter extends RunListener implements ExecutionListener {
+
+	/** Reserved for the attributes of the testsuite element, which are written when the report is closed. */
+	private static final int XML_COUNTS_WIDTH = 120;
+
+	private final String className;
+	private final Optional<ReportChannel> xml;
+	private final Optional<ReportChannel> json;
+	private final int maxMessageLength;
+	private final int maxOutputLength;
+	private final long startTime = System.nanoTime();
+	private final Map<Description, Outcome> outcomes = new ConcurrentHashMap<>();
+	private final AtomicInteger tests = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final AtomicInteger errors = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private long xmlCountsPosition;
+	private volatile boolean writeFailed;
+
+	private StreamingReporter(String className, Optional<ReportChannel> xml, Optional<ReportChannel> json,
+			int maxMessageLength, int maxOutputLength) {
+		this.className = className;
+		this.xml = xml;
+		this.json = json;
+		this.maxMessageLength = maxMessageLength;
+		this.maxOutputLength = maxOutputLength;
+	}
+
+	/**
+	 * Opens the report files and writes their headers.
+	 */
+	static StreamingReporter open(String className, Optional<Path> xmlFile, Optional<Path> jsonFile,
+			int maxMessageLength, int maxOutputLength) throws IOException {
+		Optional<ReportChannel> xml = Optional.empty();
+		Optional<ReportChannel> json = Optional.empty();
+		try {
+			if (xmlFile.isPresent()) {
+				xml = Optional.of(ReportChannel.open(xmlFile.get()));
+			}
+			if (jsonFile.isPresent()) {
+				json = Optional.of(ReportChannel.open(jsonFile.get()));
+			}
+			StreamingReporter reporter = new StreamingReporter(className, xml, json, maxMessageLength, maxOutputLength);
+			if (xml.isPresent()) {
+				xml.get().write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuite name=\"" + escapeXmlAttribute(className) + "\" ");
+				reporter.xmlCountsPosition = xml.get().position();
+				xml.get().write(pad("", XML_COUNTS_WIDTH) + ">\n");
+			}
+			return reporter;
+		} catch (IOException e) {
+			closeQuietly(xml);
+			closeQuietly(json);
+			throw e;
+		}
+	}
+
+
+	@Override
+	public void suiteStarted(Suite suite) {
+		this.writeSuiteRecord("suiteStarted", suite);
+	}
+
+	@Override
+	public void suiteFinished(Suite suite) {
+		this.writeSuiteRecord("suiteFinished", suite);
+	}
+
+	@Override
+	public void testFailure(Failure failure) {
+		if (this.className.equals(failure.getDescription().getClassName())) {
+			// like JUnit XML, only the first failure of a spec is reported
+			this.outcomes.putIfAbsent(failure.getDescription(), new Outcome(failure.getException() instanceof AssertionError
+					? Status.FAILED : Status.ERROR, failure));
+		}
+	}
+
+	@Override
+	public void testAssumptionFailure(Failure failure) {
+		if (this.className.equals(failure.getDescription().getClassName())) {
+			this.outcomes.putIfAbsent(failure.getDescription(), new Outcome(Status.SKIPPED, failure));
+		}
+	}
+
+	@Override
+	public void testIgnored(Description description) {
+		if (this.className.equals(description.getClassName())) {
+			this.outcomes.put(description, new Outcome(Status.SKIPPED, null));
+		}
+	}
+
+	/**
+	 * Writes the result of a finished spec. {@code output} is the output of the spec or {@code null}.
+	 */
+	void specFinished(Spec spec, Description description, long durationNanos, String output) {
+		Outcome outcome = this.outcomes.remove(description);
+		Status status = outcome != null ? outcome.status : Status.PASSED;
+		this.tests.incrementAndGet();
+		if (status == Status.FAILED) {
+			this.failures.incrementAndGet();
+		} else if (status == Status.ERROR) {
+			this.errors.incrementAndGet();
+		} else if (status == Status.SKIPPED) {
+			this.skipped.incrementAndGet();
+		}
+		Failure failure = outcome != null ? outcome.failure : null;
+		String message = failure != null ? truncate(failure.getMessage(), this.maxMessageLength) : null;
+		String trace = failure != null ? truncate(failure.getTrace(), this.maxMessageLength) : null;
+		String exception = failure != null ? failure.getException().getClass().getName() : null;
+		String truncatedOutput = truncate(output, this.maxOutputLength);
+
+		this.xml.ifPresent(channel -> this.write(channel, this.testCaseElement(spec, durationNanos, status, message, trace, exception, truncatedOutput)));
+		this.json.ifPresent(channel -> {
+			StringBuilder sb = new StringBuilder(256);
+			sb.append("{\"type\":\"spec\",\"class\":").append(jsonString(this.className));
+			sb.append(",\"suite\":").append(jsonString(spec.getSuite().getFullDescription()));
+			sb.append(",\"name\":").append(jsonString(spec.getFullDescription()));
+			sb.append(",\"status\":\"").append(status.name().toLowerCase(Locale.ROOT)).append('"');
+			sb.append(",\"durationMillis\":").append(millis(durationNanos));
+			if (failure != null) {
+				sb.append(",\"exception\":").append(jsonString(exception));
+				sb.append(",\"message\":").append(jsonString(message));
+				sb.append(",\"trace\":").append(jsonString(trace));
+			}
+			if (truncatedOutput != null) {
+				sb.append(",\"output\":").append(jsonString(truncatedOutput));
+			}
+			this.write(channel, sb.append("}\n").toString());
+		});
+	}
+
+	/**
+	 * Completes and closes the reports.
+	 */
+	void close() {
+		String durationMillis = millis(System.nanoTime() - this.startTime);
+		this.xml.ifPresent(channel -> {
+			this.write(channel, "</testsuite>\n");
+			if (this.writeFailed) {
+				return;
+			}
+			try {
+				channel.patch(this.xmlCountsPosition, pad(String.format("tests=\"%d\" failures=\"%d\" errors=\"%d\" skipped=\"%d\" time=\"%s\"",
+						this.tests.get(), this.failures.get(), this.errors.get(), this.skipped.get(), durationMillis), XML_COUNTS_WIDTH));
+			} catch (IOException e) {
+				this.failed(e);
+			}
+		});
+		this.json.ifPresent(channel -> this.write(channel, String.format(
+				"{\"type\":\"summary\",\"class\":%s,\"tests\":%d,\"failures\":%d,\"errors\":%d,\"skipped\":%d,\"durationMillis\":%s}%n",
+				jsonString(this.className), this.tests.get(), this.failures.get(), this.errors.get(), this.skipped.get(), durationMillis)));
+		this.xml.ifPresent(channel -> this.close(channel));
+		this.json.ifPresent(channel -> this.close(channel));
+	}
+
+
+	private String testCaseElement(Spec spec, long durationNanos, Status status, String message, String trace,
+			String exception, String output) {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("  <testcase classname=\"").append(escapeXmlAttribute(this.className)).append("\" name=\"")
+				.append(escapeXmlAttribute(spec.getFullDescription())).append("\" time=\"").append(millis(durationNanos)).append('"');
+		if (status == Status.PASSED && output == null) {
+			return sb.append("/>\n").toString();
+		}
+		sb.append(">\n");
+		if (status == Status.SKIPPED) {
+			sb.append("    <skipped/>\n");
+		} else if (status != Status.PASSED) {
+			String element = status == Status.FAILED ? "failure" : "error";
+			sb.append("    <").append(element);
+			if (message != null) {
+				sb.append(" message=\"").append(escapeXmlAttribute(message)).append('"');
+			}
+			sb.append(" type=\"").append(escapeXmlAttribute(exception)).append("\">").append(escapeXml(trace))
+					.append("</").append(element).append(">\n");
+		}
+		if (output != null) {
+			sb.append("    <system-out>").append(escapeXml(output)).append("</system-out>\n");
+		}
+		return sb.append("  </testcase>\n").toString();
+	}
+
+
+	private void writeSuiteRecord(String type, Suite suite) {
+		if (!this.json.isPresent() || suite.getParent() == null) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder(128);
+		sb.append("{\"type\":\"").append(type).append("\",\"class\":").append(jsonString(this.className));
+		sb.append(",\"suite\":").append(jsonString(suite.getFullDescription()));
+		sb.append(",\"parent\":").append(jsonString(suite.getParent().getFullDescription()));
+		this.write(this.json.get(), sb.append("}\n").toString());
+	}
+
+
+	private void write(ReportChannel channel, String text) {
+		if (this.writeFailed) {
+			return;
+		}
+		try {
+			channel.write(text);
+		} catch (IOException e) {
+			this.failed(e);
+		}
+	}
+
+
+	private void close(ReportChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			this.failed(e);
+		}
+	}
+
+
+	/**
+	 * Stops writing after the first failure. Like the history, reports must not fail the run.
+	 */
+	private void failed(IOException e) {
+		this.writeFailed = true;
+	}
+
+
+	private static void closeQuietly(Optional<ReportChannel> channel) {
+		if (channel.isPresent()) {
+			try {
+				channel.get().close();
+			} catch (IOException e) {
+				// the original exception is more relevant
+			}
+		}
+	}
+
+
+	static String truncate(String text, int maxLength) {
+		if (text == null || text.length() <= maxLength) {
+			return text;
+		}
+		String marker = "... [" + (text.length() - maxLength) + " more characters]";
+		int end = maxLength;
+		if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+			end--;
+		}
+		return text.substring(0, end) + marker;
+	}
+
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+	}
+
+
+	private static String pad(String text, int width) {
+		StringBuilder sb = new StringBuilder(width).append(text);
+		while (sb.length() < width) {
+			sb.append(' ');
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Escapes text for element content. Characters that are not allowed in XML 1.0 are replaced.
+	 */
+	static String escapeXml(String text) {
+		return escapeXml(text, false);
+	}
+
+	/**
+	 * Escapes text for attributes. Line breaks and tabs are escaped, so they survive attribute normalization.
+	 */
+	static String escapeXmlAttribute(String text) {
+		return escapeXml(text, true);
+	}
+
+	private static String escapeXml(String text, boolean attribute) {
+		if (text == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(text.length() + 16);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '&': sb.append("&amp;"); break;
+				case '<': sb.append("&lt;"); break;
+				case '>': sb.append("&gt;"); break;
+				case '"': sb.append("&quot;"); break;
+				case '\'': sb.append("&apos;"); break;
+				case '\n': sb.append(attribute ? "&#10;" : "\n"); break;
+				case '\r': sb.append(attribute ? "&#13;" : "\r"); break;
+				case '\t': sb.append(attribute ? "&#9;" : "\t"); break;
+				default:
+					sb.append(c < 0x20 || c == 0xfffe || c == 0xffff ? '?' : c);
+			}
+		}
+		return sb.toString();
+	}
+
+
+	static String jsonString(String text) {
+		if (text == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder(text.length() + 16).append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+
+	private enum Status {
+		PASSED, FAILED, ERROR, SKIPPED
+	}
+
+
+	private static class Outcome {
+
+		private final Status status;
+		private final Failure failure;
+
+		Outcome(Status status, Failure failure) {
+			this.status = status;
+			this.failure = failure;
+		}
+	}
+}
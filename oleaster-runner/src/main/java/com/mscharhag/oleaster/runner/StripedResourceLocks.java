@@ -0,0 +1,258 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Grants {@link ResourceLock}s to suites and specs that run concurrently.
+ * <p>Resources are mapped to a fixed number of read-write lock stripes. Different resources can share a stripe,
+ * which only serializes some work that could have run concurrently. All stripes of a lock are granted at once,
+ * so locks never wait for each other while holding some of their stripes.
+ * <p>A suite that declares a resource lock holds the resources of its whole subtree while it runs. Nested suites and
+ * specs skip the resources that an enclosing suite declares with at least the same access. They acquire their other
+ * resources from nested locks of the closest enclosing suite that declares a lock, where they only compete with the other
+ * suites and specs of that suite. As locks are only requested from nested locks while the enclosing lock is held,
+ * overlapping resources of nested suites can not deadlock.
+ * <p>Waiting locks are granted in the order they were requested. A lock is not granted before an earlier
+ * conflicting lock, so writers are not starved by a stream of readers.
+ * <p>Waiting for a lock does not block a thread, the work is started by the executor once the lock is granted.
+ */
+class StripedResourceLocks {
+
+	static final int DEFAULT_STRIPES = 256;
+
+	private final int stripes;
+	private final int[] holders;
+	private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+	private final Map<Suite, StripedResourceLocks> nestedLocks = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	StripedResourceLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	StripedResourceLocks(int stripes) {
+		this.stripes = stripes;
+		// number of readers that hold a stripe, or -1 if the stripe is held by a writer
+		this.holders = new int[stripes];
+	}
+
+	/**
+	 * Starts the work of the suite once the lock of the suite and all its specs and child suites is granted.
+	 * Suites that do not declare a lock are started immediately.
+	 */
+	CompletableFuture<Void> run(Suite suite, Supplier<CompletableFuture<Void>> work, Executor executor) {
+		if (suite.getResourceLock().isEmpty()) {
+			return work.get();
+		}
+		ResourceLock lock = withoutHeldResources(subtreeLock(suite), suite.getParent());
+		return this.locksWithin(suite.getParent()).run(lock, work, executor)
+				.whenComplete((result, cause) -> this.nestedLocks.remove(suite));
+	}
+
+	/**
+	 * Starts the work of the spec once the lock of the spec is granted.
+	 */
+	CompletableFuture<Void> run(Spec spec, Supplier<CompletableFuture<Void>> work, Executor executor) {
+		ResourceLock lock = withoutHeldResources(spec.getResourceLock(), spec.getSuite());
+		return this.locksWithin(spec.getSuite()).run(lock, work, executor);
+	}
+
+	/**
+	 * Starts the work once the lock is granted and releases the lock once the returned future is completed.
+	 */
+	CompletableFuture<Void> run(ResourceLock lock, Supplier<CompletableFuture<Void>> work, Executor executor) {
+		if (lock.isEmpty()) {
+			return work.get();
+		}
+		Request request = this.request(lock);
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		AsyncInvokables.then(this.acquire(request), work, executor).whenComplete((r, cause) -> {
+			this.release(request);
+			AsyncInvokables.complete(result, cause);
+		});
+		return result;
+	}
+
+
+	/**
+	 * Returns the locks that suites and specs within the suite compete for: the nested locks of the closest
+	 * suite that declares a lock, or these locks if there is none.
+	 */
+	private StripedResourceLocks locksWithin(Suite suite) {
+		for (Suite s = suite; s != null; s = s.getParent()) {
+			if (!s.getResourceLock().isEmpty()) {
+				return this.nestedLocks.computeIfAbsent(s, locked -> new StripedResourceLocks(this.stripes));
+			}
+		}
+		return this;
+	}
+
+
+	/**
+	 * Removes the resources that the suite or one of its parents declares with at least the same access.
+	 */
+	private static ResourceLock withoutHeldResources(ResourceLock lock, Suite suite) {
+		ResourceLock held = ResourceLock.NONE;
+		for (Suite s = suite; s != null; s = s.getParent()) {
+			held = held.and(s.getResourceLock());
+		}
+		if (lock.isEmpty() || held.isEmpty()) {
+			return lock;
+		}
+		ResourceLock remaining = ResourceLock.NONE;
+		for (Map.Entry<String, Boolean> resource : lock.getResources().entrySet()) {
+			Boolean heldExclusive = held.getResources().get(resource.getKey());
+			if (heldExclusive == null || (resource.getValue() && !heldExclusive)) {
+				remaining = remaining.and(resource.getValue() ? ResourceLock.write(resource.getKey()) : ResourceLock.read(resource.getKey()));
+			}
+		}
+		return remaining;
+	}
+
+
+	private static ResourceLock subtreeLock(Suite suite) {
+		ResourceLock lock = suite.getResourceLock();
+		for (Spec spec : suite.getSpecs()) {
+			lock = lock.and(spec.getResourceLock());
+		}
+		for (Suite child : suite.getSuites()) {
+			lock = lock.and(subtreeLock(child));
+		}
+		return lock;
+	}
+
+
+	private Request request(ResourceLock lock) {
+		Map<Integer, Boolean> stripeModes = new TreeMap<>();
+		lock.getResources().forEach((resource, exclusive) ->
+				stripeModes.merge(Math.floorMod(resource.hashCode(), this.stripes), exclusive, Boolean::logicalOr));
+		int[] stripeIndexes = new int[stripeModes.size()];
+		boolean[] exclusive = new boolean[stripeModes.size()];
+		int i = 0;
+		for (Map.Entry<Integer, Boolean> entry : stripeModes.entrySet()) {
+			stripeIndexes[i] = entry.getKey();
+			exclusive[i] = entry.getValue();
+			i++;
+		}
+		return new Request(stripeIndexes, exclusive);
+	}
+
+
+	private CompletableFuture<Void> acquire(Request request) {
+		boolean granted;
+		synchronized (this) {
+			granted = this.isAvailable(request) && this.waiting.stream().noneMatch(request::conflictsWith);
+			if (granted) {
+				this.hold(request);
+			} else {
+				this.waiting.add(request);
+			}
+		}
+		if (granted) {
+			request.granted.complete(null);
+		}
+		return request.granted;
+	}
+
+
+	private void release(Request request) {
+		List<Request> granted = new ArrayList<>();
+		synchronized (this) {
+			for (int i = 0; i < request.stripes.length; i++) {
+				this.holders[request.stripes[i]] = request.exclusive[i] ? 0 : this.holders[request.stripes[i]] - 1;
+			}
+			List<Request> stillWaiting = new ArrayList<>();
+			for (Iterator<Request> it = this.waiting.iterator(); it.hasNext(); ) {
+				Request next = it.next();
+				if (this.isAvailable(next) && stillWaiting.stream().noneMatch(next::conflictsWith)) {
+					this.hold(next);
+					granted.add(next);
+					it.remove();
+				} else {
+					stillWaiting.add(next);
+				}
+			}
+		}
+		granted.forEach(next -> next.granted.complete(null));
+	}
+
+
+	private boolean isAvailable(Request request) {
+		for (int i = 0; i < request.stripes.length; i++) {
+			int holder = this.holders[request.stripes[i]];
+			if (request.exclusive[i] ? holder != 0 : holder < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private void hold(Request request) {
+		for (int i = 0; i < request.stripes.length; i++) {
+			this.holders[request.stripes[i]] = request.exclusive[i] ? -1 : this.holders[request.stripes[i]] + 1;
+		}
+	}
+
+
+	private static class Request {
+
+		private final int[] stripes;
+		private final boolean[] exclusive;
+		private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+		Request(int[] stripes, boolean[] exclusive) {
+			this.stripes = stripes;
+			this.exclusive = exclusive;
+		}
+
+		/**
+		 * Returns true if both requests share a stripe and at least one of them needs exclusive access to it.
+		 */
+		boolean conflictsWith(Request other) {
+			int i = 0;
+			int j = 0;
+			while (i < this.stripes.length && j < other.stripes.length) {
+				if (this.stripes[i] < other.stripes[j]) {
+					i++;
+				} else if (this.stripes[i] > other.stripes[j]) {
+					j++;
+				} else {
+					if (this.exclusive[i] || other.exclusive[j]) {
+						return true;
+					}
+					i++;
+					j++;
+				}
+			}
+			return false;
+		}
+	}
+}
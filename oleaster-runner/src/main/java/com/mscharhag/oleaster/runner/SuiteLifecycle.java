@@ -0,0 +1,148 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.PhaseMeasurement.Phase;
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks which suites are currently open during a test run.
+ * <p>A suite is opened (its {@code before} handlers are invoked) once, when the first spec of its subtree starts.
+ * It is closed (its {@code after} handlers are invoked) once, when the last scheduled spec of its subtree is finished.
+ * Outer suites are opened before and closed after inner suites.
+ * <p>If a {@code before} handler fails, the suite is still closed, but none of its specs and child suites is run.
+ * Like the tests of a class whose {@code @BeforeClass} method failed, these specs fail with the failure of the handler.
+ * Opening and closing a suite is reported to an {@link ExecutionListener}, which may also measure the handlers.
+ * <p>SuiteLifecycle is thread safe, so specs of different suites can be run concurrently.
+ */
+class SuiteLifecycle {
+
+	private final Map<Suite, SuiteState> states = new ConcurrentHashMap<>();
+	private final HandlerRunner handlerRunner;
+	private final ExecutionListener listener;
+
+	/**
+	 * Creates a SuiteLifecycle that determines the number of specs of a suite the first time the suite is opened.
+	 */
+	SuiteLifecycle(HandlerRunner handlerRunner, ExecutionListener listener) {
+		this.handlerRunner = handlerRunner;
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates a SuiteLifecycle that closes suites once all of the given specs in their subtree are finished.
+	 */
+	SuiteLifecycle(HandlerRunner handlerRunner, ExecutionListener listener, Collection<Spec> scheduledSpecs) {
+		this(handlerRunner, listener);
+		for (Spec spec : scheduledSpecs) {
+			for (Suite suite = spec.getSuite(); suite != null; suite = suite.getParent()) {
+				this.states.computeIfAbsent(suite, s -> new SuiteState(0)).remainingSpecs.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Opens the suite of the spec and all its parent suites that have not been opened yet.
+	 * Throws the failure of a {@code before} handler of one of these suites, so the spec must not be run.
+	 */
+	void open(Spec spec) {
+		this.open(spec.getSuite());
+	}
+
+	private void open(Suite suite) {
+		if (suite.getParent() != null) {
+			this.open(suite.getParent());
+		}
+		SuiteState state = this.getState(suite);
+		synchronized (state) {
+			if (!state.opened) {
+				state.opened = true;
+				this.listener.suiteStarted(suite);
+				try {
+					this.runHandlers(Phase.BEFORE, suite, suite.getBeforeHandlers());
+				} catch (RuntimeException | Error e) {
+					state.beforeFailure = e;
+				}
+			}
+			if (state.beforeFailure instanceof Error) {
+				throw (Error) state.beforeFailure;
+			} else if (state.beforeFailure != null) {
+				throw (RuntimeException) state.beforeFailure;
+			}
+		}
+	}
+
+	/**
+	 * Marks the spec as finished and closes all suites that have no remaining specs.
+	 * Suites that have never been opened are not closed.
+	 */
+	void finish(Spec spec) {
+		for (Suite suite = spec.getSuite(); suite != null; suite = suite.getParent()) {
+			SuiteState state = this.getState(suite);
+			if (state.remainingSpecs.decrementAndGet() == 0) {
+				synchronized (state) {
+					if (state.opened) {
+						this.runHandlers(Phase.AFTER, suite, suite.getAfterHandlers());
+						this.listener.suiteFinished(suite);
+					}
+				}
+			}
+		}
+	}
+
+	private void runHandlers(Phase phase, Suite suite, List<Invokable> handlers) {
+		PhaseMeter.measure(this.listener, phase, suite, null, () -> this.handlerRunner.run(phase, suite, handlers));
+	}
+
+	private SuiteState getState(Suite suite) {
+		return this.states.computeIfAbsent(suite, s -> new SuiteState(Math.max(1, countSpecs(s))));
+	}
+
+	private static int countSpecs(Suite suite) {
+		int count = suite.getSpecs().size();
+		for (Suite child : suite.getSuites()) {
+			count += countSpecs(child);
+		}
+		return count;
+	}
+
+
+	/**
+	 * Runs the {@code before} or {@code after} handlers of a suite.
+	 */
+	interface HandlerRunner {
+		void run(Phase phase, Suite suite, List<Invokable> handlers);
+	}
+
+
+	private static class SuiteState {
+
+		private final AtomicInteger remainingSpecs;
+		private boolean opened;
+		private Throwable beforeFailure;
+
+		SuiteState(int remainingSpecs) {
+			this.remainingSpecs = new AtomicInteger(remainingSpecs);
+		}
+	}
+}
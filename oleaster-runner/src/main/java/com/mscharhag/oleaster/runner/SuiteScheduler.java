@@ -0,0 +1,45 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A SuiteScheduler decides in which order and on which threads the suites of a suite tree are executed.
+ * <p>Specs of a single suite are always passed to the spec runner one after another, in declaration order.
+ * A spec is started once the future returned for the previous spec is completed. The specs of a suite are
+ * run before the specs of its child suites.
+ * <p>Once {@code cancelled} returns true no further specs are passed to the spec runner and suites
+ * that have not been started are dropped.
+ */
+interface SuiteScheduler {
+
+	void run(Suite suite, Function<Spec, CompletableFuture<Void>> specRunner, BooleanSupplier cancelled);
+
+	default void run(Suite suite, Consumer<Spec> specRunner) {
+		this.run(suite, spec -> {
+			specRunner.accept(spec);
+			return AsyncInvokables.completed();
+		}, () -> false);
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Supplier;
+
+/**
+ * Instances of a test class for specs that must not share the fields of a single instance.
+ * <p>Every instance evaluates the suite definitions of the test class again, which binds the blocks of its suite
+ * tree to the instance. A running spec has an instance for itself. Once the spec is finished the instance is
+ * returned to the pool and reused by later specs, so the number of instances grows with the number of specs that
+ * run at the same time, not with the number of specs.
+ */
+class TestInstancePool {
+
+	private final Supplier<Suite> suiteFactory;
+	private final ConcurrentLinkedDeque<TestInstance> idleInstances = new ConcurrentLinkedDeque<>();
+
+	/**
+	 * @param suiteFactory creates a new instance of the test class and evaluates its suite tree
+	 */
+	TestInstancePool(Supplier<Suite> suiteFactory) {
+		this.suiteFactory = suiteFactory;
+	}
+
+	/**
+	 * Returns an idle instance or creates a new one.
+	 */
+	TestInstance acquire() {
+		TestInstance instance = this.idleInstances.pollFirst();
+		return instance != null ? instance : new TestInstance(this.suiteFactory.get());
+	}
+
+	/**
+	 * Returns the instance to the pool. The most recently used instance is handed out next.
+	 */
+	void release(TestInstance instance) {
+		this.idleInstances.addFirst(instance);
+	}
+
+
+	static class TestInstance {
+
+		private final Map<String, Spec> specs = new HashMap<>();
+
+		private TestInstance(Suite suite) {
+			suite.freeze();
+			suite.collectSpecs().forEach(spec -> this.specs.put(spec.getFullDescription(), spec));
+		}
+
+		/**
+		 * Returns the spec of this instance that has the same full description as the given spec.
+		 */
+		Spec specFor(Spec spec) {
+			Spec instanceSpec = this.specs.get(spec.getFullDescription());
+			if (instanceSpec == null) {
+				throw new IllegalStateException(String.format(
+						"Spec '%s' is not defined by another instance of the test class", spec.getFullDescription()));
+			}
+			return instanceSpec;
+		}
+	}
+}
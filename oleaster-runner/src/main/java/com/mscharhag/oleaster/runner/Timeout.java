@@ -0,0 +1,47 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the default timeout for all specs of an Oleaster test class.
+ * <p>A spec or handler that runs longer than its timeout is interrupted and reported as failed. Timeouts
+ * defined using {@code it()} or {@code describe()} take precedence over the default timeout.
+ * <p>For example:
+ * <pre>
+ * 	{@literal @}Timeout(millis = 5000)
+ * 	{@literal @}RunWith(OleasterRunner.class)
+ * 	 public class TimeoutTest {{
+ *		it("has to complete within five seconds", () -&gt; { ... });
+ *	}}
+ * </pre>
+ * <p>The default timeout of all test classes can be set or overridden using the system property
+ * {@code oleaster.timeout=<millis>}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Timeout {
+
+	/**
+	 * The timeout in milliseconds. Values less than 1 disable the default timeout.
+	 */
+	long millis();
+
+}
@@ -0,0 +1,50 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.time.Duration;
+
+/**
+ * An Invokable that has to complete within a timeout.
+ * <p>TimeoutInvokables are created by {@code it()} and {@code describe()} variants that take a timeout.
+ * The timeout of a suite applies to every spec of the suite that does not define its own timeout.
+ */
+public class TimeoutInvokable implements Invokable {
+
+	private final Duration timeout;
+	private final Invokable block;
+
+	public TimeoutInvokable(Duration timeout, Invokable block) {
+		if (timeout.isNegative() || timeout.isZero()) {
+			throw new IllegalArgumentException(String.format("Timeout must be positive, got %s", timeout));
+		}
+		this.timeout = timeout;
+		this.block = block;
+	}
+
+	@Override
+	public void invoke() throws Exception {
+		this.block.invoke();
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public Invokable getBlock() {
+		return block;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed wheel timer that runs short tasks after a delay.
+ * <p>All timeouts share a single daemon thread. Scheduling and cancelling are O(1), the thread
+ * only wakes up once per tick while timeouts are pending and sleeps as long as there are none.
+ * Tasks are run with a precision of one tick on the timer thread, so they have to be short.
+ */
+class TimerWheel {
+
+	private static final TimerWheel SHARED = new TimerWheel(10, TimeUnit.MILLISECONDS, 512);
+
+	private final long tickNanos;
+	private final List<Entry>[] buckets;
+	private final int mask;
+	private final BlockingQueue<Entry> scheduledEntries = new LinkedBlockingQueue<>();
+	private final long startTime = System.nanoTime();
+	private final Thread thread;
+	private long tick;
+	private int pendingEntries;
+
+	TimerWheel(long tickDuration, TimeUnit unit, int bucketCount) {
+		if (Integer.bitCount(bucketCount) != 1) {
+			throw new IllegalArgumentException(String.format("Bucket count must be a power of two, got %d", bucketCount));
+		}
+		this.tickNanos = unit.toNanos(tickDuration);
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		List<Entry>[] buckets = new List[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			buckets[i] = new ArrayList<>();
+		}
+		this.buckets = buckets;
+		this.mask = bucketCount - 1;
+		this.thread = new Thread(this::work, "oleaster-timer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	static TimerWheel shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Runs the task on the timer thread once the delay has passed, unless the returned entry is cancelled before.
+	 */
+	Entry schedule(long delay, TimeUnit unit, Runnable task) {
+		Entry entry = new Entry(System.nanoTime() - this.startTime + unit.toNanos(delay), task);
+		this.scheduledEntries.add(entry);
+		return entry;
+	}
+
+
+	private void work() {
+		try {
+			while (true) {
+				if (this.pendingEntries == 0) {
+					// nothing to expire, wait for the next timeout instead of ticking
+					Entry entry = this.scheduledEntries.take();
+					this.tick = (System.nanoTime() - this.startTime) / this.tickNanos;
+					this.add(entry);
+				}
+				this.waitForNextTick();
+				for (Entry entry = this.scheduledEntries.poll(); entry != null; entry = this.scheduledEntries.poll()) {
+					this.add(entry);
+				}
+				this.expire(this.buckets[(int) (this.tick & this.mask)]);
+				this.tick++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	private void add(Entry entry) {
+		if (entry.isCancelled()) {
+			return;
+		}
+		long deadlineTick = Math.max(entry.deadline / this.tickNanos, this.tick);
+		entry.remainingRounds = (deadlineTick - this.tick) / this.buckets.length;
+		this.buckets[(int) (deadlineTick & this.mask)].add(entry);
+		this.pendingEntries++;
+	}
+
+
+	private void waitForNextTick() throws InterruptedException {
+		long nextTick = this.startTime + (this.tick + 1) * this.tickNanos;
+		long sleepNanos = nextTick - System.nanoTime();
+		if (sleepNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(sleepNanos);
+		}
+	}
+
+
+	private void expire(List<Entry> bucket) {
+		for (Iterator<Entry> iterator = bucket.iterator(); iterator.hasNext(); ) {
+			Entry entry = iterator.next();
+			if (entry.isCancelled()) {
+				iterator.remove();
+				this.pendingEntries--;
+			} else if (entry.remainingRounds <= 0) {
+				iterator.remove();
+				this.pendingEntries--;
+				entry.expire();
+			} else {
+				entry.remainingRounds--;
+			}
+		}
+	}
+
+
+	static class Entry {
+
+		private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+
+		private final long deadline;
+		private final Runnable task;
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		private long remainingRounds;
+
+		private Entry(long deadline, Runnable task) {
+			this.deadline = deadline;
+			this.task = task;
+		}
+
+		/**
+		 * Cancels the entry. Returns false if the task has already been run.
+		 */
+		boolean cancel() {
+			return this.state.compareAndSet(PENDING, CANCELLED) || this.state.get() == CANCELLED;
+		}
+
+		private boolean isCancelled() {
+			return this.state.get() == CANCELLED;
+		}
+
+		private void expire() {
+			if (this.state.compareAndSet(PENDING, EXPIRED)) {
+				try {
+					this.task.run();
+				} catch (RuntimeException e) {
+					// a failing task must not stop the timer thread
+				}
+			}
+		}
+	}
+}
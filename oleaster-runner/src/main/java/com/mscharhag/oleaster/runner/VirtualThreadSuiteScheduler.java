@@ -0,0 +1,153 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs every spec, including its {@code beforeEach}/{@code afterEach} handlers, on its own virtual thread.
+ * <p>Specs that block on I/O do not occupy a platform thread, so sibling suites of I/O-bound specs
+ * can run with a much higher concurrency than the number of processors. The number of specs that run
+ * at the same time can be limited, a limit less than 1 means no limit.
+ * <p>Virtual threads are available since Java 21. Use {@link #isSupported()} to check if they are
+ * available in the running JVM.
+ * <p>Suites and specs with conflicting {@link ResourceLock}s are not run at the same time.
+ */
+class VirtualThreadSuiteScheduler implements SuiteScheduler {
+
+	private static final Optional<Method> NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+	private final int concurrencyLimit;
+	private final ToLongFunction<Suite> estimatedDuration;
+
+	VirtualThreadSuiteScheduler(int concurrencyLimit, ToLongFunction<Suite> estimatedDuration) {
+		if (!isSupported()) {
+			throw new IllegalStateException("Virtual threads are not supported by this JVM");
+		}
+		this.concurrencyLimit = concurrencyLimit;
+		this.estimatedDuration = estimatedDuration;
+	}
+
+	static boolean isSupported() {
+		return NEW_VIRTUAL_THREAD_EXECUTOR.isPresent();
+	}
+
+	@Override
+	public void run(Suite suite, Function<Spec, CompletableFuture<Void>> specRunner, BooleanSupplier cancelled) {
+		ExecutorService executor = newVirtualThreadExecutor();
+		try {
+			Semaphore permits = new Semaphore(this.concurrencyLimit > 0 ? this.concurrencyLimit : Integer.MAX_VALUE, true);
+			Run run = new Run(executor, permits, new StripedResourceLocks(), specRunner, cancelled);
+			AsyncInvokables.join(run.runSuite(suite));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	private static Optional<Method> findVirtualThreadExecutorFactory() {
+		try {
+			return Optional.of(Executors.class.getMethod("newVirtualThreadPerTaskExecutor"));
+		} catch (NoSuchMethodException e) {
+			return Optional.empty();
+		}
+	}
+
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.get().invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual thread executor could not be created", e);
+		}
+	}
+
+
+	private class Run {
+
+		private final ExecutorService executor;
+		private final Semaphore permits;
+		private final StripedResourceLocks locks;
+		private final Function<Spec, CompletableFuture<Void>> specRunner;
+		private final BooleanSupplier cancelled;
+
+		Run(ExecutorService executor, Semaphore permits, StripedResourceLocks locks,
+				Function<Spec, CompletableFuture<Void>> specRunner, BooleanSupplier cancelled) {
+			this.executor = executor;
+			this.permits = permits;
+			this.locks = locks;
+			this.specRunner = specRunner;
+			this.cancelled = cancelled;
+		}
+
+		CompletableFuture<Void> runSuite(Suite suite) {
+			return this.locks.run(suite, () -> this.runSpecsAndChildSuites(suite), this.executor);
+		}
+
+		private CompletableFuture<Void> runSpecsAndChildSuites(Suite suite) {
+			CompletableFuture<Void> future = AsyncInvokables.completed();
+			for (Spec spec : suite.getSpecs()) {
+				future = future.thenCompose(result -> this.cancelled.getAsBoolean() ? AsyncInvokables.completed() : this.runSpec(spec));
+			}
+			return future.thenCompose(result -> this.cancelled.getAsBoolean() ? AsyncInvokables.completed() : this.runChildSuites(suite));
+		}
+
+		private CompletableFuture<Void> runSpec(Spec spec) {
+			return this.locks.run(spec, () -> this.startSpec(spec), this.executor);
+		}
+
+		/**
+		 * Starts a virtual thread for the spec. The permit of the spec is released once the spec is completed.
+		 */
+		private CompletableFuture<Void> startSpec(Spec spec) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			this.executor.execute(() -> {
+				this.permits.acquireUninterruptibly();
+				CompletableFuture<Void> specFuture;
+				try {
+					specFuture = this.specRunner.apply(spec);
+				} catch (Throwable t) {
+					specFuture = AsyncInvokables.failed(t);
+				}
+				specFuture.whenComplete((result, cause) -> {
+					this.permits.release();
+					AsyncInvokables.complete(future, cause);
+				});
+			});
+			return future;
+		}
+
+		private CompletableFuture<Void> runChildSuites(Suite suite) {
+			// the fair semaphore hands out permits roughly in the order the suites are started, longest first
+			return CompletableFuture.allOf(suite.getSuites().stream()
+					.sorted(Comparator.comparingLong(estimatedDuration).reversed())
+					.map(this::runSuite)
+					.toArray(CompletableFuture<?>[]::new));
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner.suite;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that is backed by an array of exactly the required size.
+ * Used by frozen suites to keep the evaluated suite tree compact.
+ */
+final class ArrayBackedList<E> extends AbstractList<E> implements RandomAccess {
+
+	private final Object[] elements;
+
+	private ArrayBackedList(Object[] elements) {
+		this.elements = elements;
+	}
+
+	static <E> List<E> copyOf(List<E> list) {
+		if (list instanceof ArrayBackedList) {
+			return list;
+		}
+		if (list.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return new ArrayBackedList<>(list.toArray());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		return (E) this.elements[index];
+	}
+
+	@Override
+	public int size() {
+		return this.elements.length;
+	}
+}
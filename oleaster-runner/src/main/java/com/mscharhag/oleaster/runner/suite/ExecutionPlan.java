@@ -0,0 +1,55 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner.suite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The execution plan of an evaluated suite tree.
+ * <p>Creating a plan freezes the suite tree and compiles the {@link HandlerChain} of every suite once,
+ * so running a spec does not have to walk and copy the handlers of its parent suites again.
+ */
+public class ExecutionPlan {
+
+	private final Suite suite;
+	private final List<Spec> specs;
+
+	private ExecutionPlan(Suite suite, List<Spec> specs) {
+		this.suite = suite;
+		this.specs = specs;
+	}
+
+	public static ExecutionPlan compile(Suite suite) {
+		suite.freeze();
+		List<Spec> specs = new ArrayList<>();
+		compile(suite, specs);
+		return new ExecutionPlan(suite, ArrayBackedList.copyOf(specs));
+	}
+
+	private static void compile(Suite suite, List<Spec> specs) {
+		specs.addAll(suite.getSpecs());
+		suite.getSuites().forEach(child -> compile(child, specs));
+	}
+
+	public Suite getSuite() {
+		return suite;
+	}
+
+	public List<Spec> getSpecs() {
+		return specs;
+	}
+}
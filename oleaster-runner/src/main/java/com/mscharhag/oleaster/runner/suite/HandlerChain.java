@@ -0,0 +1,71 @@
+/*
+* Copyright 2014 Michael Scharhag
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.mscharhag.oleaster.runner.suite;
+
+import com.mscharhag.oleaster.runner.Invokable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The flattened {@code beforeEach} and {@code afterEach} handlers of a suite and all its parent suites,
+ * in the order in which they have to be invoked.
+ * <p>{@code beforeEach} handlers of outer suites come first, {@code afterEach} handlers of inner suites come first.
+ */
+public class HandlerChain {
+
+	private final List<Invokable> beforeEachHandlers;
+	private final List<Invokable> afterEachHandlers;
+
+	HandlerChain(HandlerChain parentChain, Suite suite) {
+		if (parentChain == null) {
+			this.beforeEachHandlers = copy(suite.getBeforeEachHandlers());
+			this.afterEachHandlers = copy(suite.getAfterEachHandlers());
+		} else {
+			this.beforeEachHandlers = concat(parentChain.beforeEachHandlers, suite.getBeforeEachHandlers());
+			this.afterEachHandlers = concat(suite.getAfterEachHandlers(), parentChain.afterEachHandlers);
+		}
+	}
+
+	private static List<Invokable> copy(List<Invokable> handlers) {
+		if (handlers.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<>(handlers));
+	}
+
+	private static List<Invokable> concat(List<Invokable> first, List<Invokable> second) {
+		if (first.isEmpty()) {
+			return copy(second);
+		}
+		if (second.isEmpty()) {
+			return first;
+		}
+		List<Invokable> handlers = new ArrayList<>(first.size() + second.size());
+		handlers.addAll(first);
+		handlers.addAll(second);
+		return Collections.unmodifiableList(handlers);
+	}
+
+	public List<Invokable> getBeforeEachHandlers() {
+		return beforeEachHandlers;
+	}
+
+	public List<Invokable> getAfterEachHandlers() {
+		return afterEachHandlers;
+	}
+}
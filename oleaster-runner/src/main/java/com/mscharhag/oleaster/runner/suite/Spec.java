@@ -16,6 +16,7 @@
 package com.mscharhag.oleaster.runner.suite;
 
 import com.mscharhag.oleaster.runner.Invokable;
+import com.mscharhag.oleaster.runner.ResourceLock;
 
 import org.junit.runners.model.Statement;
 
@@ -26,17 +27,26 @@ public class Spec extends Statement {
 	private Suite suite;
 	private String description;
 	private Optional<Invokable> block;
+	private ResourceLock resourceLock;
+	private volatile String fullDescription;
 
 	public Spec(Suite suite, String description, Optional<Invokable> block) {
+		this(suite, description, block, ResourceLock.NONE);
+	}
+
+	public Spec(Suite suite, String description, Optional<Invokable> block, ResourceLock resourceLock) {
 		this.suite = suite;
 		this.description = description;
 		this.block = block;
+		this.resourceLock = resourceLock;
 	}
 
 	public Spec(Spec spec) {
 		this.suite = spec.suite;
 		this.description = spec.description;
 		this.block = spec.block;
+		this.resourceLock = spec.resourceLock;
+		this.fullDescription = spec.fullDescription;
 	}
 
 	public String getDescription() {
@@ -47,12 +57,18 @@ public class Spec extends Statement {
 		return suite;
 	}
 
+	/**
+	 * Returns the full description of the suite followed by the description of this spec.
+	 * The full description is computed on first access.
+	 */
 	public String getFullDescription() {
-		String suiteDescription = suite.getFullDescription();
-		if (suiteDescription != null) {
-			return String.format("%s, %s", suiteDescription, this.description);
+		String fullDescription = this.fullDescription;
+		if (fullDescription == null) {
+			String suiteDescription = suite.getFullDescription();
+			fullDescription = suiteDescription != null ? suiteDescription + ", " + this.description : this.description;
+			this.fullDescription = fullDescription;
 		}
-		return String.format("%s", this.description);
+		return fullDescription;
 	}
 
 	@Override
@@ -65,4 +81,11 @@ public class Spec extends Statement {
 	public Optional<Invokable> getBlock() {
 		return block;
 	}
+
+	/**
+	 * Returns the resource lock declared by this spec. Locks of the suites that contain the spec are not included.
+	 */
+	public ResourceLock getResourceLock() {
+		return resourceLock;
+	}
 }
@@ -16,62 +16,80 @@
 package com.mscharhag.oleaster.runner.suite;
 
 import com.mscharhag.oleaster.runner.Invokable;
+import com.mscharhag.oleaster.runner.Let;
+import com.mscharhag.oleaster.runner.ResourceLock;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Suite {
 
-	private Suite parent;
-	private String description;
+	private final Suite parent;
+	private final String description;
+	private final ResourceLock resourceLock;
+	private volatile String fullDescription;
+	private boolean frozen;
 
-	private List<Suite> suites = new ArrayList<>();
-	private List<Spec> specs = new ArrayList<>();
-	private List<Invokable> beforeEachHandlers = new ArrayList<>();
-	private List<Invokable> beforeHandlers = new ArrayList<>();
-	private List<Invokable> afterEachHandlers = new ArrayList<>();
-	private List<Invokable> afterHandlers = new ArrayList<>();
+	private List<Suite> suites = Collections.emptyList();
+	private List<Spec> specs = Collections.emptyList();
+	private List<Invokable> beforeEachHandlers = Collections.emptyList();
+	private List<Invokable> beforeHandlers = Collections.emptyList();
+	private List<Invokable> afterEachHandlers = Collections.emptyList();
+	private List<Invokable> afterHandlers = Collections.emptyList();
+	private List<Let<?>> lets = Collections.emptyList();
+
+	private volatile HandlerChain handlerChain;
 
 
 	public Suite(Suite parent, String description) {
+		this(parent, description, ResourceLock.NONE);
+	}
+
+	public Suite(Suite parent, String description, ResourceLock resourceLock) {
 		this.parent = parent;
 		this.description = description;
+		this.resourceLock = resourceLock;
 	}
 
 	public void addBeforeEachHandler(Invokable block) {
-		beforeEachHandlers.add(block);
+		this.beforeEachHandlers = this.add(this.beforeEachHandlers, block);
 	}
 
 	public void addAfterEachHandler(Invokable block) {
-		afterEachHandlers.add(block);
+		this.afterEachHandlers = this.add(this.afterEachHandlers, block);
 	}
 
 	public void addBeforeEachHandlers(List<Invokable> calls) {
-		this.beforeEachHandlers.addAll(calls);
+		this.beforeEachHandlers = this.addAll(this.beforeEachHandlers, calls);
 	}
 
 	public void addBeforeHandler(Invokable block) {
-		this.beforeHandlers.add(block);
+		this.beforeHandlers = this.add(this.beforeHandlers, block);
 	}
 
 	public void addBeforeHandlers(List<Invokable> calls) {
-		this.beforeHandlers.addAll(calls);
+		this.beforeHandlers = this.addAll(this.beforeHandlers, calls);
 	}
 
 	public void addAfterHandler(Invokable block) {
-		this.afterHandlers.add(block);
+		this.afterHandlers = this.add(this.afterHandlers, block);
 	}
 
 	public void addAfterHandlers(List<Invokable> calls) {
-		this.afterHandlers.addAll(calls);
+		this.afterHandlers = this.addAll(this.afterHandlers, calls);
 	}
 
 	public void addAfterEachHandlers(List<Invokable> calls) {
-		this.afterEachHandlers.addAll(calls);
+		this.afterEachHandlers = this.addAll(this.afterEachHandlers, calls);
+	}
+
+	public void addLets(List<Let<?>> lets) {
+		this.lets = this.addAll(this.lets, lets);
 	}
 
 	public void addSpec(Spec spec) {
-		this.specs.add(spec);
+		this.specs = this.add(this.specs, spec);
 	}
 
 	public Suite getParent() {
@@ -79,7 +97,65 @@ public class Suite {
 	}
 
 	public void addChildSuite(Suite child) {
-		this.suites.add(child);
+		this.suites = this.add(this.suites, child);
+	}
+
+	private <T> List<T> add(List<T> list, T element) {
+		List<T> target = this.modifiable(list, 1);
+		target.add(element);
+		return target;
+	}
+
+	private <T> List<T> addAll(List<T> list, List<T> elements) {
+		if (elements.isEmpty()) {
+			this.failIfFrozen();
+			return list;
+		}
+		List<T> target = this.modifiable(list, elements.size());
+		target.addAll(elements);
+		return target;
+	}
+
+	private <T> List<T> modifiable(List<T> list, int additionalElements) {
+		this.failIfFrozen();
+		if (list.isEmpty()) {
+			return new ArrayList<>(additionalElements);
+		}
+		return list;
+	}
+
+	private void failIfFrozen() {
+		if (this.frozen) {
+			throw new IllegalStateException(String.format("Suite '%s' is frozen and can not be modified", this.getFullDescription()));
+		}
+	}
+
+	/**
+	 * Turns this suite and all its child suites into an immutable, compact representation.
+	 * <p>Collections are trimmed to their size (empty collections are shared) and full descriptions
+	 * are computed once. Frozen suites can not be modified anymore.
+	 */
+	public void freeze() {
+		if (this.frozen) {
+			return;
+		}
+		this.suites = ArrayBackedList.copyOf(this.suites);
+		this.specs = ArrayBackedList.copyOf(this.specs);
+		this.beforeEachHandlers = ArrayBackedList.copyOf(this.beforeEachHandlers);
+		this.beforeHandlers = ArrayBackedList.copyOf(this.beforeHandlers);
+		this.afterEachHandlers = ArrayBackedList.copyOf(this.afterEachHandlers);
+		this.afterHandlers = ArrayBackedList.copyOf(this.afterHandlers);
+		this.lets = ArrayBackedList.copyOf(this.lets);
+		this.frozen = true;
+
+		this.getFullDescription();
+		this.getHandlerChain();
+		this.specs.forEach(Spec::getFullDescription);
+		this.suites.forEach(Suite::freeze);
+	}
+
+	public boolean isFrozen() {
+		return frozen;
 	}
 
 	public List<Invokable> getBeforeEachHandlers() {
@@ -98,6 +174,27 @@ public class Suite {
 		return this.afterHandlers;
 	}
 
+	/**
+	 * Returns the {@code let()} values defined by this suite. Values of parent suites are not included.
+	 */
+	public List<Let<?>> getLets() {
+		return this.lets;
+	}
+
+
+	/**
+	 * Returns the {@code beforeEach}/{@code afterEach} handlers of this suite and its parent suites in invocation order.
+	 * The chain is computed on first access and then shared by all specs of this suite.
+	 */
+	public HandlerChain getHandlerChain() {
+		HandlerChain chain = this.handlerChain;
+		if (chain == null) {
+			chain = new HandlerChain(this.parent != null ? this.parent.getHandlerChain() : null, this);
+			this.handlerChain = chain;
+		}
+		return chain;
+	}
+
 
 	public List<Spec> collectSpecs() {
 		List<Spec> allSpecs = new ArrayList<>(this.specs);
@@ -109,14 +206,25 @@ public class Suite {
 		return description;
 	}
 
+	/**
+	 * Returns the resource lock declared by this suite. Locks of parent suites are not included.
+	 */
+	public ResourceLock getResourceLock() {
+		return resourceLock;
+	}
+
+	/**
+	 * Returns the descriptions of all parent suites followed by the description of this suite.
+	 * The full description is computed on first access.
+	 */
 	public String getFullDescription() {
-		if (this.parent != null) {
-			String parentDescription = this.parent.getFullDescription();
-			if (parentDescription != null) {
-				return String.format("%s, %s", parentDescription, this.description);
-			}
+		String fullDescription = this.fullDescription;
+		if (fullDescription == null && this.description != null) {
+			String parentDescription = this.parent != null ? this.parent.getFullDescription() : null;
+			fullDescription = parentDescription != null ? parentDescription + ", " + this.description : this.description;
+			this.fullDescription = fullDescription;
 		}
-		return this.description;
+		return fullDescription;
 	}
 
 	public List<Suite> getSuites() {
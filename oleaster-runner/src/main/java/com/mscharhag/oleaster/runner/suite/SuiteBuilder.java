@@ -16,14 +16,28 @@
 package com.mscharhag.oleaster.runner.suite;
 
 
+import com.mscharhag.oleaster.runner.AsyncInvokable;
 import com.mscharhag.oleaster.runner.Invokable;
+import com.mscharhag.oleaster.runner.Let;
 import com.mscharhag.oleaster.runner.PendingInvokable;
+import com.mscharhag.oleaster.runner.ResourceLock;
+import com.mscharhag.oleaster.runner.RowInvokable;
+import com.mscharhag.oleaster.runner.Rows;
+import com.mscharhag.oleaster.runner.SharedFixture;
+import com.mscharhag.oleaster.runner.StageInvokable;
+import com.mscharhag.oleaster.runner.TimeoutInvokable;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class SuiteBuilder {
 
@@ -35,6 +49,9 @@ public class SuiteBuilder {
 	private List<Invokable> beforeHandlers;
 	private List<Invokable> afterEachHandlers;
 	private List<Invokable> afterHandlers;
+	private List<Let<?>> lets;
+	private Map<String, ResourceLock> suiteResourceLocks;
+	private Map<String, ResourceLock> specResourceLocks;
 
 	public SuiteBuilder() {
 		this.prepare();
@@ -49,6 +66,9 @@ public class SuiteBuilder {
 		this.afterHandlers = new ArrayList<>();
 		this.beforeEachHandlers = new ArrayList<>();
 		this.afterEachHandlers = new ArrayList<>();
+		this.lets = new ArrayList<>();
+		this.suiteResourceLocks = new HashMap<>();
+		this.specResourceLocks = new HashMap<>();
 	}
 
 	public void beforeEvaluation() {
@@ -64,6 +84,25 @@ public class SuiteBuilder {
 		this.suiteDefinitions.put(description, definition);
 	}
 
+	public void describe(String description, Duration timeout, Invokable definition) {
+		this.describe(description, new TimeoutInvokable(timeout, definition));
+	}
+
+	public void describe(String description, ResourceLock resourceLock, Invokable definition) {
+		this.describe(description, definition);
+		this.suiteResourceLocks.put(description, resourceLock);
+	}
+
+	/**
+	 * Creates a suite for every row. The description is used as format string, the values of a row are the
+	 * format arguments. Descriptions that are not unique get the number of the row appended, descriptions
+	 * without format specifiers are named by the number of the row.
+	 */
+	public <T> void describeEach(String description, Rows<T> rows, RowInvokable<T> definition) {
+		forEachRow(description, rows, this::suiteDescriptionExists,
+				(rowDescription, row) -> this.describe(rowDescription, () -> definition.invoke(row.get())));
+	}
+
 	public void fdescribe(String description, Invokable definition) {
 		throwExceptionWhenSuiteDescriptionExists(description);
 		this.focusedSuiteDefinitions.put(description, definition);
@@ -75,28 +114,105 @@ public class SuiteBuilder {
 	}
 
 	private void throwExceptionWhenSuiteDescriptionExists(final String description) {
-		if (this.suiteDefinitions.containsKey(description) || this.focusedSuiteDefinitions.containsKey(description)) {
+		if (this.suiteDescriptionExists(description)) {
 			throw new IllegalArgumentException(String.format("Suite with description '%s' does already exist", description));
 		}
 	}
 
+	/**
+	 * Creates a spec for every row. The description is used as format string, the values of a row are the
+	 * format arguments. Descriptions that are not unique get the number of the row appended, descriptions
+	 * without format specifiers are named by the number of the row.
+	 * <p>If the description is not formatted, specs only keep a reference to their row and the row is obtained
+	 * when the spec is run.
+	 */
+	public <T> void itEach(String description, Rows<T> rows, RowInvokable<T> definition) {
+		forEachRow(description, rows, this::specDescriptionExists,
+				(rowDescription, row) -> this.it(rowDescription, () -> definition.invoke(row.get())));
+	}
+
+	/**
+	 * Passes the description and the row of every row to the consumer. A row that is needed to format the
+	 * description is read once and passed on as it is, so the spec gets the row it is named after.
+	 */
+	private static <T> void forEachRow(String format, Rows<T> rows, Predicate<String> exists,
+			BiConsumer<String, Supplier<T>> consumer) {
+		boolean formatted = hasFormatSpecifiers(format);
+		int index = 0;
+		for (Supplier<T> row : rows) {
+			index++;
+			if (formatted) {
+				T value = row.get();
+				Object[] values = value instanceof Object[] ? (Object[]) value : new Object[] { value };
+				String description = String.format(format, values);
+				consumer.accept(exists.test(description) ? String.format("%s (row %d)", description, index) : description,
+						() -> value);
+			} else {
+				consumer.accept(String.format("%s (row %d)", String.format(format), index), row);
+			}
+		}
+	}
+
+	private static boolean hasFormatSpecifiers(String format) {
+		for (int i = format.indexOf('%'); i >= 0 && i + 1 < format.length(); i = format.indexOf('%', i + 2)) {
+			char conversion = format.charAt(i + 1);
+			if (conversion != '%' && conversion != 'n') {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public void it(String description, Invokable definition) {
 		throwExceptionWhenSpecDescriptionExists(description);
 		this.specDefinitions.put(description, Optional.of(definition));
 	}
 
+	public void it(String description, AsyncInvokable definition) {
+		this.it(description, (Invokable) definition);
+	}
+
+	public void it(String description, StageInvokable definition) {
+		this.it(description, (Invokable) definition);
+	}
+
+	public void it(String description, Duration timeout, Invokable definition) {
+		this.it(description, new TimeoutInvokable(timeout, definition));
+	}
+
+	public void it(String description, ResourceLock resourceLock, Invokable definition) {
+		this.it(description, definition);
+		this.specResourceLocks.put(description, resourceLock);
+	}
+
 	public void fit(String description, Invokable definition) {
 		throwExceptionWhenSpecDescriptionExists(description);
 		this.focusedSpecDefinitions.put(description, Optional.of(definition));
 	}
 
+	public void fit(String description, AsyncInvokable definition) {
+		this.fit(description, (Invokable) definition);
+	}
+
+	public void fit(String description, StageInvokable definition) {
+		this.fit(description, (Invokable) definition);
+	}
+
 	public void xit(String description) {
 		throwExceptionWhenSpecDescriptionExists(description);
 		this.specDefinitions.put(description, Optional.empty());
 	}
 
+	private boolean suiteDescriptionExists(String description) {
+		return this.suiteDefinitions.containsKey(description) || this.focusedSuiteDefinitions.containsKey(description);
+	}
+
+	private boolean specDescriptionExists(String description) {
+		return this.specDefinitions.containsKey(description) || this.focusedSpecDefinitions.containsKey(description);
+	}
+
 	private void throwExceptionWhenSpecDescriptionExists(final String description) {
-		if (this.specDefinitions.containsKey(description) || this.focusedSpecDefinitions.containsKey(description)) {
+		if (this.specDescriptionExists(description)) {
 			throw new IllegalArgumentException(String.format("Spec with description '%s' does already exist", description));
 		}
 	}
@@ -105,6 +221,14 @@ public class SuiteBuilder {
 		this.beforeEachHandlers.add(block);
 	}
 
+	public void beforeEach(AsyncInvokable block) {
+		this.beforeEach((Invokable) block);
+	}
+
+	public void beforeEach(StageInvokable block) {
+		this.beforeEach((Invokable) block);
+	}
+
 	public void before(Invokable block) {
 		this.beforeHandlers.add(block);
 	}
@@ -113,10 +237,44 @@ public class SuiteBuilder {
 		this.afterEachHandlers.add(block);
 	}
 
+	public void afterEach(AsyncInvokable block) {
+		this.afterEach((Invokable) block);
+	}
+
+	public void afterEach(StageInvokable block) {
+		this.afterEach((Invokable) block);
+	}
+
 	public void after(Invokable block) {
 		this.afterHandlers.add(block);
 	}
 
+	public <T> Let<T> let(String name, Callable<T> factory) {
+		return this.addLet(new Let<>(name, factory));
+	}
+
+	public <T> Let<T> let(String name, Callable<T> factory, Let.Closer<? super T> closer) {
+		return this.addLet(new Let<>(name, factory, closer));
+	}
+
+	/**
+	 * Acquires the shared fixture before the first spec of the suite and releases it after the last spec.
+	 */
+	public <T> SharedFixture<T> sharedFixture(String name, Callable<T> factory, Let.Closer<? super T> closer) {
+		SharedFixture<T> fixture = new SharedFixture<>(name, factory, closer);
+		this.before(fixture::acquire);
+		this.after(fixture::release);
+		return fixture;
+	}
+
+	private <T> Let<T> addLet(Let<T> let) {
+		if (this.lets.stream().anyMatch(l -> l.getName().equals(let.getName()))) {
+			throw new IllegalArgumentException(String.format("Let with name '%s' does already exist", let.getName()));
+		}
+		this.lets.add(let);
+		return let;
+	}
+
 	public Map<String, Invokable> getSuiteDefinitions() {
 		return suiteDefinitions;
 	}
@@ -148,4 +306,16 @@ public class SuiteBuilder {
 	public List<Invokable> getAfterHandlers() {
 		return afterHandlers;
 	}
+
+	public List<Let<?>> getLets() {
+		return lets;
+	}
+
+	public Map<String, ResourceLock> getSuiteResourceLocks() {
+		return suiteResourceLocks;
+	}
+
+	public Map<String, ResourceLock> getSpecResourceLocks() {
+		return specResourceLocks;
+	}
 }
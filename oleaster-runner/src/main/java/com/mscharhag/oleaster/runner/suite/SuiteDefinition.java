@@ -17,6 +17,11 @@ package com.mscharhag.oleaster.runner.suite;
 
 import com.mscharhag.oleaster.runner.Invokable;
 import com.mscharhag.oleaster.runner.PendingInvokable;
+import com.mscharhag.oleaster.runner.ResourceLock;
+import com.mscharhag.oleaster.runner.TimeoutInvokable;
+
+import java.time.Duration;
+import java.util.Optional;
 
 public class SuiteDefinition {
 
@@ -24,16 +29,27 @@ public class SuiteDefinition {
 	private String description;
 	private Invokable block;
 	private boolean parentIsPending;
+	private Optional<Duration> parentTimeout;
+	private ResourceLock resourceLock;
 
 
 	public SuiteDefinition(Suite parent, String description, Invokable block) {
 		this(parent, description, block, false);
 	}
 	public SuiteDefinition(Suite parent, String description, Invokable block, boolean parentIsPending) {
+		this(parent, description, block, parentIsPending, Optional.empty());
+	}
+	public SuiteDefinition(Suite parent, String description, Invokable block, boolean parentIsPending, Optional<Duration> parentTimeout) {
+		this(parent, description, block, parentIsPending, parentTimeout, ResourceLock.NONE);
+	}
+	public SuiteDefinition(Suite parent, String description, Invokable block, boolean parentIsPending, Optional<Duration> parentTimeout,
+			ResourceLock resourceLock) {
 		this.parent = parent;
 		this.description = description;
 		this.block = block;
 		this.parentIsPending = parentIsPending;
+		this.parentTimeout = parentTimeout;
+		this.resourceLock = resourceLock;
 	}
 
 	public Suite getParent() {
@@ -51,4 +67,16 @@ public class SuiteDefinition {
 	public boolean isPending() {
 		return block instanceof PendingInvokable || parentIsPending;
 	}
+
+	/**
+	 * Returns the timeout of the specs in this suite. A timeout defined by this suite takes
+	 * precedence over the timeout of the parent suite.
+	 */
+	public Optional<Duration> getTimeout() {
+		return block instanceof TimeoutInvokable ? Optional.of(((TimeoutInvokable) block).getTimeout()) : parentTimeout;
+	}
+
+	public ResourceLock getResourceLock() {
+		return resourceLock;
+	}
 }
@@ -16,16 +16,33 @@
 package com.mscharhag.oleaster.runner.suite;
 
 import com.mscharhag.oleaster.runner.Invokable;
+import com.mscharhag.oleaster.runner.ResourceLock;
+import com.mscharhag.oleaster.runner.TimeoutInvokable;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class SuiteDefinitionEvaluator {
 
 
 	public Suite evaluate(SuiteDefinition suiteDefinition, SuiteBuilder suiteBuilder) {
+		return this.evaluate(suiteDefinition, suiteBuilder, suite -> true);
+	}
+
+
+	/**
+	 * Evaluates the suite definition and all child suite definitions that are accepted by the {@code suiteFilter}.
+	 * <p>Before the definition of a child suite is invoked, the filter is called with a suite that has the parent
+	 * and the description of the child suite, but no specs yet. Rejected child suites are never invoked and are
+	 * not part of the returned suite tree.
+	 */
+	public Suite evaluate(SuiteDefinition suiteDefinition, SuiteBuilder suiteBuilder, Predicate<Suite> suiteFilter) {
 		this.invokeSuiteDefinition(suiteDefinition, suiteBuilder);
-		return this.createSuite(suiteDefinition, suiteBuilder);
+		return this.createSuite(suiteDefinition, suiteBuilder, suiteFilter);
 	}
 
 
@@ -42,33 +59,54 @@ public class SuiteDefinitionEvaluator {
 	}
 
 
-	private Suite createSuite(SuiteDefinition suiteDefinition, SuiteBuilder suiteBuilder) {
-		Suite suite = new Suite(suiteDefinition.getParent(), suiteDefinition.getDescription());
+	private Suite createSuite(SuiteDefinition suiteDefinition, SuiteBuilder suiteBuilder, Predicate<Suite> suiteFilter) {
+		Suite suite = new Suite(suiteDefinition.getParent(), suiteDefinition.getDescription(), suiteDefinition.getResourceLock());
 
-		suite.addBeforeHandlers(suiteBuilder.getBeforeHandlers());
+		// beforeEach and afterEach handlers are run with the timeout of the spec
+		Optional<Duration> timeout = suiteDefinition.getTimeout();
+		suite.addBeforeHandlers(withTimeout(suiteBuilder.getBeforeHandlers(), timeout));
 		suite.addBeforeEachHandlers(suiteBuilder.getBeforeEachHandlers());
 		suite.addAfterEachHandlers(suiteBuilder.getAfterEachHandlers());
-		suite.addAfterHandlers(suiteBuilder.getAfterHandlers());
+		suite.addAfterHandlers(withTimeout(suiteBuilder.getAfterHandlers(), timeout));
+		suite.addLets(suiteBuilder.getLets());
 
 		Map<String, Optional<Invokable>> specDefinitions = suiteBuilder.getFocusedSpecDefinitions().size() > 0
 				? suiteBuilder.getFocusedSpecDefinitions()
 				: suiteBuilder.getSpecDefinitions();
 
+		// the builder is reset when child suites are evaluated
+		Map<String, ResourceLock> specResourceLocks = suiteBuilder.getSpecResourceLocks();
+		Map<String, ResourceLock> suiteResourceLocks = suiteBuilder.getSuiteResourceLocks();
+
 		specDefinitions.forEach((description, block) ->
-				suite.addSpec(new Spec(suite, description, suiteDefinition.isPending() ? Optional.empty() : block)));
-
-		if (suiteBuilder.getFocusedSuiteDefinitions().size() > 0) {
-			suiteBuilder.getFocusedSuiteDefinitions().forEach((description, block) -> {
-				SuiteDefinition childSuiteDefinition = new SuiteDefinition(suite, description, block, suiteDefinition.isPending());
-				suite.addChildSuite(this.evaluate(childSuiteDefinition, suiteBuilder));
-			});
-		} else {
-			suiteBuilder.getSuiteDefinitions().forEach((description, block) -> {
-				SuiteDefinition childSuiteDefinition = new SuiteDefinition(suite, description, block, suiteDefinition.isPending());
-				suite.addChildSuite(this.evaluate(childSuiteDefinition, suiteBuilder));
-			});
-		}
+				suite.addSpec(new Spec(suite, description, suiteDefinition.isPending() ? Optional.empty() : block.map(b -> withTimeout(b, timeout)),
+						specResourceLocks.getOrDefault(description, ResourceLock.NONE))));
+
+		Map<String, Invokable> suiteDefinitions = suiteBuilder.getFocusedSuiteDefinitions().size() > 0
+				? suiteBuilder.getFocusedSuiteDefinitions()
+				: suiteBuilder.getSuiteDefinitions();
+
+		suiteDefinitions.forEach((description, block) -> {
+			if (suiteFilter.test(new Suite(suite, description))) {
+				SuiteDefinition childSuiteDefinition = new SuiteDefinition(suite, description, block, suiteDefinition.isPending(), timeout,
+						suiteResourceLocks.getOrDefault(description, ResourceLock.NONE));
+				suite.addChildSuite(this.evaluate(childSuiteDefinition, suiteBuilder, suiteFilter));
+			}
+		});
 
 		return suite;
 	}
+
+
+	private static List<Invokable> withTimeout(List<Invokable> blocks, Optional<Duration> timeout) {
+		return blocks.stream().map(block -> withTimeout(block, timeout)).collect(Collectors.toList());
+	}
+
+
+	private static Invokable withTimeout(Invokable block, Optional<Duration> timeout) {
+		if (!timeout.isPresent() || block instanceof TimeoutInvokable) {
+			return block;
+		}
+		return new TimeoutInvokable(timeout.get(), block);
+	}
 }
@@ -0,0 +1,122 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.TestTimedOutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class AsyncSpecTest {
+
+	private static final int SUITES = 20;
+
+	private static List<String> calls;
+	private static AtomicInteger inFlight;
+	private static CompletableFuture<Void> allInFlight;
+
+	private List<Failure> failures;
+
+	public static class AsyncTestClass {{
+		beforeEach(done -> later(() -> {
+			calls.add("beforeEach");
+			done.complete();
+		}));
+		afterEach(() -> CompletableFuture.runAsync(() -> calls.add("afterEach")));
+
+		it("completes using done", done -> later(() -> {
+			calls.add("done spec");
+			done.complete();
+		}));
+		it("completes with the returned stage", () -> CompletableFuture.runAsync(() -> calls.add("stage spec")));
+		it("fails using done", done -> later(() -> done.fail(new IllegalStateException("done failure"))));
+		it("fails with the returned stage", () -> CompletableFuture.runAsync(() -> {
+			throw new IllegalStateException("stage failure");
+		}));
+	}}
+
+	@Parallel(threads = 1)
+	public static class ParallelAsyncTestClass {{
+		for (int i = 0; i < SUITES; i++) {
+			describe("suite " + i, Duration.ofSeconds(5), () -> {
+				it("waits for the specs of all other suites", () -> {
+					if (inFlight.incrementAndGet() == SUITES) {
+						allInFlight.complete(null);
+					}
+					return allInFlight;
+				});
+			});
+		}
+		describe("a hanging suite", () -> {
+			it("times out", Duration.ofMillis(50), (StageInvokable) CompletableFuture::new);
+		});
+	}}
+
+	private static void later(Runnable runnable) {
+		new Thread(runnable).start();
+	}
+
+	private void run(Class<?> testClass) throws Exception {
+		calls = Collections.synchronizedList(new ArrayList<>());
+		failures = Collections.synchronizedList(new ArrayList<>());
+		inFlight = new AtomicInteger();
+		allInFlight = new CompletableFuture<>();
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure);
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+{
+	describe("OleasterRunner with asynchronous specs", () -> {
+
+		describe("when the specs are run one after another", () -> {
+
+			beforeEach(() -> run(AsyncTestClass.class));
+
+			it("waits for asynchronous specs and handlers to complete", () -> {
+				assertEquals(Arrays.asList(
+						"beforeEach", "done spec", "afterEach",
+						"beforeEach", "stage spec", "afterEach",
+						"beforeEach", "afterEach",
+						"beforeEach", "afterEach"), calls);
+			});
+
+			it("reports failures of asynchronous specs", () -> {
+				assertEquals(2, failures.size());
+				assertEquals("done failure", failures.get(0).getMessage());
+				assertEquals("stage failure", failures.get(1).getMessage());
+			});
+		});
+
+		describe("when the specs are run in parallel", () -> {
+
+			beforeEach(() -> run(ParallelAsyncTestClass.class));
+
+			it("keeps more asynchronous specs in flight than there are threads", () -> {
+				assertEquals(SUITES, inFlight.get());
+				assertEquals(1, failures.size());
+			});
+
+			it("fails asynchronous specs that exceed their timeout", () -> {
+				assertEquals("a hanging suite, times out", failures.get(0).getDescription().getMethodName());
+				assertTrue(failures.get(0).getException() instanceof TestTimedOutException);
+			});
+		});
+	});
+}}
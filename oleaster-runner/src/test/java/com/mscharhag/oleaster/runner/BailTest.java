@@ -0,0 +1,98 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class BailTest {
+
+	private static List<String> calls;
+
+	private List<String> events;
+
+	@Bail
+	public static class BailTestClass {{
+		describe("first suite", () -> {
+			before(() -> calls.add("first before"));
+			it("fails", () -> fail("expected"));
+			it("is skipped", () -> calls.add("skipped spec"));
+			after(() -> calls.add("first after"));
+		});
+		describe("second suite", () -> {
+			before(() -> calls.add("second before"));
+			it("is skipped too", () -> calls.add("skipped spec"));
+		});
+	}}
+
+	@Bail
+	@Parallel(threads = 1)
+	public static class ParallelBailTestClass extends BailTestClass {
+
+	}
+
+	private void run(Class<?> testClass) throws Exception {
+		calls = Collections.synchronizedList(new ArrayList<>());
+		events = Collections.synchronizedList(new ArrayList<>());
+
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				events.add("failed " + failure.getDescription().getMethodName());
+			}
+
+			@Override
+			public void testIgnored(Description description) {
+				events.add("ignored " + description.getMethodName());
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+{
+	describe("OleasterRunner in bail mode", () -> {
+
+		describe("when a spec fails", () -> {
+
+			beforeEach(() -> run(BailTestClass.class));
+
+			it("does not start further specs", () -> {
+				assertFalse(calls.contains("skipped spec"));
+				assertFalse(calls.contains("second before"));
+			});
+
+			it("runs the after handlers of started suites", () -> {
+				assertEquals(Arrays.asList("first before", "first after"), calls);
+			});
+
+			it("reports the remaining specs as ignored", () -> {
+				assertEquals(Arrays.asList(
+						"failed first suite, fails",
+						"ignored first suite, is skipped",
+						"ignored second suite, is skipped too"), events);
+			});
+		});
+
+		describe("when a spec fails in parallel mode", () -> {
+
+			beforeEach(() -> run(ParallelBailTestClass.class));
+
+			it("drops queued suites and reports their specs as ignored", () -> {
+				assertEquals(Arrays.asList("first before", "first after"), calls);
+				assertEquals(3, events.size());
+				assertTrue(events.contains("ignored second suite, is skipped too"));
+			});
+		});
+	});
+}}
@@ -0,0 +1,76 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.ExecutionPlan;
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Measures the dispatch cost per spec for suites of growing size.
+ * <p>The time per spec should stay flat when the number of specs per suite grows.
+ * The best result of all measured rounds is reported.
+ * Run with: {@code java -cp <test classpath> com.mscharhag.oleaster.runner.ExecutionPlanBenchmark}
+ */
+public class ExecutionPlanBenchmark {
+
+	private static final int[] SUITE_SIZES = {1_000, 2_500, 5_000, 10_000};
+	private static final int WARMUP_ROUNDS = 10;
+	private static final int MEASURED_ROUNDS = 20;
+
+	public static class TestClass { }
+
+	public static void main(String[] args) throws Exception {
+		OleasterRunner runner = new OleasterRunner(TestClass.class);
+		RunNotifier notifier = new RunNotifier();
+
+		long[] bestNanosPerSpec = new long[SUITE_SIZES.length];
+		Arrays.fill(bestNanosPerSpec, Long.MAX_VALUE);
+
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+			for (int i = 0; i < SUITE_SIZES.length; i++) {
+				ExecutionPlan plan = ExecutionPlan.compile(createSuite(SUITE_SIZES[i]));
+				System.gc();
+
+				long nanosPerSpec = runSpecs(runner, plan, notifier) / SUITE_SIZES[i];
+				if (round >= WARMUP_ROUNDS) {
+					bestNanosPerSpec[i] = Math.min(bestNanosPerSpec[i], nanosPerSpec);
+				}
+			}
+		}
+
+		for (int i = 0; i < SUITE_SIZES.length; i++) {
+			System.out.printf("%6d specs per suite: %5d ns per spec%n", SUITE_SIZES[i], bestNanosPerSpec[i]);
+		}
+	}
+
+	private static long runSpecs(OleasterRunner runner, ExecutionPlan plan, RunNotifier notifier) {
+		long start = System.nanoTime();
+		for (Spec spec : plan.getSpecs()) {
+			runner.runChild(spec, notifier);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static Suite createSuite(int numberOfSpecs) {
+		Suite outer = new Suite(null, "outer");
+		outer.addBeforeEachHandler(() -> {});
+		outer.addAfterEachHandler(() -> {});
+		Suite middle = new Suite(outer, "middle");
+		middle.addBeforeEachHandler(() -> {});
+		Suite inner = new Suite(middle, "inner");
+		inner.addBeforeHandler(() -> {});
+		inner.addBeforeEachHandler(() -> {});
+		inner.addAfterEachHandler(() -> {});
+		inner.addAfterHandler(() -> {});
+		outer.addChildSuite(middle);
+		middle.addChildSuite(inner);
+		for (int i = 0; i < numberOfSpecs; i++) {
+			inner.addSpec(new Spec(inner, "spec " + i, Optional.of(() -> {})));
+		}
+		return outer;
+	}
+}
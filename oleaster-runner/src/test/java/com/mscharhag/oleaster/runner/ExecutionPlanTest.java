@@ -0,0 +1,65 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.ExecutionPlan;
+import com.mscharhag.oleaster.runner.suite.HandlerChain;
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class ExecutionPlanTest {
+
+	private Invokable outerBeforeEach = () -> {}, innerBeforeEach = () -> {};
+	private Invokable outerAfterEach = () -> {}, innerAfterEach = () -> {};
+	private Suite outer, inner;
+	private Spec first, second, third;
+
+{
+	describe("ExecutionPlan", () -> {
+
+		beforeEach(() -> {
+			outer = new Suite(null, "outer");
+			outer.addBeforeEachHandler(outerBeforeEach);
+			outer.addAfterEachHandler(outerAfterEach);
+			inner = new Suite(outer, "inner");
+			inner.addBeforeEachHandler(innerBeforeEach);
+			inner.addAfterEachHandler(innerAfterEach);
+			outer.addChildSuite(inner);
+
+			first = new Spec(inner, "first", Optional.empty());
+			second = new Spec(inner, "second", Optional.empty());
+			third = new Spec(outer, "third", Optional.empty());
+			inner.addSpec(first);
+			inner.addSpec(second);
+			outer.addSpec(third);
+		});
+
+		it("contains the specs in execution order", () -> {
+			assertEquals(Arrays.asList(third, first, second), ExecutionPlan.compile(outer).getSpecs());
+		});
+
+		describe("when the handler chain of a nested suite is obtained", () -> {
+
+			it("contains outer beforeEach handlers first", () -> {
+				HandlerChain chain = inner.getHandlerChain();
+				assertEquals(Arrays.asList(outerBeforeEach, innerBeforeEach), chain.getBeforeEachHandlers());
+			});
+
+			it("contains inner afterEach handlers first", () -> {
+				HandlerChain chain = inner.getHandlerChain();
+				assertEquals(Arrays.asList(innerAfterEach, outerAfterEach), chain.getAfterEachHandlers());
+			});
+
+			it("is computed only once", () -> {
+				assertSame(inner.getHandlerChain(), inner.getHandlerChain());
+			});
+		});
+	});
+}}
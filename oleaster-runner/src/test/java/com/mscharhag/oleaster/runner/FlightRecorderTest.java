@@ -0,0 +1,121 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class FlightRecorderTest {
+
+	private List<String> events;
+
+	public static class RecordedTestClass {{
+		describe("outer", () -> {
+			before(() -> { });
+			beforeEach(() -> { });
+			describe("inner", () -> {
+				beforeEach(() -> { });
+				afterEach(() -> { });
+				it("spec", () -> { });
+			});
+			it("async spec", done -> done.complete());
+		});
+	}}
+
+	/**
+	 * Runs the test class while a flight recording is running and returns the recorded Oleaster events.
+	 * The JFR API is used reflectively, because the tests are compiled for Java 8.
+	 */
+	private static List<String> record(Class<?> testClass) throws Exception {
+		Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+		Object recording = recordingClass.getConstructor().newInstance();
+		for (String name : new String[] {"oleaster.Suite", "oleaster.Spec", "oleaster.Hook"}) {
+			recordingClass.getMethod("enable", String.class).invoke(recording, name);
+		}
+		recordingClass.getMethod("start").invoke(recording);
+		new OleasterRunner(testClass).run(new RunNotifier());
+		recordingClass.getMethod("stop").invoke(recording);
+		Path file = Files.createTempFile("oleaster", ".jfr");
+		try {
+			recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+			recordingClass.getMethod("close").invoke(recording);
+			List<?> recordedEvents = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+					.getMethod("readAllEvents", Path.class).invoke(null, file);
+			List<String> events = new ArrayList<>();
+			for (Object event : recordedEvents) {
+				Object eventType = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getEventType").invoke(event);
+				String name = (String) Class.forName("jdk.jfr.EventType").getMethod("getName").invoke(eventType);
+				events.add(format(name, event));
+			}
+			return events;
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static String format(String name, Object event) throws Exception {
+		Class<?> recordedObject = Class.forName("jdk.jfr.consumer.RecordedObject");
+		StringBuilder sb = new StringBuilder(name);
+		for (String field : new String[] {"testClass", "suite", "spec", "phase", "index"}) {
+			if ((boolean) recordedObject.getMethod("hasField", String.class).invoke(event, field)) {
+				sb.append(" ").append(field).append("=").append(recordedObject.getMethod("getValue", String.class).invoke(event, field));
+			}
+		}
+		return sb.toString();
+	}
+
+{
+	describe("Flight recorder events", () -> {
+
+		it("are not available on Java 8", () -> {
+			if (System.getProperty("java.specification.version").startsWith("1.")) {
+				assertFalse(FlightRecorderEvents.SPEC.isAvailable());
+				assertFalse(FlightRecorderEvents.HOOK.isAvailable());
+			}
+		});
+
+		it("are not created if no recording is running", () -> {
+			assertNull(FlightRecorderEvents.SPEC.begin());
+			assertNull(FlightRecorderEvents.HOOK.begin());
+		});
+
+		describe("when a recording is running", () -> {
+
+			beforeEach(() -> {
+				if (FlightRecorderEvents.SPEC.isAvailable()) {
+					events = record(RecordedTestClass.class);
+				}
+			});
+
+			it("reports suites and specs with their descriptions", () -> {
+				if (!FlightRecorderEvents.SPEC.isAvailable()) {
+					return;
+				}
+				String testClass = RecordedTestClass.class.getName();
+				assertTrue(events.contains("oleaster.Suite testClass=" + testClass + " suite=outer"));
+				assertTrue(events.contains("oleaster.Suite testClass=" + testClass + " suite=outer, inner"));
+				assertTrue(events.contains("oleaster.Spec testClass=" + testClass + " spec=outer, inner, spec"));
+				assertTrue(events.contains("oleaster.Spec testClass=" + testClass + " spec=outer, async spec"));
+			});
+
+			it("reports every handler with the suite that declares it", () -> {
+				if (!FlightRecorderEvents.SPEC.isAvailable()) {
+					return;
+				}
+				String testClass = RecordedTestClass.class.getName();
+				assertTrue(events.contains("oleaster.Hook testClass=" + testClass + " suite=outer spec=null phase=BEFORE index=0"));
+				assertTrue(events.contains("oleaster.Hook testClass=" + testClass + " suite=outer spec=outer, inner, spec phase=BEFORE_EACH index=0"));
+				assertTrue(events.contains("oleaster.Hook testClass=" + testClass + " suite=outer, inner spec=outer, inner, spec phase=BEFORE_EACH index=0"));
+				assertTrue(events.contains("oleaster.Hook testClass=" + testClass + " suite=outer, inner spec=outer, inner, spec phase=AFTER_EACH index=0"));
+				assertTrue(events.contains("oleaster.Hook testClass=" + testClass + " suite=outer spec=outer, async spec phase=BEFORE_EACH index=0"));
+			});
+		});
+	});
+}}
@@ -11,6 +11,8 @@ import com.mscharhag.oleaster.runner.suite.Suite;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
 
 import static org.junit.Assert.*;
@@ -71,6 +73,87 @@ public class HandlerTest {
     }
 
 
+    @Test
+    public void itExecutesOuterBeforeHandlersOnceForAllNestedSuites() {
+        suite.addBeforeHandler(block.apply("outerBefore"));
+        Suite firstChild = new Suite(suite, "first child");
+        Suite secondChild = new Suite(suite, "second child");
+        suite.addChildSuite(firstChild);
+        suite.addChildSuite(secondChild);
+        firstChild.addSpec(new Spec(firstChild, "spec", Optional.of(block.apply("first-spec"))));
+        secondChild.addSpec(new Spec(secondChild, "spec", Optional.of(block.apply("second-spec"))));
+        runner.runChild(firstChild.getSpecs().get(0), new RunNotifier());
+        runner.runChild(secondChild.getSpecs().get(0), new RunNotifier());
+        assertEquals(Arrays.asList("outerBefore", "first-spec", "second-spec"), calls);
+    }
+
+
+    @Test
+    public void itExecutesOuterAfterHandlersOnceAfterTheLastNestedSpec() {
+        suite.addAfterHandler(block.apply("outerAfter"));
+        Suite firstChild = new Suite(suite, "first child");
+        Suite secondChild = new Suite(suite, "second child");
+        firstChild.addAfterHandler(block.apply("innerAfter"));
+        suite.addChildSuite(firstChild);
+        suite.addChildSuite(secondChild);
+        firstChild.addSpec(new Spec(firstChild, "spec", Optional.of(block.apply("first-spec"))));
+        secondChild.addSpec(new Spec(secondChild, "spec", Optional.of(block.apply("second-spec"))));
+        runner.runChild(firstChild.getSpecs().get(0), new RunNotifier());
+        runner.runChild(secondChild.getSpecs().get(0), new RunNotifier());
+        assertEquals(Arrays.asList("first-spec", "innerAfter", "second-spec", "outerAfter"), calls);
+    }
+
+
+    @Test
+    public void itFailsAllSpecsOfASuiteWhoseBeforeHandlerFails() {
+        RuntimeException exception = new RuntimeException("before failed");
+        suite.addBeforeHandler(() -> { throw exception; });
+        suite.addAfterHandler(block.apply("after"));
+        suite.addSpec(first);
+        suite.addSpec(second);
+        List<Failure> failures = new ArrayList<>();
+        RunNotifier notifier = failureCollectingNotifier(failures);
+        runner.runChild(first, notifier);
+        runner.runChild(second, notifier);
+        assertEquals(Arrays.asList("after"), calls);
+        assertEquals(2, failures.size());
+        assertSame(exception, failures.get(0).getException().getCause());
+        assertSame(exception, failures.get(1).getException().getCause());
+    }
+
+
+    @Test
+    public void itClosesOuterSuitesWhenABeforeHandlerOfAnInnerSuiteFails() {
+        suite.addBeforeHandler(block.apply("outerBefore"));
+        suite.addAfterHandler(block.apply("outerAfter"));
+        Suite failingChild = new Suite(suite, "failing child");
+        Suite secondChild = new Suite(suite, "second child");
+        failingChild.addBeforeHandler(() -> { throw new RuntimeException("before failed"); });
+        failingChild.addAfterHandler(block.apply("innerAfter"));
+        suite.addChildSuite(failingChild);
+        suite.addChildSuite(secondChild);
+        failingChild.addSpec(new Spec(failingChild, "spec", Optional.of(block.apply("failing-child-spec"))));
+        secondChild.addSpec(new Spec(secondChild, "spec", Optional.of(block.apply("second-spec"))));
+        List<Failure> failures = new ArrayList<>();
+        RunNotifier notifier = failureCollectingNotifier(failures);
+        runner.runChild(failingChild.getSpecs().get(0), notifier);
+        runner.runChild(secondChild.getSpecs().get(0), notifier);
+        assertEquals(Arrays.asList("outerBefore", "innerAfter", "second-spec", "outerAfter"), calls);
+        assertEquals(1, failures.size());
+    }
+
+
+    @Test
+    public void itDoesNotExecuteBeforeAndAfterHandlersForPendingSpecs() {
+        suite.addBeforeHandler(block.apply("before"));
+        suite.addAfterHandler(block.apply("after"));
+        Spec pending = new Spec(suite, "pending", Optional.empty());
+        suite.addSpec(pending);
+        runner.runChild(pending, new RunNotifier());
+        assertEquals(Arrays.asList(), calls);
+    }
+
+
     @Test
     public void itExecutesBeforeHandlersInSpecifiedOrder() {
         suite.addBeforeHandler(block.apply("first"));
@@ -133,4 +216,16 @@ public class HandlerTest {
         assertEquals(Arrays.asList("innerBeforeEach", "outerBeforeEach"), calls);
     }
 
+
+    private static RunNotifier failureCollectingNotifier(List<Failure> failures) {
+        RunNotifier notifier = new RunNotifier();
+        notifier.addListener(new RunListener() {
+            @Override
+            public void testFailure(Failure failure) {
+                failures.add(failure);
+            }
+        });
+        return notifier;
+    }
+
 }
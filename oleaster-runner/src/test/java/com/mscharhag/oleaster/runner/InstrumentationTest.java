@@ -0,0 +1,121 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.PhaseMeasurement.Phase;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class InstrumentationTest {
+
+	private static final int ALLOCATED_BYTES = 1 << 20;
+
+	private static Object allocation;
+
+	private SpecInstrumentation instrumentation;
+	private List<PhaseMeasurement> measurements;
+
+	@Parallel(threads = 1)
+	public static class InstrumentedTestClass {{
+		describe("outer", () -> {
+			before(() -> Thread.sleep(5));
+			beforeEach(() -> Thread.sleep(20));
+			describe("inner", () -> {
+				beforeEach(() -> {
+					allocation = new byte[ALLOCATED_BYTES];
+				});
+				it("spec", () -> Thread.sleep(1));
+			});
+			it("async spec", done -> TimerWheel.shared().schedule(10, TimeUnit.MILLISECONDS, done::complete));
+		});
+	}}
+
+	private List<PhaseMeasurement> measurementsOf(String path) {
+		return measurements.stream().filter(m -> m.getPath().equals(path)).collect(Collectors.toList());
+	}
+
+{
+	describe("SpecInstrumentation", () -> {
+
+		beforeEach(() -> {
+			instrumentation = new SpecInstrumentation();
+			OleasterRunner runner = new OleasterRunner(InstrumentedTestClass.class);
+			runner.addExecutionListener(instrumentation);
+			runner.run(new RunNotifier());
+			measurements = instrumentation.getMeasurements();
+		});
+
+		it("measures the beforeEach, body and afterEach phases of every spec", () -> {
+			List<Phase> phases = measurementsOf("outer, inner, spec").stream().map(PhaseMeasurement::getPhase).collect(Collectors.toList());
+			assertEquals(Arrays.asList(Phase.BEFORE_EACH, Phase.BODY, Phase.AFTER_EACH), phases);
+		});
+
+		it("measures the before and after phases of every suite", () -> {
+			List<Phase> phases = measurementsOf("outer").stream().map(PhaseMeasurement::getPhase).collect(Collectors.toList());
+			assertEquals(Arrays.asList(Phase.BEFORE, Phase.AFTER), phases);
+			assertTrue(measurementsOf("outer").get(0).getWallTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+			assertFalse(measurementsOf("outer").get(0).getSpec().isPresent());
+		});
+
+		it("includes the handlers of enclosing suites in the beforeEach phase", () -> {
+			PhaseMeasurement beforeEach = measurementsOf("outer, inner, spec").get(0);
+			assertTrue(beforeEach.getWallTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+			if (beforeEach.getAllocatedBytes() != PhaseMeasurement.UNAVAILABLE) {
+				assertTrue(beforeEach.getAllocatedBytes() >= ALLOCATED_BYTES);
+			}
+			if (beforeEach.getCpuTimeNanos() != PhaseMeasurement.UNAVAILABLE) {
+				assertTrue(beforeEach.getCpuTimeNanos() < beforeEach.getWallTimeNanos());
+			}
+		});
+
+		it("measures the wall time of asynchronous phases until they complete", () -> {
+			PhaseMeasurement body = measurementsOf("outer, async spec").get(1);
+			assertEquals(Phase.BODY, body.getPhase());
+			assertTrue(body.getWallTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+			assertEquals(PhaseMeasurement.UNAVAILABLE, body.getCpuTimeNanos());
+			assertEquals(PhaseMeasurement.UNAVAILABLE, body.getAllocatedBytes());
+		});
+
+		it("returns the measurements of a spec", () -> {
+			OleasterRunner runner = new OleasterRunner(InstrumentedTestClass.class);
+			assertEquals(3, instrumentation.getMeasurements(runner.getChildren().get(0)).size());
+		});
+
+		it("writes a report with one line per phase", () -> {
+			Path report = Files.createTempFile("instrumentation", ".tsv");
+			try {
+				instrumentation.writeReport(report);
+				List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+				assertEquals(SpecInstrumentation.REPORT_HEADER, lines.get(0));
+				assertEquals(measurements.size() + 1, lines.size());
+				assertTrue(lines.stream().anyMatch(line -> line.startsWith("BODY\t") && line.endsWith("\touter, inner, spec")));
+			} finally {
+				Files.delete(report);
+			}
+		});
+
+		it("does not measure phases if no listener is measuring", () -> {
+			List<PhaseMeasurement> received = new ArrayList<>();
+			OleasterRunner runner = new OleasterRunner(InstrumentedTestClass.class);
+			runner.addExecutionListener(new ExecutionListener() {
+				@Override
+				public void phaseFinished(PhaseMeasurement measurement) {
+					received.add(measurement);
+				}
+			});
+			runner.run(new RunNotifier());
+			assertTrue(received.isEmpty());
+		});
+	});
+}}
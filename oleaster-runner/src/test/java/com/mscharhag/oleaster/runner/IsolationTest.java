@@ -0,0 +1,104 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class IsolationTest {
+
+	private static List<String> calls;
+	private static AtomicInteger instanceCount;
+	private static CyclicBarrier barrier;
+
+	private List<Failure> failures;
+
+	@Parallel(threads = 2, isolated = true)
+	public static class IsolatedTestClass {
+		private String name;
+	{
+		instanceCount.incrementAndGet();
+		describe("first suite", () -> {
+			beforeEach(() -> name = "first");
+			it("sees its own field", () -> {
+				barrier.await(5, TimeUnit.SECONDS);
+				calls.add(name);
+				barrier.await(5, TimeUnit.SECONDS);
+				assertEquals("first", name);
+			});
+		});
+		describe("second suite", () -> {
+			beforeEach(() -> name = "second");
+			it("sees its own field", () -> {
+				barrier.await(5, TimeUnit.SECONDS);
+				calls.add(name);
+				barrier.await(5, TimeUnit.SECONDS);
+				assertEquals("second", name);
+			});
+		});
+	}}
+
+	@Parallel(isolated = true)
+	public static class ChangingTestClass {{
+		if (instanceCount.incrementAndGet() == 1) {
+			it("only exists on the first instance", () -> {});
+		}
+	}}
+
+	private void run(Class<?> testClass) throws Exception {
+		calls = Collections.synchronizedList(new ArrayList<>());
+		instanceCount = new AtomicInteger();
+		barrier = new CyclicBarrier(2);
+		failures = Collections.synchronizedList(new ArrayList<>());
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure);
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+{
+	describe("OleasterRunner in isolated mode", () -> {
+
+		describe("when specs of concurrent suites write the same field", () -> {
+
+			beforeEach(() -> run(IsolatedTestClass.class));
+
+			it("runs every spec on its own instance", () -> {
+				assertEquals(Collections.emptyList(), failures);
+				List<String> names = new ArrayList<>(calls);
+				Collections.sort(names);
+				assertEquals(Arrays.asList("first", "second"), names);
+			});
+
+			it("creates an instance for the suite tree and for every spec running at the same time", () -> {
+				assertEquals(3, instanceCount.get());
+			});
+		});
+
+		describe("when a spec is not defined by another instance", () -> {
+
+			beforeEach(() -> run(ChangingTestClass.class));
+
+			it("reports the spec as failed", () -> {
+				assertEquals(1, failures.size());
+				assertTrue(failures.get(0).getException() instanceof IllegalStateException);
+			});
+		});
+	});
+}}
@@ -0,0 +1,147 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.SuiteBuilder;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.mscharhag.oleaster.runner.AssertUtil.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class LetTest {
+
+	private static List<String> calls;
+
+	private List<Failure> failures;
+	private List<String> events;
+
+	public static class LetTestClass {{
+		Let<List<String>> list = let("list", () -> {
+			calls.add("created list");
+			return new ArrayList<>();
+		}, l -> calls.add("closed " + l));
+		Let<String> name = let("name", () -> "outer");
+
+		beforeEach(() -> calls.add("beforeEach " + name.get()));
+		afterEach(() -> calls.add("afterEach"));
+
+		it("does not use the list", () -> calls.add("spec"));
+		it("gets the same list on every access", () -> {
+			list.get().add("a");
+			list.get().add("b");
+		});
+		describe("a nested suite", () -> {
+			let("name", () -> "inner");
+			it("overrides the name", () -> calls.add("spec " + name.get()));
+		});
+		it("gets the name in an asynchronous spec", (AsyncInvokable) done -> {
+			calls.add("async " + name.get());
+			done.complete();
+		});
+	}}
+
+	public static class FailingCloserTestClass {{
+		Let<String> value = let("value", () -> "value", v -> {
+			throw new IllegalStateException("closer failed");
+		});
+
+		it("uses the value", () -> calls.add("spec " + value.get()));
+		it("uses the value asynchronously", (AsyncInvokable) done -> {
+			calls.add("async " + value.get());
+			done.complete();
+		});
+		it("runs after the failed closers", () -> calls.add("last spec"));
+	}}
+
+	@Parallel(threads = 1)
+	public static class ParallelFailingCloserTestClass extends FailingCloserTestClass {
+	}
+
+	private void run(Class<?> testClass) throws Exception {
+		calls = new ArrayList<>();
+		failures = Collections.synchronizedList(new ArrayList<>());
+		events = Collections.synchronizedList(new ArrayList<>());
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure);
+				events.add("failed " + failure.getDescription().getMethodName());
+			}
+
+			@Override
+			public void testFinished(Description description) {
+				events.add("finished " + description.getMethodName());
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+{
+	describe("Let", () -> {
+
+		describe("when the specs of a suite are run", () -> {
+
+			beforeEach(() -> run(LetTestClass.class));
+
+			it("creates values on first access and closes them after the afterEach handlers", () -> {
+				assertEquals(Collections.emptyList(), failures);
+				assertEquals(Arrays.asList(
+						"beforeEach outer", "spec", "afterEach",
+						"beforeEach outer", "created list", "afterEach", "closed [a, b]",
+						"beforeEach outer", "async outer", "afterEach",
+						"beforeEach inner", "spec inner", "afterEach"), calls);
+			});
+		});
+
+		describe("when a value can not be closed", () -> {
+
+			it("fails the spec and runs the remaining specs", () -> {
+				run(FailingCloserTestClass.class);
+				assertEquals(Arrays.asList("spec value", "async value", "last spec"), calls);
+				assertEquals(2, failures.size());
+				assertEquals("uses the value", failures.get(0).getDescription().getMethodName());
+				assertTrue(failures.get(0).getMessage().contains("Let 'value' could not be closed"));
+				assertEquals("uses the value asynchronously", failures.get(1).getDescription().getMethodName());
+			});
+
+			it("reports the failure before the spec is finished", () -> {
+				List<String> expectedEvents = Arrays.asList(
+						"failed uses the value", "finished uses the value",
+						"failed uses the value asynchronously", "finished uses the value asynchronously",
+						"finished runs after the failed closers");
+				run(FailingCloserTestClass.class);
+				assertEquals(expectedEvents, events);
+				run(ParallelFailingCloserTestClass.class);
+				assertEquals(expectedEvents, events);
+			});
+
+			it("fails the spec and runs the remaining specs in parallel mode", () -> {
+				run(ParallelFailingCloserTestClass.class);
+				assertEquals(Arrays.asList("spec value", "async value", "last spec"), calls);
+				assertEquals(2, failures.size());
+				assertEquals("uses the value", failures.get(0).getDescription().getMethodName());
+				assertEquals("uses the value asynchronously", failures.get(1).getDescription().getMethodName());
+			});
+		});
+
+		it("can not be accessed if no spec is running", () -> {
+			expect(() -> new Let<>("value", () -> "value").get()).toFailWith(IllegalStateException.class);
+		});
+
+		it("can not be defined twice in the same suite", () -> {
+			SuiteBuilder suiteBuilder = new SuiteBuilder();
+			suiteBuilder.let("value", () -> "first");
+			expect(() -> suiteBuilder.let("value", () -> "second")).toFailWith(IllegalArgumentException.class);
+		});
+	});
+}}
@@ -5,7 +5,9 @@ import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
 import com.mscharhag.oleaster.runner.suite.Spec;
 import com.mscharhag.oleaster.runner.suite.Suite;
 import com.mscharhag.oleaster.runner.suite.SuiteBuilder;
+import org.junit.runner.Description;
 import org.junit.runner.RunWith;
+import org.junit.runner.manipulation.Filter;
 import org.junit.runner.notification.RunNotifier;
 
 import static org.junit.Assert.*;
@@ -23,6 +25,7 @@ public class OleasterRunnerTest {
 	private OleasterRunner runner;
 	private Suite suite;
 	private List<Spec> specs;
+	private Description description;
 
 	public static class TestClass {{
 		describe("outer describe", () -> {
@@ -34,6 +37,40 @@ public class OleasterRunnerTest {
 	}}
 
 
+	public static class TwoSuitesTestClass {{
+		describe("first describe", () -> {
+			calls.add("evaluated first describe");
+			it("first it", block.apply("first it"));
+		});
+		describe("second describe", () -> {
+			calls.add("evaluated second describe");
+			it("second it", block.apply("second it"));
+		});
+	}}
+
+
+	public static class OverridingRunner extends OleasterRunner {
+
+		public OverridingRunner(Class<?> testClass) throws Exception {
+			super(testClass);
+		}
+
+		@Override
+		protected void runChild(Spec spec, RunNotifier notifier) {
+			calls.add("runChild " + spec.getDescription());
+			super.runChild(spec, notifier);
+		}
+	}
+
+
+	@Parallel(threads = 2)
+	public static class ParallelTestClass {{
+		describe("parallel describe", () -> {
+			it("parallel it", block.apply("parallel it"));
+		});
+	}}
+
+
 	public static class OleasterTestImplementingTestClass implements OleasterTest {
 
 		public static SuiteBuilder suiteBuilder;
@@ -52,10 +89,135 @@ public class OleasterRunnerTest {
 			runner = new OleasterRunner(TestClass.class);
 		});
 
-        it("adds the filtered children to the suite", () -> {
-            int numberOfChildren = runner.getDescription().getChildren().size();
-            assertEquals(2, numberOfChildren);
-        });
+		describe("when the description is obtained", () -> {
+
+			beforeEach(() -> {
+				description = runner.getDescription();
+			});
+
+			it("adds a suite description for every suite", () -> {
+				assertEquals(1, description.getChildren().size());
+				Description outerDescription = description.getChildren().get(0);
+				assertTrue(outerDescription.isSuite());
+				assertEquals("outer describe", outerDescription.getDisplayName());
+			});
+
+			it("adds specs and child suites to the suite description", () -> {
+				Description outerDescription = description.getChildren().get(0);
+				List<String> childNames = outerDescription.getChildren().stream()
+						.map(Description::getDisplayName)
+						.collect(Collectors.toList());
+				assertEquals(Arrays.asList(
+						"outer describe, outer it(" + TestClass.class.getName() + ")",
+						"inner describe"), childNames);
+			});
+
+			describe("when a filter rejects a suite", () -> {
+
+				beforeEach(() -> {
+					Description innerDescription = description.getChildren().get(0).getChildren().get(1);
+					runner.filter(new Filter() {
+						@Override
+						public boolean shouldRun(Description description) {
+							return !description.equals(innerDescription);
+						}
+
+						@Override
+						public String describe() {
+							return "without inner describe";
+						}
+					});
+				});
+
+				it("removes the suite and all its specs", () -> {
+					Description outerDescription = runner.getDescription().getChildren().get(0);
+					assertEquals(1, outerDescription.getChildren().size());
+					assertTrue(outerDescription.getChildren().get(0).isTest());
+				});
+			});
+		});
+
+		describe("when a suite is rejected before the suites are evaluated", () -> {
+
+			beforeEach(() -> {
+				runner = new OleasterRunner(TwoSuitesTestClass.class);
+				Description firstDescription = Description.createSuiteDescription(
+						"first describe", TwoSuitesTestClass.class.getName() + ", first describe");
+				runner.filter(new Filter() {
+					@Override
+					public boolean shouldRun(Description description) {
+						return !description.equals(firstDescription);
+					}
+
+					@Override
+					public String describe() {
+						return "without first describe";
+					}
+				});
+			});
+
+			it("does not evaluate the rejected suite", () -> {
+				assertEquals(Arrays.asList("evaluated second describe"), calls);
+			});
+
+			it("runs the specs of the other suites", () -> {
+				runner.run(new RunNotifier());
+				assertEquals(Arrays.asList("evaluated second describe", "second it"), calls);
+			});
+		});
+
+		describe("when a spec is selected before the suites are evaluated", () -> {
+
+			beforeEach(() -> {
+				runner = new OleasterRunner(TwoSuitesTestClass.class);
+				runner.filter(Filter.matchMethodDescription(
+						Description.createTestDescription(TwoSuitesTestClass.class, "second describe, second it")));
+			});
+
+			it("runs only the selected spec", () -> {
+				calls.clear();
+				runner.run(new RunNotifier());
+				assertEquals(Arrays.asList("second it"), calls);
+			});
+		});
+
+		describe("when the test class is run", () -> {
+
+			beforeEach(() -> {
+				runner.addExecutionListener(new ExecutionListener() {
+					@Override
+					public void suiteStarted(Suite suite) {
+						calls.add("started " + suite.getDescription());
+					}
+
+					@Override
+					public void suiteFinished(Suite suite) {
+						calls.add("finished " + suite.getDescription());
+					}
+				});
+				runner.run(new RunNotifier());
+			});
+
+			it("notifies execution listeners when suites are started and finished", () -> {
+				assertEquals(Arrays.asList(
+						"started null", "started outer describe", "outer it",
+						"started inner describe", "inner it", "finished inner describe",
+						"finished outer describe", "finished null"), calls);
+			});
+		});
+
+		describe("when a subclass overrides runChild()", () -> {
+
+			it("runs every spec through the override", () -> {
+				new OverridingRunner(TestClass.class).run(new RunNotifier());
+				assertEquals(Arrays.asList("runChild outer it", "outer it", "runChild inner it", "inner it"), calls);
+			});
+
+			it("runs specs without asynchronous blocks through the override in parallel mode", () -> {
+				new OverridingRunner(ParallelTestClass.class).run(new RunNotifier());
+				assertEquals(Arrays.asList("runChild parallel it", "parallel it"), calls);
+			});
+		});
 
 		describe("when specs are obtained from the test class using getChildren()", () -> {
 
@@ -0,0 +1,245 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class OutputCaptureTest {
+
+	private ByteArrayOutputStream out;
+	private ByteArrayOutputStream err;
+	private List<String> failures;
+	private List<Failure> failureObjects;
+	private boolean restored;
+
+	public static class TestClass {{
+		describe("a suite", () -> {
+			beforeEach(() -> System.out.println("before each output"));
+			it("passes", () -> System.out.println("output of a passing spec"));
+			it("fails", () -> {
+				System.out.println("output of a failing spec");
+				System.err.println("error output of a failing spec");
+				fail("failed");
+			});
+		});
+	}}
+
+	@Parallel(threads = 4)
+	public static class ParallelTestClass {{
+		describe("a parallel suite", () -> {
+			for (int i = 0; i < 8; i++) {
+				String name = "spec " + i;
+				it(name, () -> {
+					for (int j = 0; j < 20; j++) {
+						System.out.println(name);
+						Thread.yield();
+					}
+					fail(name);
+				});
+			}
+		});
+	}}
+
+	@Parallel(threads = 2)
+	public static class AsyncTestClass {{
+		describe("an async suite", () -> {
+			it("fails asynchronously", (AsyncInvokable) done -> {
+				System.out.println("output of an async spec");
+				done.fail(new AssertionError("failed"));
+			});
+		});
+	}}
+
+	private void run(Class<?> testClass, int limit) throws Exception {
+		System.setProperty(RunnerConfiguration.CAPTURE_PROPERTY, "true");
+		System.setProperty(RunnerConfiguration.CAPTURE_LIMIT_PROPERTY, String.valueOf(limit));
+		OleasterRunner runner;
+		try {
+			runner = new OleasterRunner(testClass);
+		} finally {
+			System.clearProperty(RunnerConfiguration.CAPTURE_PROPERTY);
+			System.clearProperty(RunnerConfiguration.CAPTURE_LIMIT_PROPERTY);
+		}
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure.getDescription().getMethodName());
+				failureObjects.add(failure);
+			}
+		});
+		PrintStream originalOut = System.out;
+		PrintStream originalErr = System.err;
+		PrintStream testOut = new PrintStream(out, true);
+		PrintStream testErr = new PrintStream(err, true);
+		System.setOut(testOut);
+		System.setErr(testErr);
+		try {
+			runner.run(notifier);
+			restored = System.out == testOut && System.err == testErr;
+		} finally {
+			System.setOut(originalOut);
+			System.setErr(originalErr);
+		}
+	}
+
+	private static String attachedOutput(Failure failure) {
+		for (Throwable suppressed : failure.getException().getSuppressed()) {
+			if (suppressed instanceof OutputCapture.CapturedOutput) {
+				return suppressed.getMessage();
+			}
+		}
+		return null;
+	}
+
+	private String outputOf(String specPath) {
+		String output = out.toString();
+		int start = output.indexOf(", " + specPath + ":");
+		assertTrue(output, start >= 0);
+		int end = output.indexOf("Output of ", start + 1);
+		return output.substring(start, end >= 0 ? end : output.length());
+	}
+
+{
+	describe("OutputCapture", () -> {
+
+		beforeEach(() -> {
+			out = new ByteArrayOutputStream();
+			err = new ByteArrayOutputStream();
+			failures = Collections.synchronizedList(new ArrayList<>());
+			failureObjects = Collections.synchronizedList(new ArrayList<>());
+		});
+
+		describe("when a test class is run with output capture", () -> {
+
+			beforeEach(() -> run(TestClass.class, 64 * 1024));
+
+			it("does not print the output of passing specs", () -> {
+				assertEquals(1, failures.size());
+				assertFalse(out.toString().contains("output of a passing spec"));
+			});
+
+			it("prints the output of failing specs including the output of hooks", () -> {
+				String output = outputOf("a suite, fails");
+				assertTrue(output.contains("before each output"));
+				assertTrue(output.contains("output of a failing spec"));
+				assertTrue(output.contains("error output of a failing spec"));
+			});
+
+			it("attaches the output to the failure of the spec", () -> {
+				String output = attachedOutput(failureObjects.get(0));
+				assertNotNull(output);
+				assertTrue(output.contains("before each output"));
+				assertTrue(output.contains("output of a failing spec"));
+			});
+
+			it("does not write captured output to the original error stream", () -> {
+				assertEquals("", err.toString());
+			});
+
+			it("restores the system streams", () -> {
+				assertTrue(restored);
+			});
+		});
+
+		describe("when specs run in parallel", () -> {
+
+			beforeEach(() -> run(ParallelTestClass.class, 64 * 1024));
+
+			it("attributes output to the spec that wrote it", () -> {
+				assertEquals(8, failures.size());
+				for (int i = 0; i < 8; i++) {
+					String output = outputOf("a parallel suite, spec " + i);
+					for (int j = 0; j < 8; j++) {
+						assertEquals(i == j, output.contains("spec " + j + System.lineSeparator()));
+					}
+				}
+				for (Failure failure : failureObjects) {
+					String specName = failure.getDescription().getMethodName().substring("a parallel suite, ".length());
+					assertTrue(attachedOutput(failure).endsWith(specName + System.lineSeparator()));
+				}
+			});
+		});
+
+		describe("when an asynchronous spec fails", () -> {
+
+			beforeEach(() -> run(AsyncTestClass.class, 64 * 1024));
+
+			it("attaches the output to the failure of the spec", () -> {
+				assertEquals(1, failureObjects.size());
+				assertTrue(attachedOutput(failureObjects.get(0)).contains("output of an async spec"));
+			});
+		});
+
+		describe("when a spec writes more output than the limit", () -> {
+
+			beforeEach(() -> run(ParallelTestClass.class, 32));
+
+			it("keeps only the most recent output", () -> {
+				String output = outputOf("a parallel suite, spec 3");
+				assertTrue(output.contains("bytes of earlier output dropped"));
+				assertTrue(output.endsWith("spec 3" + System.lineSeparator()));
+				assertFalse(output.contains("spec 4"));
+			});
+		});
+
+		describe("OutputBuffer", () -> {
+
+			it("returns the written output", () -> {
+				OutputBuffer buffer = new OutputBuffer(16);
+				buffer.write("abc".getBytes(), 0, 3);
+				buffer.write('d');
+				assertEquals("abcd", buffer.getOutput());
+			});
+
+			it("grows up to its capacity", () -> {
+				OutputBuffer buffer = new OutputBuffer(4096);
+				buffer.write(new byte[10], 0, 10);
+				assertEquals(256, buffer.size());
+				buffer.write(new byte[300], 0, 300);
+				assertEquals(512, buffer.size());
+				buffer.write(new byte[5000], 0, 5000);
+				assertEquals(4096, buffer.size());
+			});
+
+			it("keeps the output while it grows", () -> {
+				OutputBuffer buffer = new OutputBuffer(1000);
+				StringBuilder expected = new StringBuilder();
+				for (int i = 0; i < 200; i++) {
+					byte[] line = String.format("line %d%n", i).getBytes();
+					buffer.write(line, 0, line.length);
+					expected.append(String.format("line %d%n", i));
+				}
+				String output = buffer.getOutput();
+				String retained = expected.substring(expected.length() - 1000);
+				assertTrue(output.endsWith(retained));
+				assertTrue(output.startsWith(String.format("[%d bytes of earlier output dropped]", expected.length() - 1000)));
+			});
+
+			it("does not allocate a buffer for specs without output", () -> {
+				OutputBuffer buffer = new OutputBuffer(16);
+				assertTrue(buffer.isEmpty());
+				assertEquals("", buffer.getOutput());
+			});
+
+			it("drops the oldest output when the capacity is exceeded", () -> {
+				OutputBuffer buffer = new OutputBuffer(4);
+				buffer.write("abcdef".getBytes(), 0, 6);
+				buffer.write("gh".getBytes(), 0, 2);
+				assertEquals(String.format("[4 bytes of earlier output dropped]%nefgh"), buffer.getOutput());
+			});
+		});
+	});
+}}
@@ -0,0 +1,94 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class ParallelExecutionTest {
+
+	private static List<String> calls;
+	private static CyclicBarrier barrier;
+
+	private List<String> events;
+
+	@Parallel(threads = 2)
+	public static class ParallelTestClass {{
+		before(() -> calls.add("outer before"));
+		after(() -> calls.add("outer after"));
+		describe("first suite", () -> {
+			before(() -> calls.add("first before"));
+			beforeEach(() -> calls.add("first beforeEach"));
+			it("waits for the second suite", () -> barrier.await(5, TimeUnit.SECONDS));
+			it("runs after the first spec", () -> calls.add("first spec"));
+			after(() -> calls.add("first after"));
+		});
+		describe("second suite", () -> {
+			it("waits for the first suite", () -> barrier.await(5, TimeUnit.SECONDS));
+		});
+	}}
+
+{
+	describe("OleasterRunner in parallel mode", () -> {
+
+		beforeEach(() -> {
+			calls = Collections.synchronizedList(new ArrayList<>());
+			events = Collections.synchronizedList(new ArrayList<>());
+			barrier = new CyclicBarrier(2);
+
+			RunNotifier notifier = new RunNotifier();
+			notifier.addListener(new RunListener() {
+				@Override
+				public void testStarted(Description description) {
+					events.add("started " + description.getMethodName());
+				}
+
+				@Override
+				public void testFailure(Failure failure) {
+					events.add("failed " + failure.getDescription().getMethodName());
+				}
+
+				@Override
+				public void testFinished(Description description) {
+					events.add("finished " + description.getMethodName());
+				}
+			});
+			new OleasterRunner(ParallelTestClass.class).run(notifier);
+		});
+
+		it("runs sibling suites concurrently", () -> {
+			assertFalse(events.stream().anyMatch(event -> event.startsWith("failed")));
+		});
+
+		it("reports a started and a finished event for every spec", () -> {
+			assertEquals(6, events.size());
+			assertTrue(events.contains("started first suite, waits for the second suite"));
+			assertTrue(events.contains("finished first suite, waits for the second suite"));
+			assertTrue(events.contains("started second suite, waits for the first suite"));
+			assertTrue(events.contains("finished second suite, waits for the first suite"));
+		});
+
+		it("runs the handlers of a suite in the usual order", () -> {
+			assertEquals(calls.indexOf("first before") + 1, calls.indexOf("first beforeEach"));
+			assertEquals(calls.lastIndexOf("first beforeEach") + 1, calls.indexOf("first spec"));
+			assertEquals(calls.indexOf("first spec") + 1, calls.indexOf("first after"));
+		});
+
+		it("runs before and after handlers of the outer suite only once", () -> {
+			assertEquals(7, calls.size());
+			assertEquals("outer before", calls.get(0));
+			assertEquals("outer after", calls.get(6));
+		});
+	});
+}}
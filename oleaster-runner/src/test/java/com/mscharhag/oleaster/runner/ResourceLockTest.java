@@ -0,0 +1,207 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class ResourceLockTest {
+
+	private static List<String> calls;
+	private static Map<String, AtomicInteger> inUse;
+	private static Map<String, AtomicInteger> maxInUse;
+	private static CyclicBarrier barrier;
+
+	private List<Failure> failures;
+	private StripedResourceLocks locks;
+
+	@Parallel(threads = 4)
+	public static class ConflictingSuitesTestClass {{
+		describe("first server", ResourceLock.write("port"), () -> {
+			it("uses the port", () -> use("port"));
+			describe("with a temp dir", ResourceLock.write("tmp"), () -> {
+				it("uses the temp dir", () -> use("tmp"));
+			});
+		});
+		describe("second server", ResourceLock.write("tmp"), () -> {
+			it("uses the temp dir", () -> use("tmp"));
+			describe("on the same port", ResourceLock.write("port"), () -> {
+				it("uses the port", () -> use("port"));
+			});
+		});
+		describe("client", () -> {
+			it("connects to the port", ResourceLock.read("port"), () -> use("port"));
+		});
+	}}
+
+	@Parallel(threads = 4)
+	public static class ConflictingChildrenTestClass {{
+		describe("server", ResourceLock.write("x"), () -> {
+			describe("first child", ResourceLock.write("port"), () -> {
+				it("uses the port", () -> use("port"));
+			});
+			describe("second child", ResourceLock.write("port"), () -> {
+				it("uses the port", () -> use("port"));
+			});
+			describe("third child", () -> {
+				it("uses the port", ResourceLock.write("port"), () -> use("port"));
+				it("uses x", ResourceLock.write("x"), () -> use("x"));
+			});
+		});
+	}}
+
+	@Parallel(threads = 4)
+	public static class IndependentSuitesTestClass {{
+		describe("first reader", ResourceLock.read("config"), () -> {
+			it("waits for the second reader", () -> barrier.await(5, TimeUnit.SECONDS));
+		});
+		describe("second reader", ResourceLock.read("config"), () -> {
+			it("waits for the first reader", () -> barrier.await(5, TimeUnit.SECONDS));
+		});
+	}}
+
+	private static void use(String resource) throws InterruptedException {
+		int users = inUse.get(resource).incrementAndGet();
+		maxInUse.get(resource).accumulateAndGet(users, Math::max);
+		Thread.sleep(20);
+		inUse.get(resource).decrementAndGet();
+	}
+
+	private void run(Class<?> testClass) throws Exception {
+		inUse = new ConcurrentHashMap<>();
+		maxInUse = new ConcurrentHashMap<>();
+		for (String resource : Arrays.asList("port", "tmp", "x")) {
+			inUse.put(resource, new AtomicInteger());
+			maxInUse.put(resource, new AtomicInteger());
+		}
+		barrier = new CyclicBarrier(2);
+		failures = Collections.synchronizedList(new ArrayList<>());
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure);
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+	private CompletableFuture<Void> record(String call, CompletableFuture<Void> result) {
+		calls.add(call);
+		return result;
+	}
+
+{
+	describe("ResourceLock", () -> {
+
+		it("writes resources that are written by one of the combined locks", () -> {
+			ResourceLock lock = ResourceLock.read("a", "b").and(ResourceLock.write("b"));
+			assertEquals(ResourceLock.read("a").and(ResourceLock.write("b")), lock);
+			assertEquals("ResourceLock[read a, write b]", lock.toString());
+		});
+
+		it("is empty if no resources are locked", () -> {
+			assertTrue(ResourceLock.NONE.and(ResourceLock.write()).isEmpty());
+		});
+	});
+
+	describe("StripedResourceLocks", () -> {
+
+		beforeEach(() -> {
+			calls = new ArrayList<>();
+			locks = new StripedResourceLocks();
+		});
+
+		it("does not grant a lock before an earlier conflicting lock", () -> {
+			CompletableFuture<Void> firstReader = new CompletableFuture<>();
+			CompletableFuture<Void> writer = new CompletableFuture<>();
+			locks.run(ResourceLock.read("a"), () -> record("first reader", firstReader), Runnable::run);
+			locks.run(ResourceLock.write("a"), () -> record("writer", writer), Runnable::run);
+			locks.run(ResourceLock.read("a"), () -> record("second reader", AsyncInvokables.completed()), Runnable::run);
+			assertEquals(Arrays.asList("first reader"), calls);
+
+			firstReader.complete(null);
+			assertEquals(Arrays.asList("first reader", "writer"), calls);
+
+			writer.complete(null);
+			assertEquals(Arrays.asList("first reader", "writer", "second reader"), calls);
+		});
+
+		it("grants locks without conflicts immediately", () -> {
+			locks.run(ResourceLock.write("a"), () -> record("a", new CompletableFuture<>()), Runnable::run);
+			locks.run(ResourceLock.write("b"), () -> record("b", new CompletableFuture<>()), Runnable::run);
+			assertEquals(Arrays.asList("a", "b"), calls);
+		});
+
+		it("serializes different resources that share a stripe", () -> {
+			locks = new StripedResourceLocks(1);
+			locks.run(ResourceLock.write("a"), () -> record("a", new CompletableFuture<>()), Runnable::run);
+			locks.run(ResourceLock.write("b"), () -> record("b", new CompletableFuture<>()), Runnable::run);
+			assertEquals(Arrays.asList("a"), calls);
+		});
+
+		it("releases the lock if the work fails", () -> {
+			CompletableFuture<Void> result = locks.run(ResourceLock.write("a"), () -> {
+				throw new IllegalStateException();
+			}, Runnable::run);
+			locks.run(ResourceLock.write("a"), () -> record("next", AsyncInvokables.completed()), Runnable::run);
+			assertTrue(result.isCompletedExceptionally());
+			assertEquals(Arrays.asList("next"), calls);
+		});
+	});
+
+	describe("OleasterRunner with resource locks", () -> {
+
+		describe("when suites with overlapping nested locks are run in parallel", () -> {
+
+			beforeEach(() -> run(ConflictingSuitesTestClass.class));
+
+			it("does not run conflicting suites and specs at the same time", () -> {
+				assertEquals(1, maxInUse.get("port").get());
+				assertEquals(1, maxInUse.get("tmp").get());
+			});
+
+			it("runs all specs", () -> {
+				assertEquals(Collections.emptyList(), failures);
+			});
+		});
+
+		describe("when the children of a locked suite have conflicting locks", () -> {
+
+			beforeEach(() -> run(ConflictingChildrenTestClass.class));
+
+			it("does not run the conflicting children at the same time", () -> {
+				assertEquals(1, maxInUse.get("port").get());
+			});
+
+			it("runs children that lock a resource of the suite", () -> {
+				assertEquals(Collections.emptyList(), failures);
+				assertEquals(1, maxInUse.get("x").get());
+			});
+		});
+
+		describe("when suites share a read lock", () -> {
+
+			beforeEach(() -> run(IndependentSuitesTestClass.class));
+
+			it("runs them concurrently", () -> {
+				assertEquals(Collections.emptyList(), failures);
+			});
+		});
+	});
+}}
@@ -0,0 +1,59 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mscharhag.oleaster.runner.AssertUtil.*;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class ShardTest {
+
+	private List<String> specPaths;
+
+{
+	describe("Shard", () -> {
+
+		beforeEach(() -> {
+			specPaths = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				specPaths.add("com.example.SomeTest, a describe, spec " + i);
+			}
+		});
+
+		it("assigns every spec path to exactly one shard", () -> {
+			Shard[] shards = { Shard.of(0, 3), Shard.of(1, 3), Shard.of(2, 3) };
+			for (String specPath : specPaths) {
+				int matchingShards = 0;
+				for (Shard shard : shards) {
+					if (shard.contains(specPath)) {
+						matchingShards++;
+					}
+				}
+				assertEquals(1, matchingShards);
+			}
+		});
+
+		it("spreads spec paths across all shards", () -> {
+			for (int index = 0; index < 3; index++) {
+				Shard shard = Shard.of(index, 3);
+				long size = specPaths.stream().filter(shard::contains).count();
+				assertTrue("shard " + index + " contains " + size + " specs", size > 250 && size < 420);
+			}
+		});
+
+		it("contains all specs if there is only one shard", () -> {
+			assertTrue(Shard.of(0, 1).isAll());
+			assertTrue(specPaths.stream().allMatch(Shard.ALL::contains));
+		});
+
+		it("rejects invalid shard indexes and counts", () -> {
+			expect(() -> Shard.of(3, 3)).toFailWith(IllegalArgumentException.class);
+			expect(() -> Shard.of(-1, 3)).toFailWith(IllegalArgumentException.class);
+			expect(() -> Shard.of(0, 0)).toFailWith(IllegalArgumentException.class);
+		});
+	});
+}}
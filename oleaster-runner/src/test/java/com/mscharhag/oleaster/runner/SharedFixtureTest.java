@@ -0,0 +1,210 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mscharhag.oleaster.runner.AssertUtil.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class SharedFixtureTest {
+
+	private static final AtomicInteger runs = new AtomicInteger();
+	// long enough that the fixture is never closed between the test classes of a run
+	private static final long LINGER_MILLIS = 60_000;
+
+	private static List<String> calls;
+	private static String fixtureName;
+
+	private SharedFixtureRegistry registry;
+	private List<Failure> failures;
+
+	@Parallel(threads = 2)
+	public static class FirstTestClass {{
+		Let.Closer<String> closer = closerOfThisRun();
+		describe("first suite", () -> {
+			SharedFixture<String> fixture = sharedFixture(fixtureName, SharedFixtureTest::create, closer);
+			it("uses the fixture", () -> calls.add("first suite uses " + fixture.get()));
+		});
+		describe("second suite", () -> {
+			SharedFixture<String> fixture = sharedFixture(fixtureName, SharedFixtureTest::create, closer);
+			it("uses the fixture", () -> calls.add("second suite uses " + fixture.get()));
+		});
+	}}
+
+	public static class SecondTestClass {{
+		SharedFixture<String> fixture = sharedFixture(fixtureName, SharedFixtureTest::create, closerOfThisRun());
+		it("uses the fixture", () -> calls.add("second class uses " + fixture.get()));
+	}}
+
+	private static String create() {
+		calls.add("created");
+		return "fixture";
+	}
+
+	private static void close(String fixture) {
+		calls.add("closed");
+	}
+
+	/**
+	 * Returns a closer that records to the calls of the current run. Fixtures of earlier runs are closed
+	 * after the linger time, while later runs are already recording.
+	 */
+	private static Let.Closer<String> closerOfThisRun() {
+		List<String> callsOfThisRun = calls;
+		return fixture -> callsOfThisRun.add("closed");
+	}
+
+	private static void failToClose(String fixture) throws Exception {
+		calls.add("failed to close");
+		throw new Exception("closer failed");
+	}
+
+	private void awaitCall(String call) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!calls.contains(call) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private void run(Class<?> testClass) throws Exception {
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure);
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+{
+	describe("SharedFixtureRegistry", () -> {
+
+		beforeEach(() -> {
+			calls = Collections.synchronizedList(new ArrayList<>());
+			registry = new SharedFixtureRegistry(0);
+		});
+
+		it("creates a fixture once and closes it when the last user releases it", () -> {
+			assertEquals("fixture", registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close));
+			assertEquals("fixture", registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close));
+			registry.release("db");
+			assertEquals(Arrays.asList("created"), calls);
+			registry.release("db");
+			assertEquals(Arrays.asList("created", "closed"), calls);
+		});
+
+		it("creates a fixture again after it has been closed", () -> {
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+			registry.release("db");
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+			assertEquals(Arrays.asList("created", "closed", "created"), calls);
+		});
+
+		it("keeps a released fixture open for later users during the linger time", () -> {
+			registry = new SharedFixtureRegistry(50);
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+			registry.release("db");
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+			registry.release("db");
+			awaitCall("closed");
+			assertEquals(Arrays.asList("created", "closed"), calls);
+		});
+
+		it("closes open fixtures regardless of their references", () -> {
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+			registry.closeAll();
+			assertEquals(Arrays.asList("created", "closed"), calls);
+		});
+
+		it("reports a failed delayed close on the next acquire of the same fixture", () -> {
+			registry = new SharedFixtureRegistry(10);
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::failToClose);
+			registry.release("db");
+			awaitCall("failed to close");
+			registry.acquire("queue", SharedFixtureTest::create, SharedFixtureTest::close);
+			registry.release("queue");
+			try {
+				registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+				fail("the failed close has not been thrown");
+			} catch (RuntimeException e) {
+				assertEquals("Shared fixture 'db' could not be closed: closer failed", e.getMessage());
+			}
+			assertEquals("fixture", registry.get("db"));
+			registry.release("db");
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::close);
+			registry.release("db");
+		});
+
+		it("reports a failed delayed close that has not been thrown when all fixtures are closed", () -> {
+			registry = new SharedFixtureRegistry(10);
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::failToClose);
+			registry.release("db");
+			awaitCall("failed to close");
+			try {
+				registry.closeAll();
+				fail("the failed close has not been thrown");
+			} catch (RuntimeException e) {
+				assertEquals("Shared fixture 'db' could not be closed: closer failed", e.getMessage());
+			}
+			registry.closeAll();
+		});
+
+		it("closes all fixtures and throws the failures together", () -> {
+			registry.acquire("db", SharedFixtureTest::create, SharedFixtureTest::failToClose);
+			registry.acquire("cache", SharedFixtureTest::create, SharedFixtureTest::failToClose);
+			registry.acquire("queue", SharedFixtureTest::create, SharedFixtureTest::close);
+			try {
+				registry.closeAll();
+				fail("the failed closes have not been thrown");
+			} catch (RuntimeException e) {
+				assertEquals(1, e.getSuppressed().length);
+			}
+			assertEquals(2, Collections.frequency(calls, "failed to close"));
+			assertTrue(calls.contains("closed"));
+		});
+
+		it("fails if a fixture is used without being acquired", () -> {
+			expect(() -> registry.get("db")).toFailWith(IllegalStateException.class);
+			expect(() -> registry.release("db")).toFailWith(IllegalStateException.class);
+		});
+	});
+
+	describe("OleasterRunner with shared fixtures", () -> {
+
+		beforeEach(() -> {
+			calls = Collections.synchronizedList(new ArrayList<>());
+			failures = Collections.synchronizedList(new ArrayList<>());
+			fixtureName = "shared fixture " + runs.incrementAndGet();
+			long lingerMillis = SharedFixtureRegistry.shared().getLingerMillis();
+			SharedFixtureRegistry.shared().setLingerMillis(LINGER_MILLIS);
+			try {
+				run(FirstTestClass.class);
+				run(SecondTestClass.class);
+			} finally {
+				SharedFixtureRegistry.shared().setLingerMillis(lingerMillis);
+			}
+		});
+
+		it("shares the fixture between suites and test classes", () -> {
+			assertEquals(Collections.emptyList(), failures);
+			assertEquals(1, Collections.frequency(calls, "created"));
+			assertTrue(calls.containsAll(Arrays.asList(
+					"first suite uses fixture", "second suite uses fixture", "second class uses fixture")));
+		});
+
+		it("keeps the fixture open between test classes", () -> {
+			assertFalse(calls.contains("closed"));
+		});
+	});
+}}
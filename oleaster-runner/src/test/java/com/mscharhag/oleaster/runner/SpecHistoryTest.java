@@ -0,0 +1,256 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class SpecHistoryTest {
+
+	private static List<String> calls;
+	private static boolean failing;
+
+	private Path file;
+	private SpecHistory history;
+
+	public static class FailingTestClass {{
+		describe("first describe", () -> {
+			before(() -> calls.add("first before"));
+			it("passes", () -> calls.add("passes"));
+			it("fails", () -> {
+				calls.add("fails");
+				assertFalse(failing);
+			});
+			after(() -> calls.add("first after"));
+		});
+		describe("second describe", () -> {
+			it("passes too", () -> calls.add("passes too"));
+		});
+	}}
+
+	private OleasterRunner createRunner(String failedSpecMode) throws Exception {
+		System.setProperty(RunnerConfiguration.HISTORY_PROPERTY, "true");
+		System.setProperty(RunnerConfiguration.HISTORY_DIR_PROPERTY, file.getParent().toString());
+		if (failedSpecMode != null) {
+			System.setProperty(RunnerConfiguration.FAILED_SPECS_PROPERTY, failedSpecMode);
+		}
+		try {
+			return new OleasterRunner(FailingTestClass.class);
+		} finally {
+			System.clearProperty(RunnerConfiguration.HISTORY_PROPERTY);
+			System.clearProperty(RunnerConfiguration.HISTORY_DIR_PROPERTY);
+			System.clearProperty(RunnerConfiguration.FAILED_SPECS_PROPERTY);
+		}
+	}
+
+{
+	describe("SpecHistory", () -> {
+
+		beforeEach(() -> {
+			file = Files.createTempDirectory("oleaster").resolve("history.tsv");
+			history = SpecHistory.load(file);
+		});
+
+		it("is empty if there is no history file", () -> {
+			assertEquals(OptionalLong.empty(), history.getDuration("a spec"));
+		});
+
+		describe("when results are recorded and saved", () -> {
+
+			beforeEach(() -> {
+				history.record("a spec", 4_000_000, false);
+				history.record("a failed spec", 1_000_000, true);
+				history.save();
+			});
+
+			it("loads the failed specs", () -> {
+				SpecHistory loaded = SpecHistory.load(file);
+				assertTrue(loaded.hasFailures(""));
+				assertTrue(loaded.hasFailed("a failed spec"));
+				assertFalse(loaded.hasFailed("a spec"));
+			});
+
+			it("only looks for failures of specs with the given prefix", () -> {
+				SpecHistory loaded = SpecHistory.load(file);
+				assertTrue(loaded.hasFailures("a failed"));
+				assertFalse(loaded.hasFailures("a spec"));
+			});
+
+			it("replaces the failure state with the recorded one", () -> {
+				SpecHistory nextRun = SpecHistory.load(file);
+				nextRun.record("a failed spec", 1_000_000, false);
+				nextRun.save();
+				assertFalse(SpecHistory.load(file).hasFailures(""));
+			});
+
+			it("loads the durations in microseconds", () -> {
+				assertEquals(OptionalLong.of(4_000), SpecHistory.load(file).getDuration("a spec"));
+			});
+
+			it("averages new durations with stored durations", () -> {
+				SpecHistory nextRun = SpecHistory.load(file);
+				nextRun.record("a spec", 2_000_000, false);
+				nextRun.save();
+				assertEquals(OptionalLong.of(3_000), SpecHistory.load(file).getDuration("a spec"));
+			});
+
+			it("keeps durations saved concurrently by other runs", () -> {
+				SpecHistory first = SpecHistory.load(file);
+				SpecHistory second = SpecHistory.load(file);
+				first.record("first spec", 1_000_000, false);
+				second.record("second spec", 2_000_000, false);
+				first.save();
+				second.save();
+
+				SpecHistory merged = SpecHistory.load(file);
+				assertEquals(OptionalLong.of(4_000), merged.getDuration("a spec"));
+				assertEquals(OptionalLong.of(1_000), merged.getDuration("first spec"));
+				assertEquals(OptionalLong.of(2_000), merged.getDuration("second spec"));
+			});
+
+			it("drops entries with the prefix that are not retained", () -> {
+				SpecHistory nextRun = SpecHistory.load(file);
+				nextRun.record("a class, kept spec", 1_000_000, false);
+				nextRun.record("a class, removed spec", 1_000_000, false);
+				nextRun.save();
+				SpecHistory lastRun = SpecHistory.load(file);
+				lastRun.retainOnly("a class, ", Collections.singleton("a class, kept spec"));
+				lastRun.save();
+
+				SpecHistory loaded = SpecHistory.load(file);
+				assertEquals(OptionalLong.of(1_000), loaded.getDuration("a class, kept spec"));
+				assertEquals(OptionalLong.empty(), loaded.getDuration("a class, removed spec"));
+				assertEquals(OptionalLong.of(4_000), loaded.getDuration("a spec"));
+			});
+		});
+	});
+
+	describe("ForkJoinSuiteScheduler", () -> {
+
+		it("starts the child suite with the longest estimated duration first", () -> {
+			Suite root = new Suite(null, null);
+			Map<Suite, Long> estimates = new HashMap<>();
+			estimates.put(root, 0L);
+			String[] descriptions = { "short", "long", "medium" };
+			long[] durations = { 1, 10, 5 };
+			for (int i = 0; i < descriptions.length; i++) {
+				Suite child = new Suite(root, descriptions[i]);
+				child.addSpec(new Spec(child, "spec", Optional.of(() -> {})));
+				root.addChildSuite(child);
+				estimates.put(child, durations[i]);
+			}
+
+			List<String> started = Collections.synchronizedList(new ArrayList<>());
+			new ForkJoinSuiteScheduler(1, estimates::get).run(root, spec -> started.add(spec.getSuite().getDescription()));
+
+			assertEquals(3, started.size());
+			assertEquals("long", started.get(0));
+		});
+	});
+
+	describe("OleasterRunner", () -> {
+
+		beforeEach(() -> {
+			file = Files.createTempDirectory("oleaster").resolve("history.tsv");
+			calls = new ArrayList<>();
+			failing = true;
+			createRunner("first").run(new RunNotifier());
+			failing = false;
+			calls.clear();
+		});
+
+		it("does not record a history unless it is enabled", () -> {
+			Path dir = Files.createTempDirectory("oleaster");
+			System.setProperty(RunnerConfiguration.HISTORY_DIR_PROPERTY, dir.toString());
+			try {
+				new OleasterRunner(FailingTestClass.class).run(new RunNotifier());
+			} finally {
+				System.clearProperty(RunnerConfiguration.HISTORY_DIR_PROPERTY);
+			}
+			assertFalse(Files.exists(dir.resolve("history.tsv")));
+		});
+
+		it("runs previously failed specs first and keeps the suites open", () -> {
+			createRunner("first").run(new RunNotifier());
+			assertEquals(Arrays.asList("first before", "fails", "passes", "first after", "passes too"), calls);
+		});
+
+		it("runs only previously failed specs", () -> {
+			createRunner("only").run(new RunNotifier());
+			assertEquals(Arrays.asList("first before", "fails", "first after"), calls);
+		});
+
+		it("runs all specs in declaration order if previously failed specs should not be run first", () -> {
+			createRunner("off").run(new RunNotifier());
+			assertEquals(Arrays.asList("first before", "passes", "fails", "first after", "passes too"), calls);
+		});
+
+		it("keeps the declaration order by default", () -> {
+			createRunner(null).run(new RunNotifier());
+			assertEquals(Arrays.asList("first before", "passes", "fails", "first after", "passes too"), calls);
+		});
+
+		it("forgets specs of the test class that no longer exist", () -> {
+			String removedSpec = FailingTestClass.class.getName() + ", first describe, removed";
+			SpecHistory previousRun = SpecHistory.load(file);
+			previousRun.record(removedSpec, 1_000_000, true);
+			previousRun.save();
+			createRunner("off").run(new RunNotifier());
+			assertEquals(OptionalLong.empty(), SpecHistory.load(file).getDuration(removedSpec));
+			assertTrue(SpecHistory.load(file).getDuration(FailingTestClass.class.getName() + ", first describe, passes").isPresent());
+		});
+
+		it("runs all specs if only specs of other test classes failed in the previous run", () -> {
+			createRunner("first").run(new RunNotifier());
+			SpecHistory previousRun = SpecHistory.load(file);
+			previousRun.record("another test class, failed", 1_000_000, true);
+			previousRun.save();
+			calls.clear();
+			createRunner("only").run(new RunNotifier());
+			assertEquals(Arrays.asList("first before", "passes", "fails", "first after", "passes too"), calls);
+		});
+
+		it("enables the history if previously failed specs are requested", () -> {
+			System.setProperty(RunnerConfiguration.HISTORY_DIR_PROPERTY, file.getParent().toString());
+			System.setProperty(RunnerConfiguration.FAILED_SPECS_PROPERTY, "only");
+			try {
+				new OleasterRunner(FailingTestClass.class).run(new RunNotifier());
+			} finally {
+				System.clearProperty(RunnerConfiguration.HISTORY_DIR_PROPERTY);
+				System.clearProperty(RunnerConfiguration.FAILED_SPECS_PROPERTY);
+			}
+			assertEquals(Arrays.asList("first before", "fails", "first after"), calls);
+		});
+
+		it("names the property and the allowed values if the mode is invalid", () -> {
+			try {
+				createRunner("last");
+				fail("Expected an IllegalArgumentException");
+			} catch (IllegalArgumentException e) {
+				assertEquals("Invalid value 'last' of system property oleaster.failed, expected one of first, only, off", e.getMessage());
+			}
+		});
+
+		it("runs all specs if no spec failed in the previous run", () -> {
+			createRunner("first").run(new RunNotifier());
+			calls.clear();
+			createRunner("only").run(new RunNotifier());
+			assertEquals(Arrays.asList("first before", "passes", "fails", "first after", "passes too"), calls);
+		});
+	});
+}}
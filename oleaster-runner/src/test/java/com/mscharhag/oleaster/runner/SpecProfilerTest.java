@@ -0,0 +1,124 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class SpecProfilerTest {
+
+	private Path dir;
+	private List<String> lines;
+
+	public static class TestClass {{
+		describe("a suite", () -> {
+			it("is fast", () -> {});
+			it("is slow", () -> sleepInSlowMethod(300));
+		});
+	}}
+
+	@Parallel(threads = 2)
+	public static class AsyncTestClass {{
+		describe("an async suite", () -> {
+			it("is slow", (StageInvokable) () -> CompletableFuture.runAsync(() -> sleepInSlowMethod(300)));
+		});
+	}}
+
+	static void sleepInSlowMethod(long millis) {
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		while (System.nanoTime() < end) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void run(Class<?> testClass) throws Exception {
+		System.setProperty(RunnerConfiguration.REPORT_DIR_PROPERTY, dir.toString());
+		System.setProperty(RunnerConfiguration.PROFILE_PROPERTY, "true");
+		System.setProperty(RunnerConfiguration.PROFILE_THRESHOLD_PROPERTY, "50");
+		System.setProperty(RunnerConfiguration.PROFILE_INTERVAL_PROPERTY, "5");
+		OleasterRunner runner;
+		try {
+			runner = new OleasterRunner(testClass);
+		} finally {
+			System.clearProperty(RunnerConfiguration.REPORT_DIR_PROPERTY);
+			System.clearProperty(RunnerConfiguration.PROFILE_PROPERTY);
+			System.clearProperty(RunnerConfiguration.PROFILE_THRESHOLD_PROPERTY);
+			System.clearProperty(RunnerConfiguration.PROFILE_INTERVAL_PROPERTY);
+		}
+		runner.run(new RunNotifier());
+		lines = Files.readAllLines(dir.resolve("profiles").resolve(testClass.getName() + ".collapsed"), StandardCharsets.UTF_8);
+	}
+
+{
+	describe("SpecProfiler", () -> {
+
+		beforeEach(() -> {
+			dir = Files.createTempDirectory("oleaster");
+		});
+
+		describe("when a test class is profiled", () -> {
+
+			beforeEach(() -> run(TestClass.class));
+
+			it("writes collapsed stacks that start with the path of the slow spec", () -> {
+				assertFalse(lines.isEmpty());
+				String root = TestClass.class.getName() + ", a suite, is slow;";
+				for (String line : lines) {
+					assertTrue(line, line.startsWith(root));
+					assertTrue(line, line.matches(".* \\d+"));
+				}
+			});
+
+			it("samples the stack of the thread that runs the spec", () -> {
+				assertTrue(lines.stream().anyMatch(line -> line.contains(SpecProfilerTest.class.getName() + ".sleepInSlowMethod;")));
+			});
+
+			it("does not sample fast specs", () -> {
+				assertTrue(lines.stream().noneMatch(line -> line.contains("is fast")));
+			});
+		});
+
+		describe("when an asynchronous spec is profiled", () -> {
+
+			beforeEach(() -> run(AsyncTestClass.class));
+
+			it("does not sample threads the spec does not run on", () -> {
+				assertTrue(lines.stream().noneMatch(line -> line.contains("sleepInSlowMethod")));
+			});
+		});
+
+		describe("when profiles are bound to threads", () -> {
+
+			it("samples a thread until it left all blocks of the spec", () -> {
+				SpecProfiler profiler = new SpecProfiler(0, 1);
+				SpecProfiler.Profile profile = profiler.start("a spec");
+				SpecBinding binding = SpecBinding.of(null, profile);
+				SpecBinding.run(binding, () -> SpecBinding.run(binding, () -> sleepInSlowMethod(50)));
+				Thread.sleep(50);
+				profiler.finish(profile);
+				profiler.close();
+				Map<String, Long> stacks = profiler.getStacks();
+				assertFalse(stacks.isEmpty());
+				for (String stack : stacks.keySet()) {
+					assertTrue(stack, stack.startsWith("a spec;"));
+					assertTrue(stack, stack.contains(SpecBinding.class.getName() + ".run;"));
+				}
+			});
+		});
+	});
+}}
@@ -0,0 +1,98 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.SuiteBuilder;
+import com.mscharhag.oleaster.runner.suite.SuiteDefinition;
+import com.mscharhag.oleaster.runner.suite.SuiteDefinitionEvaluator;
+
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.mscharhag.oleaster.runner.AssertUtil.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class StaticRunnerSupportTest {
+
+	private static CyclicBarrier barrier;
+
+	private SuiteBuilder outerSuiteBuilder;
+	private SuiteBuilder restoredSuiteBuilder;
+
+	public static class FirstTestClass {{
+		describe("first suite", () -> {
+			barrier.await(5, TimeUnit.SECONDS);
+			it("first spec", () -> {});
+		});
+	}}
+
+	public static class SecondTestClass {{
+		describe("second suite", () -> {
+			barrier.await(5, TimeUnit.SECONDS);
+			it("second spec", () -> {});
+		});
+	}}
+
+	private static List<String> evaluate(Class<?> testClass) {
+		try {
+			return new OleasterRunner(testClass).getChildren().stream()
+					.map(Spec::getFullDescription)
+					.collect(Collectors.toList());
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+{
+	describe("StaticRunnerSupport", () -> {
+
+		beforeEach(() -> {
+			StaticRunnerSupport.setSuiteBuilder(null);
+		});
+
+		it("fails if it is called outside of a suite definition", () -> {
+			expect(() -> {
+				describe("suite", () -> {});
+			}).toFailWith(IllegalStateException.class);
+		});
+
+		describe("when two test classes are evaluated concurrently", () -> {
+
+			it("adds the specs of each test class to its own suite", () -> {
+				barrier = new CyclicBarrier(2);
+				CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> evaluate(FirstTestClass.class));
+				CompletableFuture<List<String>> second = CompletableFuture.supplyAsync(() -> evaluate(SecondTestClass.class));
+
+				assertEquals(Arrays.asList("first suite, first spec"), first.get(10, TimeUnit.SECONDS));
+				assertEquals(Arrays.asList("second suite, second spec"), second.get(10, TimeUnit.SECONDS));
+			});
+		});
+
+		describe("when a suite definition is evaluated within another evaluation", () -> {
+
+			beforeEach(() -> {
+				outerSuiteBuilder = new StaticSupportingSuiteBuilder();
+				new SuiteDefinitionEvaluator().evaluate(new SuiteDefinition(null, "outer", () -> {
+					SuiteBuilder innerSuiteBuilder = new StaticSupportingSuiteBuilder();
+					new SuiteDefinitionEvaluator().evaluate(new SuiteDefinition(null, "inner", () -> {}), innerSuiteBuilder);
+					restoredSuiteBuilder = StaticRunnerSupport.getSuiteBuilder();
+				}), outerSuiteBuilder);
+			});
+
+			it("restores the suite builder of the outer evaluation", () -> {
+				assertSame(outerSuiteBuilder, restoredSuiteBuilder);
+			});
+
+			it("removes the suite builder once the outer evaluation is finished", () -> {
+				assertNull(StaticRunnerSupport.getSuiteBuilder());
+			});
+		});
+	});
+}}
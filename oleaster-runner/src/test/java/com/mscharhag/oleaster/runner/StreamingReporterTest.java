@@ -0,0 +1,136 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.Assume;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class StreamingReporterTest {
+
+	private Path dir;
+	private Document xml;
+	private List<String> json;
+
+	public static class ReportedTestClass {{
+		describe("outer", () -> {
+			it("passes", () -> { });
+			it("fails with <special> \"characters\" & a long message", () -> fail("0123456789 0123456789 0123456789"));
+			describe("inner", () -> {
+				it("throws", () -> {
+					throw new IllegalStateException("broken");
+				});
+				it("is pending");
+				it("violates an assumption", () -> Assume.assumeTrue(false));
+			});
+		});
+	}}
+
+	private void run() throws Exception {
+		System.setProperty(RunnerConfiguration.REPORT_DIR_PROPERTY, dir.toString());
+		System.setProperty(RunnerConfiguration.REPORT_PROPERTY, "xml, json");
+		System.setProperty(RunnerConfiguration.REPORT_MAX_MESSAGE_PROPERTY, "20");
+		OleasterRunner runner;
+		try {
+			runner = new OleasterRunner(ReportedTestClass.class);
+		} finally {
+			System.clearProperty(RunnerConfiguration.REPORT_DIR_PROPERTY);
+			System.clearProperty(RunnerConfiguration.REPORT_PROPERTY);
+			System.clearProperty(RunnerConfiguration.REPORT_MAX_MESSAGE_PROPERTY);
+		}
+		runner.run(new RunNotifier());
+		Path reports = dir.resolve("reports");
+		xml = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(reports.resolve(ReportedTestClass.class.getName() + ".xml").toFile());
+		json = Files.readAllLines(reports.resolve(ReportedTestClass.class.getName() + ".ndjson"), StandardCharsets.UTF_8);
+	}
+
+	private Element testCase(String name) {
+		NodeList testCases = xml.getElementsByTagName("testcase");
+		for (int i = 0; i < testCases.getLength(); i++) {
+			Element testCase = (Element) testCases.item(i);
+			if (testCase.getAttribute("name").equals(name)) {
+				return testCase;
+			}
+		}
+		throw new AssertionError("no testcase " + name);
+	}
+
+{
+	describe("StreamingReporter", () -> {
+
+		beforeEach(() -> {
+			dir = Files.createTempDirectory("oleaster");
+			run();
+		});
+
+		describe("the XML report", () -> {
+
+			it("contains the counts of the test class", () -> {
+				Element testSuite = xml.getDocumentElement();
+				assertEquals("testsuite", testSuite.getTagName());
+				assertEquals(ReportedTestClass.class.getName(), testSuite.getAttribute("name"));
+				assertEquals("5", testSuite.getAttribute("tests"));
+				assertEquals("1", testSuite.getAttribute("failures"));
+				assertEquals("1", testSuite.getAttribute("errors"));
+				assertEquals("2", testSuite.getAttribute("skipped"));
+			});
+
+			it("contains a testcase per spec named after the full description", () -> {
+				assertEquals(5, xml.getElementsByTagName("testcase").getLength());
+				assertEquals(0, testCase("outer, passes").getChildNodes().getLength());
+				assertEquals(1, testCase("outer, inner, is pending").getElementsByTagName("skipped").getLength());
+				Element error = (Element) testCase("outer, inner, throws").getElementsByTagName("error").item(0);
+				assertEquals("java.lang.IllegalStateException", error.getAttribute("type"));
+				assertEquals("broken", error.getAttribute("message"));
+			});
+
+			it("truncates failure messages", () -> {
+				Element failure = (Element) testCase("outer, fails with <special> \"characters\" & a long message")
+						.getElementsByTagName("failure").item(0);
+				assertEquals("0123456789 012345678... [12 more characters]", failure.getAttribute("message"));
+				assertTrue(failure.getTextContent().endsWith(" more characters]"));
+			});
+		});
+
+		describe("the JSON report", () -> {
+
+			it("contains a record per suite event, per spec and a summary", () -> {
+				List<String> types = json.stream().map(line -> line.substring(0, line.indexOf(','))).collect(Collectors.toList());
+				assertEquals(2, types.stream().filter("{\"type\":\"suiteStarted\""::equals).count());
+				assertEquals(2, types.stream().filter("{\"type\":\"suiteFinished\""::equals).count());
+				assertEquals(5, types.stream().filter("{\"type\":\"spec\""::equals).count());
+				assertTrue(json.get(json.size() - 1).startsWith("{\"type\":\"summary\""));
+				assertTrue(json.get(json.size() - 1).contains("\"tests\":5,\"failures\":1,\"errors\":1,\"skipped\":2"));
+			});
+
+			it("contains the suite tree", () -> {
+				assertTrue(json.stream().anyMatch(line -> line.contains("\"type\":\"suiteStarted\"")
+						&& line.contains("\"suite\":\"outer, inner\",\"parent\":\"outer\"")));
+				assertTrue(json.stream().anyMatch(line -> line.contains("\"suite\":\"outer, inner\",\"name\":\"outer, inner, throws\",\"status\":\"error\"")));
+			});
+
+			it("escapes strings", () -> {
+				assertTrue(json.stream().anyMatch(line -> line.contains("\"name\":\"outer, fails with <special> \\\"characters\\\" & a long message\"")));
+			});
+		});
+
+		it("truncates long text and marks the truncation", () -> {
+			assertEquals("abc... [3 more characters]", StreamingReporter.truncate("abcdef", 3));
+			assertEquals("abc", StreamingReporter.truncate("abc", 3));
+			assertNull(StreamingReporter.truncate(null, 3));
+		});
+	});
+}}
@@ -0,0 +1,84 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.mscharhag.oleaster.runner.AssertUtil.*;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class SuiteTest {
+
+	private Invokable invokable = () -> {};
+	private Suite suite, child;
+	private Spec spec;
+
+{
+	describe("Suite", () -> {
+
+		beforeEach(() -> {
+			suite = new Suite(null, "suite");
+			child = new Suite(suite, "child");
+			spec = new Spec(child, "spec", Optional.of(invokable));
+		});
+
+		it("shares empty collections between suites", () -> {
+			assertSame(suite.getSpecs(), child.getSpecs());
+			assertSame(suite.getBeforeEachHandlers(), child.getAfterHandlers());
+		});
+
+		it("returns the descriptions of all parent suites as full description", () -> {
+			assertEquals("suite, child", child.getFullDescription());
+		});
+
+		it("computes the full description only once", () -> {
+			assertSame(child.getFullDescription(), child.getFullDescription());
+			assertSame(spec.getFullDescription(), spec.getFullDescription());
+		});
+
+		describe("when the suite is frozen", () -> {
+
+			beforeEach(() -> {
+				suite.addChildSuite(child);
+				suite.addBeforeHandler(invokable);
+				child.addSpec(spec);
+				suite.freeze();
+			});
+
+			it("keeps all suites, specs and handlers", () -> {
+				assertEquals(Arrays.asList(child), suite.getSuites());
+				assertEquals(Arrays.asList(invokable), suite.getBeforeHandlers());
+				assertEquals(Arrays.asList(spec), child.getSpecs());
+			});
+
+			it("freezes all child suites", () -> {
+				assertTrue(suite.isFrozen());
+				assertTrue(child.isFrozen());
+			});
+
+			it("is not possible to add specs", () -> {
+				expect(() -> {
+					child.addSpec(new Spec(child, "another spec", Optional.of(invokable)));
+				}).toFailWith(IllegalStateException.class);
+			});
+
+			it("is not possible to add handlers", () -> {
+				expect(() -> {
+					suite.addBeforeEachHandler(invokable);
+				}).toFailWith(IllegalStateException.class);
+			});
+
+			it("returns collections that can not be modified", () -> {
+				expect(() -> {
+					suite.getSuites().add(child);
+				}).toFailWith(UnsupportedOperationException.class);
+			});
+		});
+	});
+}}
@@ -0,0 +1,75 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+/**
+ * Measures the heap allocated while discovering a test class with 150k specs
+ * and the heap retained by the evaluated suite tree afterwards.
+ * <p>Allocated bytes are only reported on JVMs that support thread allocation measurement.
+ * <p>Run with: {@code java -cp <test classpath> com.mscharhag.oleaster.runner.SuiteTreeMemoryBenchmark}
+ */
+public class SuiteTreeMemoryBenchmark {
+
+	private static final int SUITES = 150;
+	private static final int SPECS_PER_SUITE = 1_000;
+
+	public static class GeneratedTestClass {{
+		describe("generated specs", () -> {
+			beforeEach(() -> {});
+			for (int suite = 0; suite < SUITES; suite++) {
+				describe("suite " + suite, () -> {
+					for (int spec = 0; spec < SPECS_PER_SUITE; spec++) {
+						it("spec " + spec, () -> {});
+					}
+				});
+			}
+		});
+	}}
+
+	public static void main(String[] args) throws Exception {
+		long before = usedMemory();
+		long allocatedBefore = allocatedBytes();
+
+		OleasterRunner runner = new OleasterRunner(GeneratedTestClass.class);
+		List<Spec> specs = runner.getChildren();
+		for (int i = 0; i < 3; i++) {
+			// JUnit and build tools request the description several times
+			runner.getDescription();
+		}
+
+		long allocated = allocatedBytes() - allocatedBefore;
+		long retained = usedMemory() - before;
+
+		System.out.printf("%d specs%n", specs.size());
+		System.out.printf("retained:  %7d KB, %5d bytes per spec%n", retained / 1024, retained / specs.size());
+		if (allocatedBefore >= 0) {
+			System.out.printf("allocated: %7d KB, %5d bytes per spec%n", allocated / 1024, allocated / specs.size());
+		}
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+				return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
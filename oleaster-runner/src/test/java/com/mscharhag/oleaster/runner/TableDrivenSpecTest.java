@@ -0,0 +1,128 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class TableDrivenSpecTest {
+
+	private static List<String> calls;
+	private static Path csvFile;
+
+	private OleasterRunner runner;
+
+	public static class TableTestClass {{
+		itEach("adds %s and %s", Rows.of(Rows.row(1, 2, 3), Rows.row(2, 3, 5)), row ->
+				calls.add(row[0] + " + " + row[1] + " = " + row[2]));
+		itEach("has no placeholder", Rows.from(() -> Stream.of("a", "b")), row -> calls.add(row));
+		describeEach("a %s account", Rows.from(Arrays.asList("free", "premium")), type -> {
+			it("has a type", () -> calls.add(type));
+		});
+	}}
+
+	private static final Rows<String> STREAM_ROWS = Rows.from(() -> Stream.of("x", "y"));
+
+	private static final List<String> reads = new ArrayList<>();
+
+	public static class CountedRowsTestClass {{
+		itEach("uses %s", Rows.from(() -> Stream.of("x", "y").peek(reads::add)), row -> calls.add(row));
+		itEach("reads", Rows.from(() -> Stream.of("z").peek(reads::add)), row -> calls.add(row));
+	}}
+
+	@Parallel(threads = 2, isolated = true)
+	public static class IsolatedStreamTestClass {{
+		itEach("uses %s", STREAM_ROWS, row -> calls.add(row));
+	}}
+
+	public static class CsvTestClass {{
+		itEach("converts %s", Rows.csv(csvFile, true), row -> calls.add(String.join("|", row)));
+	}}
+
+	private List<String> specNames() {
+		return runner.getChildren().stream().map(Spec::getFullDescription).collect(Collectors.toList());
+	}
+
+{
+	describe("Table-driven specs", () -> {
+
+		beforeEach(() -> calls = new ArrayList<>());
+
+		describe("when rows are taken from a table, a stream and a list", () -> {
+
+			beforeEach(() -> runner = new OleasterRunner(TableTestClass.class));
+
+			it("creates a spec or suite for every row with a formatted description", () -> {
+				assertEquals(Arrays.asList(
+						"adds 1 and 2", "adds 2 and 3",
+						"has no placeholder (row 1)", "has no placeholder (row 2)",
+						"a free account, has a type", "a premium account, has a type"), specNames());
+			});
+
+			it("passes the row to the spec", () -> {
+				runner.run(new RunNotifier());
+				assertEquals(Arrays.asList("1 + 2 = 3", "2 + 3 = 5", "a", "b", "free", "premium"), calls);
+			});
+		});
+
+		describe("when rows are taken from a stream that is held in a field", () -> {
+
+			it("can evaluate the suite again", () -> {
+				calls = Collections.synchronizedList(calls);
+				runner = new OleasterRunner(IsolatedStreamTestClass.class);
+				assertEquals(Arrays.asList("uses x", "uses y"), specNames());
+				runner.run(new RunNotifier());
+				assertEquals(Arrays.asList("x", "y"), calls.stream().sorted().collect(Collectors.toList()));
+				assertEquals(Arrays.asList("uses x", "uses y"), specNames());
+			});
+		});
+
+		describe("when rows are taken from a stream supplier", () -> {
+
+			beforeEach(() -> reads.clear());
+
+			it("reads a formatted row once and the other rows when the spec is run", () -> {
+				runner = new OleasterRunner(CountedRowsTestClass.class);
+				assertEquals(Arrays.asList("uses x", "uses y", "reads (row 1)"), specNames());
+				assertEquals(Arrays.asList("x", "y", "z"), reads);
+				reads.clear();
+				runner.run(new RunNotifier());
+				assertEquals(Arrays.asList("x", "y", "z"), calls);
+				assertEquals(Arrays.asList("z"), reads);
+			});
+		});
+
+		describe("when rows are read from a CSV file", () -> {
+
+			beforeEach(() -> {
+				csvFile = Files.createTempFile("oleaster", ".csv");
+				Files.write(csvFile, Arrays.asList("name,value", "a,1", "", "\"b, c\",\"say \"\"hi\"\"\"\r"), StandardCharsets.UTF_8);
+				runner = new OleasterRunner(CsvTestClass.class);
+			});
+
+			afterEach(() -> Files.deleteIfExists(csvFile));
+
+			it("skips the header and empty lines", () -> {
+				assertEquals(Arrays.asList("converts a", "converts b, c"), specNames());
+			});
+
+			it("parses the row again when the spec is run", () -> {
+				runner.run(new RunNotifier());
+				assertEquals(Arrays.asList("a|1", "b, c|say \"hi\""), calls);
+			});
+		});
+	});
+}}
@@ -0,0 +1,170 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.TestTimedOutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class TimeoutTest {
+
+	private static List<String> calls;
+
+	private List<Failure> failures;
+
+	public static class TimeoutTestClass {{
+		it("hangs", Duration.ofMillis(50), () -> Thread.sleep(10_000));
+		it("runs after the hanging spec", () -> calls.add("interrupted: " + Thread.currentThread().isInterrupted()));
+		describe("a suite with a timeout", Duration.ofMillis(50), () -> {
+			describe("a child suite", () -> {
+				it("inherits the timeout", () -> Thread.sleep(10_000));
+				it("completes in time", () -> calls.add("completed"));
+			});
+		});
+	}}
+
+	@Timeout(millis = 50)
+	public static class DefaultTimeoutTestClass {{
+		it("hangs", () -> Thread.sleep(10_000));
+		it("overrides the default timeout", Duration.ofSeconds(10), () -> {
+			Thread.sleep(100);
+			calls.add("completed");
+		});
+	}}
+
+	public static class IgnoredInterruptTestClass {{
+		it("ignores the interrupt", Duration.ofMillis(50), () -> {
+			long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+			while (System.nanoTime() < end) {
+				// busy loop that does not check the interrupt flag
+			}
+		});
+		it("runs before the busy spec completes", () -> calls.add("next"));
+	}}
+
+	public static class HandlerTimeoutTestClass {{
+		describe("a suite with a hanging beforeEach handler", Duration.ofMillis(50), () -> {
+			beforeEach(() -> Thread.sleep(10_000));
+			it("is not run", () -> calls.add("not run"));
+			afterEach(() -> calls.add("afterEach"));
+		});
+		describe("a suite with a hanging before handler", Duration.ofMillis(50), () -> {
+			before(() -> Thread.sleep(10_000));
+			it("is not run either", () -> calls.add("not run"));
+		});
+		it("runs after the hanging handlers", () -> calls.add("completed"));
+	}}
+
+	private void run(Class<?> testClass) throws Exception {
+		calls = new ArrayList<>();
+		failures = Collections.synchronizedList(new ArrayList<>());
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testFailure(Failure failure) {
+				failures.add(failure);
+			}
+		});
+		new OleasterRunner(testClass).run(notifier);
+	}
+
+{
+	describe("OleasterRunner with timeouts", () -> {
+
+		describe("when specs exceed their timeout", () -> {
+
+			beforeEach(() -> run(TimeoutTestClass.class));
+
+			it("reports a failure with the stack trace of the spec thread", () -> {
+				assertEquals(2, failures.size());
+				Throwable exception = failures.get(0).getException();
+				assertTrue(exception instanceof TestTimedOutException);
+				assertTrue(Arrays.stream(exception.getStackTrace()).anyMatch(e -> e.getMethodName().equals("sleep")));
+			});
+
+			it("applies the timeout of a suite to the specs of its child suites", () -> {
+				assertEquals("a suite with a timeout, a child suite, inherits the timeout",
+						failures.get(1).getDescription().getMethodName());
+			});
+
+			it("continues with the next spec on a thread that is not interrupted", () -> {
+				assertEquals(Arrays.asList("interrupted: false", "completed"), calls);
+			});
+		});
+
+		describe("when a spec ignores the interrupt", () -> {
+
+			it("fails the spec at the deadline and moves on to the next spec", () -> {
+				long start = System.nanoTime();
+				run(IgnoredInterruptTestClass.class);
+				assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+				assertEquals(1, failures.size());
+				assertTrue(failures.get(0).getException() instanceof TestTimedOutException);
+				assertEquals(Arrays.asList("next"), calls);
+			});
+		});
+
+		describe("when handlers exceed the timeout", () -> {
+
+			beforeEach(() -> run(HandlerTimeoutTestClass.class));
+
+			it("fails the specs of the handlers with a timeout", () -> {
+				assertEquals(2, failures.size());
+				assertEquals("a suite with a hanging beforeEach handler, is not run", failures.get(0).getDescription().getMethodName());
+				assertTrue(failures.get(0).getException() instanceof TestTimedOutException);
+				assertEquals("a suite with a hanging before handler, is not run either", failures.get(1).getDescription().getMethodName());
+				assertTrue(failures.get(1).getException().getCause() instanceof TestTimedOutException);
+			});
+
+			it("runs the afterEach handlers and the remaining specs", () -> {
+				assertEquals(Arrays.asList("completed", "afterEach"), calls);
+			});
+		});
+
+		describe("when the test class defines a default timeout", () -> {
+
+			beforeEach(() -> run(DefaultTimeoutTestClass.class));
+
+			it("applies the default timeout to specs without a timeout", () -> {
+				assertEquals(1, failures.size());
+				assertEquals("hangs", failures.get(0).getDescription().getMethodName());
+				assertEquals(Arrays.asList("completed"), calls);
+			});
+		});
+	});
+
+	describe("TimerWheel", () -> {
+
+		it("runs tasks after their delay", () -> {
+			CountDownLatch latch = new CountDownLatch(1);
+			long start = System.nanoTime();
+			TimerWheel.shared().schedule(30, TimeUnit.MILLISECONDS, latch::countDown);
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+		});
+
+		it("does not run cancelled tasks", () -> {
+			AtomicInteger runs = new AtomicInteger();
+			for (int i = 0; i < 10_000; i++) {
+				assertTrue(TimerWheel.shared().schedule(10, TimeUnit.SECONDS, runs::incrementAndGet).cancel());
+			}
+			CountDownLatch latch = new CountDownLatch(1);
+			TimerWheel.shared().schedule(50, TimeUnit.MILLISECONDS, latch::countDown);
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertEquals(0, runs.get());
+		});
+	});
+}}
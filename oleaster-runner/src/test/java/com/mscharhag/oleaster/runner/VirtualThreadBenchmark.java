@@ -0,0 +1,76 @@
+package com.mscharhag.oleaster.runner;
+
+import com.mscharhag.oleaster.runner.suite.Spec;
+import com.mscharhag.oleaster.runner.suite.Suite;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the ForkJoinPool and the virtual thread scheduler for I/O-bound specs.
+ * <p>Every spec sleeps for a few milliseconds to simulate a blocking call. The ForkJoinPool is limited to the
+ * number of available processors while the virtual thread scheduler runs all specs at the same time.
+ * The best result of all measured rounds is reported.
+ * Run with: {@code java -cp <test classpath> com.mscharhag.oleaster.runner.VirtualThreadBenchmark}
+ */
+public class VirtualThreadBenchmark {
+
+	private static final int SUITES = 200;
+	private static final int SPECS_PER_SUITE = 5;
+	private static final long SLEEP_MILLIS = 10;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int MEASURED_ROUNDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		Suite suite = createSuite();
+		int parallelism = Runtime.getRuntime().availableProcessors();
+
+		report("ForkJoinPool (" + parallelism + " threads)", measure(new ForkJoinSuiteScheduler(parallelism), suite));
+		if (VirtualThreadSuiteScheduler.isSupported()) {
+			report("virtual threads (unlimited)", measure(new VirtualThreadSuiteScheduler(0, s -> 0L), suite));
+		} else {
+			System.out.println("virtual threads are not supported by this JVM, the ForkJoinPool is used instead");
+		}
+	}
+
+	private static long measure(SuiteScheduler scheduler, Suite suite) {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+			long start = System.nanoTime();
+			scheduler.run(suite, VirtualThreadBenchmark::runSpec, () -> false);
+			long elapsed = System.nanoTime() - start;
+			if (round >= WARMUP_ROUNDS) {
+				best = Math.min(best, elapsed);
+			}
+		}
+		return best;
+	}
+
+	private static CompletableFuture<Void> runSpec(Spec spec) {
+		try {
+			spec.evaluate();
+		} catch (Throwable t) {
+			return AsyncInvokables.failed(t);
+		}
+		return AsyncInvokables.completed();
+	}
+
+	private static void report(String name, long nanos) {
+		int specs = SUITES * SPECS_PER_SUITE;
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		System.out.printf("%-30s %6d ms, %8.1f specs per second%n", name, millis, specs * 1_000_000_000.0 / nanos);
+	}
+
+	private static Suite createSuite() {
+		Suite outer = new Suite(null, "outer");
+		for (int i = 0; i < SUITES; i++) {
+			Suite inner = new Suite(outer, "suite " + i);
+			for (int j = 0; j < SPECS_PER_SUITE; j++) {
+				inner.addSpec(new Spec(inner, "spec " + j, Optional.of(() -> Thread.sleep(SLEEP_MILLIS))));
+			}
+			outer.addChildSuite(inner);
+		}
+		return outer;
+	}
+}
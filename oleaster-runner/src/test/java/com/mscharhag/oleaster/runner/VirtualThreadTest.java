@@ -0,0 +1,103 @@
+package com.mscharhag.oleaster.runner;
+
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.mscharhag.oleaster.runner.AssertUtil.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+import static org.junit.Assert.*;
+
+@RunWith(OleasterRunner.class)
+public class VirtualThreadTest {
+
+	private static List<String> calls;
+	private static CyclicBarrier barrier;
+
+	private List<String> events;
+
+	@Parallel(threads = 2, virtualThreads = true)
+	public static class VirtualThreadTestClass {{
+		describe("first suite", () -> {
+			beforeEach(() -> calls.add("first beforeEach"));
+			it("waits for the second suite", () -> barrier.await(5, TimeUnit.SECONDS));
+			afterEach(() -> calls.add("first afterEach"));
+		});
+		describe("second suite", () -> {
+			it("waits for the first suite", () -> barrier.await(5, TimeUnit.SECONDS));
+		});
+	}}
+
+	private static boolean hasVirtualThreads() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+{
+	describe("VirtualThreadSuiteScheduler", () -> {
+
+		it("is supported if the JVM provides virtual threads", () -> {
+			assertEquals(hasVirtualThreads(), VirtualThreadSuiteScheduler.isSupported());
+		});
+
+		it("can not be created if the JVM does not provide virtual threads", () -> {
+			if (!VirtualThreadSuiteScheduler.isSupported()) {
+				expect(() -> new VirtualThreadSuiteScheduler(0, suite -> 0L)).toFailWith(IllegalStateException.class);
+			}
+		});
+	});
+
+	describe("OleasterRunner in virtual thread mode", () -> {
+
+		beforeEach(() -> {
+			calls = Collections.synchronizedList(new ArrayList<>());
+			events = Collections.synchronizedList(new ArrayList<>());
+			barrier = new CyclicBarrier(2);
+
+			RunNotifier notifier = new RunNotifier();
+			notifier.addListener(new RunListener() {
+				@Override
+				public void testFailure(Failure failure) {
+					events.add("failed " + failure.getDescription().getMethodName());
+				}
+
+				@Override
+				public void testFinished(Description description) {
+					events.add("finished " + description.getMethodName());
+				}
+			});
+			new OleasterRunner(VirtualThreadTestClass.class).run(notifier);
+		});
+
+		it("runs sibling suites concurrently", () -> {
+			assertEquals(Arrays.asList(
+					"finished first suite, waits for the second suite",
+					"finished second suite, waits for the first suite"), sorted(events));
+		});
+
+		it("runs beforeEach and afterEach handlers around the spec", () -> {
+			assertEquals(Arrays.asList("first beforeEach", "first afterEach"), calls);
+		});
+	});
+}
+
+	private static List<String> sorted(List<String> list) {
+		List<String> copy = new ArrayList<>(list);
+		Collections.sort(copy);
+		return copy;
+	}
+}